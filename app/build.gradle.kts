@@ -39,6 +39,12 @@ android {
     buildFeatures {
         viewBinding = true
     }
+    testOptions {
+        unitTests.all {
+            // ./gradlew test -Pbenchmark also runs the timing comparisons
+            it.systemProperty("benchmark", project.hasProperty("benchmark").toString())
+        }
+    }
 }
 
 dependencies {
@@ -51,8 +57,10 @@ dependencies {
     implementation(libs.navigation.fragment)
     implementation(libs.navigation.ui)
     testImplementation(libs.junit)
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
+    androidTestImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
     
     implementation("com.airbnb.android:lottie:6.1.0")
     
@@ -66,6 +74,14 @@ dependencies {
     implementation("com.google.firebase:firebase-firestore-ktx")
 
     implementation("com.github.bumptech.glide:glide:4.16.0")
+    implementation("com.github.bumptech.glide:recyclerview-integration:4.16.0") {
+        isTransitive = false
+    }
+    annotationProcessor("com.github.bumptech.glide:compiler:4.16.0")
+
+    implementation("androidx.media3:media3-exoplayer:1.4.1")
+    implementation("androidx.media3:media3-ui:1.4.1")
+    implementation("androidx.media3:media3-database:1.4.1")
     
     // Google Play Services
     implementation("com.google.android.gms:play-services-location:21.3.0")
@@ -77,6 +93,8 @@ dependencies {
     
     implementation("androidx.preference:preference:1.2.1")
     implementation("androidx.documentfile:documentfile:1.0.1")
+    implementation("androidx.work:work-runtime:2.10.0")
+    implementation("androidx.lifecycle:lifecycle-process:2.8.7")
     implementation("com.squareup.okhttp3:okhttp:4.12.0")
     implementation("androidx.coordinatorlayout:coordinatorlayout:1.2.0")
 }
\ No newline at end of file
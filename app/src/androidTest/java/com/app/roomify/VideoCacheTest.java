@@ -0,0 +1,236 @@
+package com.app.roomify;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.DefaultHttpDataSource;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.Okio;
+
+import static org.junit.Assert.*;
+
+/**
+ * VideoCache against MockWebServer: preloading, replay from the cache and first-frame
+ * thumbnails of a real MP4 from the test assets.
+ */
+@RunWith(AndroidJUnit4.class)
+@OptIn(markerClass = UnstableApi.class)
+public class VideoCacheTest {
+
+    private static final int VIDEO_BYTES = 3 * 1024 * 1024;
+    private static final String ETAG = "\"v1\"";
+    // 32x32 H.264, two frames
+    private static final String TINY_TOUR_ASSET = "tiny_tour.mp4";
+
+    private final byte[] video = new byte[VIDEO_BYTES];
+    private final Map<String, byte[]> bodies = new HashMap<>();
+    private final List<File> thumbnails = new ArrayList<>();
+    private MockWebServer server;
+    private File cacheDir;
+    private VideoCache videoCache;
+    private String url;
+
+    @Before
+    public void setUp() throws Exception {
+        new Random(42).nextBytes(video);
+        bodies.put("/tour.mp4", video);
+        bodies.put("/tiny_tour.mp4", readAsset(TINY_TOUR_ASSET));
+
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                byte[] body = bodies.get(request.getPath());
+                if (body == null) return new MockResponse().setResponseCode(404);
+                return response(body, request);
+            }
+        });
+        server.start();
+        url = server.url("/tour.mp4").toString();
+
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        cacheDir = new File(context.getCacheDir(), "video_test_" + System.nanoTime());
+        videoCache = new VideoCache(context, cacheDir, 16L * 1024 * 1024, new DefaultHttpDataSource.Factory());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        videoCache.release();
+        server.shutdown();
+        deleteRecursively(cacheDir);
+        for (File thumbnail : thumbnails) thumbnail.delete();
+    }
+
+    @Test
+    public void preloadCachesTheStartOfTheVideo() throws Exception {
+        videoCache.preload(url);
+        waitForCachedBytes(VideoCache.PRELOAD_BYTES);
+
+        assertEquals(VideoCache.PRELOAD_BYTES, videoCache.getCachedBytes(url));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void preloadedBytesAreReadWithoutTheNetwork() throws Exception {
+        videoCache.preload(url);
+        waitForCachedBytes(VideoCache.PRELOAD_BYTES);
+        int requestsAfterPreload = server.getRequestCount();
+
+        byte[] head = read(0, (int) VideoCache.PRELOAD_BYTES);
+
+        assertEquals(requestsAfterPreload, server.getRequestCount());
+        for (int i = 0; i < head.length; i++) {
+            assertEquals(video[i], head[i]);
+        }
+    }
+
+    @Test
+    public void replayDoesNotDownloadAgain() throws Exception {
+        read(0, VIDEO_BYTES);
+        int requestsAfterFirstPlay = server.getRequestCount();
+
+        byte[] replay = read(0, VIDEO_BYTES);
+
+        assertEquals(requestsAfterFirstPlay, server.getRequestCount());
+        assertEquals(VIDEO_BYTES, videoCache.getCachedBytes(url));
+        assertEquals(video[VIDEO_BYTES - 1], replay[VIDEO_BYTES - 1]);
+    }
+
+    @Test
+    public void thumbnailIsTheFirstFrame() {
+        File thumbnail = thumbnail(server.url("/tiny_tour.mp4").toString());
+
+        assertNotNull(thumbnail);
+        Bitmap frame = BitmapFactory.decodeFile(thumbnail.getPath());
+        assertNotNull(frame);
+        assertEquals(32, frame.getWidth());
+        assertEquals(32, frame.getHeight());
+        // Left to right luma gradient
+        assertTrue(brightness(frame.getPixel(1, 16)) < brightness(frame.getPixel(30, 16)));
+    }
+
+    @Test
+    public void thumbnailIsExtractedOnce() {
+        String tinyUrl = server.url("/tiny_tour.mp4").toString();
+        File first = thumbnail(tinyUrl);
+        int requestsAfterFirst = server.getRequestCount();
+
+        File second = thumbnail(tinyUrl);
+
+        assertNotNull(first);
+        assertEquals(first, second);
+        assertEquals(requestsAfterFirst, server.getRequestCount());
+    }
+
+    // ==================== HELPERS ====================
+
+    // Thumbnails live next to the app's own, so only the ones made here are cleaned up
+    private File thumbnail(String videoUrl) {
+        File file = videoCache.getThumbnail(videoUrl);
+        if (file != null) thumbnails.add(file);
+        return file;
+    }
+
+    private byte[] read(long position, int length) throws Exception {
+        DataSource source = videoCache.getDataSourceFactory().createDataSource();
+        byte[] out = new byte[length];
+        try {
+            source.open(new DataSpec.Builder()
+                    .setUri(Uri.parse(url))
+                    .setPosition(position)
+                    .setLength(length)
+                    .build());
+            int total = 0;
+            while (total < length) {
+                int read = source.read(out, total, length - total);
+                if (read < 0) break;
+                total += read;
+            }
+            assertEquals(length, total);
+        } finally {
+            source.close();
+        }
+        return out;
+    }
+
+    private void waitForCachedBytes(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (videoCache.getCachedBytes(url) < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+
+    // Honours "Range: bytes=start-[end]", unless an If-Range names another version
+    private static MockResponse response(byte[] body, RecordedRequest request) {
+        String range = request.getHeader("Range");
+        String ifRange = request.getHeader("If-Range");
+        if (range == null || (ifRange != null && !ifRange.equals(ETAG))) {
+            return new MockResponse()
+                    .setHeader("ETag", ETAG)
+                    .setHeader("Content-Type", "video/mp4")
+                    .setBody(new Buffer().write(body));
+        }
+
+        String[] bounds = range.substring("bytes=".length()).split("-", -1);
+        int start = Integer.parseInt(bounds[0].trim());
+        int end = bounds[1].trim().isEmpty()
+                ? body.length - 1 : Math.min(body.length - 1, Integer.parseInt(bounds[1].trim()));
+        if (start >= body.length) {
+            return new MockResponse()
+                    .setResponseCode(416)
+                    .setHeader("Content-Range", "bytes */" + body.length);
+        }
+        return new MockResponse()
+                .setResponseCode(206)
+                .setHeader("ETag", ETAG)
+                .setHeader("Content-Type", "video/mp4")
+                .setHeader("Content-Range", "bytes " + start + "-" + end + "/" + body.length)
+                .setBody(new Buffer().write(body, start, end - start + 1));
+    }
+
+    private static byte[] readAsset(String name) throws IOException {
+        Context testContext = InstrumentationRegistry.getInstrumentation().getContext();
+        try (InputStream in = testContext.getAssets().open(name)) {
+            return Okio.buffer(Okio.source(in)).readByteArray();
+        }
+    }
+
+    private static int brightness(int color) {
+        return (color >> 16 & 0xFF) + (color >> 8 & 0xFF) + (color & 0xFF);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) deleteRecursively(child);
+        }
+        file.delete();
+    }
+}
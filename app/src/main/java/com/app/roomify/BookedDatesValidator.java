@@ -0,0 +1,64 @@
+package com.app.roomify;
+
+import android.os.Parcel;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.material.datepicker.CalendarConstraints;
+
+import java.util.Arrays;
+
+/**
+ * Greys out days already taken by approved stays in the booking date picker.
+ * Holds the room's booked spans as sorted arrays so it can be parceled with the picker.
+ */
+public class BookedDatesValidator implements CalendarConstraints.DateValidator {
+
+    private final long[] starts;
+    private final long[] ends;
+
+    public BookedDatesValidator(DateRangeIndex bookedRanges) {
+        long[][] spans = bookedRanges.toArrays();
+        this.starts = spans[0];
+        this.ends = spans[1];
+    }
+
+    private BookedDatesValidator(long[] starts, long[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * @param date UTC midnight of the day, as handed in by MaterialDatePicker
+     */
+    @Override
+    public boolean isValid(long date) {
+        int i = Arrays.binarySearch(starts, date);
+        // Index of the last span starting at or before the day
+        int span = i >= 0 ? i : -i - 2;
+        return span < 0 || ends[span] <= date;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeLongArray(starts);
+        dest.writeLongArray(ends);
+    }
+
+    public static final Creator<BookedDatesValidator> CREATOR = new Creator<BookedDatesValidator>() {
+        @Override
+        public BookedDatesValidator createFromParcel(Parcel source) {
+            return new BookedDatesValidator(source.createLongArray(), source.createLongArray());
+        }
+
+        @Override
+        public BookedDatesValidator[] newArray(int size) {
+            return new BookedDatesValidator[size];
+        }
+    };
+}
@@ -10,11 +10,18 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
 
 public class BookingAdapter extends RecyclerView.Adapter<BookingAdapter.ViewHolder> {
 
+    // Stay dates are stored as UTC midnights
+    private static final SimpleDateFormat STAY_FORMAT = createStayFormat();
+
     private List<BookingRequest> requests;
     private final OnBookingActionListener listener;
 
@@ -52,8 +59,13 @@ public class BookingAdapter extends RecyclerView.Adapter<BookingAdapter.ViewHold
         String status = getSafeString(request.getStatus(), "pending");
         holder.tvStatus.setText("Status: " + status);
 
-        String bookingDate = getSafeString(request.getBookingDate(), "Date not available");
-        holder.tvDate.setText(bookingDate);
+        if (request.hasStayDates()) {
+            holder.tvDate.setText(STAY_FORMAT.format(new Date(request.getCheckIn()))
+                    + " - " + STAY_FORMAT.format(new Date(request.getCheckOut())));
+        } else {
+            String bookingDate = getSafeString(request.getBookingDate(), "Date not available");
+            holder.tvDate.setText(bookingDate);
+        }
 
         // Configure buttons based on status
         configureButtons(holder, request, status);
@@ -190,6 +202,12 @@ public class BookingAdapter extends RecyclerView.Adapter<BookingAdapter.ViewHold
         return -1;
     }
 
+    private static SimpleDateFormat createStayFormat() {
+        SimpleDateFormat format = new SimpleDateFormat("dd MMM yyyy", Locale.getDefault());
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+
     private String getSafeString(String value, String defaultValue) {
         return value != null && !value.isEmpty() ? value : defaultValue;
     }
@@ -0,0 +1,207 @@
+package com.app.roomify;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Booking list loaded one page at a time, newest first, with limit() + startAfter().
+ *
+ * Owners read a single collection-group query over "bookings" filtered by ownerId.
+ * Every booking is written twice with the same id (rooms/{roomId}/bookings and
+ * users/{userId}/bookings) and both copies carry ownerId; only the room copy carries
+ * roomCopy, so the query matches each booking once. Bookings made before that field
+ * existed get it from scripts/migrations/backfill-booking-room-copy.js. Tenants read
+ * users/{uid}/bookings directly.
+ *
+ * Needs collection-group indexes on bookings (ownerId, roomCopy, timestamp desc) and
+ * (ownerId, roomCopy, status, timestamp desc), and a collection index on bookings
+ * (status, timestamp desc) for the tenant status tabs.
+ */
+public class BookingInbox {
+
+    private static final String TAG = "BookingInbox";
+
+    public static final int PAGE_SIZE = 20;
+
+    // True on the rooms/{roomId}/bookings copy only
+    public static final String FIELD_ROOM_COPY = "roomCopy";
+
+    public interface OnPageLoadedListener {
+        void onPageLoaded(List<BookingRequest> page, boolean hasMore);
+        void onError(Exception e);
+    }
+
+    private final Query baseQuery;
+    private final int pageSize;
+
+    private final Set<String> seenIds = new HashSet<>();
+    private DocumentSnapshot lastVisible;
+    private boolean hasMore = true;
+    private boolean loading;
+
+    private BookingInbox(Query baseQuery, int pageSize) {
+        this.baseQuery = baseQuery;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Bookings on all of the owner's rooms.
+     *
+     * @param status Only bookings with this status, or null for all of them
+     */
+    public static BookingInbox forOwner(String ownerId, @Nullable String status) {
+        return new BookingInbox(query(ownerId, status), PAGE_SIZE);
+    }
+
+    /**
+     * Bookings the tenant has made.
+     *
+     * @param status Only bookings with this status, or null for all of them
+     */
+    public static BookingInbox forTenant(String userId, @Nullable String status) {
+        Query query = FirebaseFirestore.getInstance()
+                .collection("users")
+                .document(userId)
+                .collection("bookings");
+        if (status != null) {
+            query = query.whereEqualTo("status", status);
+        }
+        return new BookingInbox(query.orderBy("timestamp", Query.Direction.DESCENDING), PAGE_SIZE);
+    }
+
+    /**
+     * The owner collection-group query, unpaged. Room copies only.
+     */
+    public static Query query(String ownerId, @Nullable String status) {
+        Query query = FirebaseFirestore.getInstance()
+                .collectionGroup("bookings")
+                .whereEqualTo("ownerId", ownerId)
+                .whereEqualTo(FIELD_ROOM_COPY, true);
+        if (status != null) {
+            query = query.whereEqualTo("status", status);
+        }
+        return query.orderBy("timestamp", Query.Direction.DESCENDING);
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public void reset() {
+        seenIds.clear();
+        lastVisible = null;
+        hasMore = true;
+        loading = false;
+    }
+
+    /**
+     * Load the next page. Ignored while a page is already loading or nothing is left.
+     */
+    public void loadNextPage(OnPageLoadedListener listener) {
+        if (loading || !hasMore) return;
+        loading = true;
+
+        Query query = baseQuery.limit(pageSize);
+        if (lastVisible != null) {
+            query = query.startAfter(lastVisible);
+        }
+
+        query.get()
+                .addOnSuccessListener(snapshot -> {
+                    loading = false;
+                    List<DocumentSnapshot> docs = snapshot.getDocuments();
+                    hasMore = docs.size() == pageSize;
+                    if (!docs.isEmpty()) {
+                        lastVisible = docs.get(docs.size() - 1);
+                    }
+
+                    List<BookingRequest> page = new ArrayList<>();
+                    for (DocumentSnapshot doc : docs) {
+                        if (!seenIds.add(doc.getId())) continue;
+
+                        BookingRequest request = toRequest(doc);
+                        if (request != null) page.add(request);
+                    }
+
+                    Log.d(TAG, "Loaded " + page.size() + " bookings, more: " + hasMore);
+                    listener.onPageLoaded(page, hasMore);
+                })
+                .addOnFailureListener(e -> {
+                    loading = false;
+                    Log.e(TAG, "Error loading bookings", e);
+                    listener.onError(e);
+                });
+    }
+
+    /**
+     * True for the copy stored under rooms/{roomId}/bookings.
+     */
+    private static boolean isRoomCopy(DocumentSnapshot doc) {
+        DocumentReference parent = doc.getReference().getParent().getParent();
+        return parent != null && "rooms".equals(parent.getParent().getId());
+    }
+
+    /**
+     * @return The booking, or null when the document has no userId or roomId
+     */
+    @Nullable
+    public static BookingRequest toRequest(DocumentSnapshot doc) {
+        String userId = doc.getString("userId");
+        if (userId == null || userId.isEmpty()) {
+            Log.e(TAG, "Booking missing userId: " + doc.getId());
+            return null;
+        }
+
+        BookingRequest request = new BookingRequest();
+        request.setId(doc.getId());
+        request.setUserId(userId);
+
+        String roomId = doc.getString("roomId");
+        if ((roomId == null || roomId.isEmpty()) && isRoomCopy(doc)) {
+            roomId = doc.getReference().getParent().getParent().getId();
+        }
+        if (roomId == null || roomId.isEmpty()) {
+            Log.e(TAG, "Booking missing roomId: " + doc.getId());
+            return null;
+        }
+        request.setRoomId(roomId);
+
+        String roomTitle = doc.getString("roomTitle");
+        if (roomTitle != null && !roomTitle.isEmpty()) {
+            request.setRoomTitle(roomTitle);
+        }
+
+        // Name is written with the booking; phone is filled in later from the profile
+        request.setUserName(doc.getString("userName"));
+
+        String status = doc.getString("status");
+        request.setStatus(status != null ? status : "pending");
+
+        Long timestamp = doc.getLong("timestamp");
+        request.setTimestamp(timestamp != null ? timestamp : System.currentTimeMillis());
+
+        String bookingDate = doc.getString("bookingDate");
+        request.setBookingDate(bookingDate != null ? bookingDate : "");
+
+        Long checkIn = doc.getLong("checkIn");
+        Long checkOut = doc.getLong("checkOut");
+        request.setCheckIn(checkIn != null ? checkIn : 0);
+        request.setCheckOut(checkOut != null ? checkOut : 0);
+        return request;
+    }
+}
@@ -1,34 +1,26 @@
 package com.app.roomify;
 
+import androidx.lifecycle.LifecycleOwner;
+
 import com.google.firebase.firestore.DocumentChange;
-import com.google.firebase.firestore.FirebaseFirestore;
 
 public class BookingListener {
 
-    // Listen for new booking requests for owner's rooms
-    public static void listenForNewBookings(String ownerId, OnNewBookingListener listener) {
-        FirebaseFirestore.getInstance()
-                .collection("rooms")
-                .whereEqualTo("postedBy", ownerId)
-                .addSnapshotListener((snapshots, error) -> {
-                    if (error != null) return;
+    // Listen for new booking requests for owner's rooms, one listener for all rooms.
+    // Lives as long as the owner screen is started; the registry detaches it on stop.
+    public static ListenerRegistry.Subscription listenForNewBookings(LifecycleOwner lifecycleOwner, String ownerId,
+                                                                     OnNewBookingListener listener) {
+        return ListenerRegistry.getInstance().listen(lifecycleOwner, BookingInbox.query(ownerId, "pending"),
+                (snapshots, fullState) -> {
+                    // A full-state snapshot lists what was already pending, not new requests
+                    if (fullState) return;
 
                     for (DocumentChange change : snapshots.getDocumentChanges()) {
-                        if (change.getType() == DocumentChange.Type.ADDED) {
-                            String roomId = change.getDocument().getId();
+                        if (change.getType() != DocumentChange.Type.ADDED) continue;
 
-                            // Listen to bookings subcollection
-                            change.getDocument().getReference()
-                                    .collection("bookings")
-                                    .whereEqualTo("status", "pending")
-                                    .addSnapshotListener((bookingSnapshots, bookingError) -> {
-                                        for (DocumentChange bookingChange : bookingSnapshots.getDocumentChanges()) {
-                                            if (bookingChange.getType() == DocumentChange.Type.ADDED) {
-                                                BookingRequest request = bookingChange.getDocument().toObject(BookingRequest.class);
-                                                listener.onNewBooking(request);
-                                            }
-                                        }
-                                    });
+                        BookingRequest request = BookingInbox.toRequest(change.getDocument());
+                        if (request != null) {
+                            listener.onNewBooking(request);
                         }
                     }
                 });
@@ -12,6 +12,9 @@ public class BookingRequest {
     private String status; // pending, approved, rejected, cancelled
     private long timestamp;
     private String bookingDate;
+    // Stay as [checkIn, checkOut) in epoch millis (UTC midnight), 0 when not chosen
+    private long checkIn;
+    private long checkOut;
 
     // Empty constructor for Firestore
     public BookingRequest() {}
@@ -71,6 +74,10 @@ public class BookingRequest {
         return roomTitle != null ? roomTitle : "Unknown Room";
     }
 
+    public boolean hasRoomTitle() {
+        return roomTitle != null && !roomTitle.isEmpty();
+    }
+
     public void setRoomTitle(String roomTitle) {
         this.roomTitle = roomTitle;
     }
@@ -99,6 +106,27 @@ public class BookingRequest {
         this.bookingDate = bookingDate;
     }
 
+    public long getCheckIn() {
+        return checkIn;
+    }
+
+    public void setCheckIn(long checkIn) {
+        this.checkIn = checkIn;
+    }
+
+    public long getCheckOut() {
+        return checkOut;
+    }
+
+    public void setCheckOut(long checkOut) {
+        this.checkOut = checkOut;
+    }
+
+    // Bookings made before stays had dates have none
+    public boolean hasStayDates() {
+        return checkIn > 0 && checkOut > checkIn;
+    }
+
     // Helper method to check if booking is pending
     public boolean isPending() {
         return "pending".equalsIgnoreCase(status);
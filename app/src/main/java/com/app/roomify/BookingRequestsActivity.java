@@ -12,16 +12,13 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.google.android.gms.tasks.OnCompleteListener;
-import com.google.android.gms.tasks.Task;
+import com.google.android.material.tabs.TabLayout;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QuerySnapshot;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -29,6 +26,12 @@ public class BookingRequestsActivity extends AppCompatActivity {
 
     private static final String TAG = "BookingRequests";
 
+    private static final String TAB_ALL = "all";
+    private static final String[] STATUS_TABS = {TAB_ALL, "pending", "approved", "rejected"};
+
+    // Rows left below the last visible one when the next page is requested
+    private static final int PREFETCH_DISTANCE = 5;
+
     private RecyclerView recyclerView;
     private BookingAdapter adapter;
     private ProgressBar progressBar;
@@ -37,6 +40,17 @@ public class BookingRequestsActivity extends AppCompatActivity {
 
     private String currentUserId;
     private String userRole;
+    private TabLayout tabLayout;
+    private LinearLayoutManager layoutManager;
+
+    // Each status tab pages independently and keeps what it has loaded
+    private final Map<String, BookingInbox> tabInboxes = new HashMap<>();
+    private final Map<String, List<BookingRequest>> tabRows = new HashMap<>();
+    private String currentTab = TAB_ALL;
+
+    // Status each booking had before this screen changed it, restored if the change is dropped
+    private final Map<String, String> statusBeforeChange = new HashMap<>();
+
     private FirebaseFirestore db;
     private FirebaseAuth mAuth;
 
@@ -53,6 +67,7 @@ public class BookingRequestsActivity extends AppCompatActivity {
         recyclerView = findViewById(R.id.recyclerView);
         progressBar = findViewById(R.id.progressBar);
         tvNoRequests = findViewById(R.id.tvNoRequests);
+        tabLayout = findViewById(R.id.tabLayout);
 
         // Add error message TextView to layout if not present
         tvErrorMessage = findViewById(R.id.tvErrorMessage);
@@ -80,110 +95,179 @@ public class BookingRequestsActivity extends AppCompatActivity {
             return;
         }
 
+        setupTabs();
         setupRecyclerView();
 
-        // Load booking requests
-        loadBookingRequests();
+        // Load the first page of the "All" tab
+        showTab(TAB_ALL);
+    }
+
+    private void setupTabs() {
+        tabLayout.addTab(tabLayout.newTab().setText("All"));
+        for (int i = 1; i < STATUS_TABS.length; i++) {
+            String status = STATUS_TABS[i];
+            tabLayout.addTab(tabLayout.newTab().setText(
+                    Character.toUpperCase(status.charAt(0)) + status.substring(1)));
+        }
+
+        tabLayout.addOnTabSelectedListener(new TabLayout.OnTabSelectedListener() {
+            @Override
+            public void onTabSelected(TabLayout.Tab tab) {
+                showTab(STATUS_TABS[tab.getPosition()]);
+            }
+
+            @Override
+            public void onTabUnselected(TabLayout.Tab tab) {
+            }
+
+            @Override
+            public void onTabReselected(TabLayout.Tab tab) {
+            }
+        });
     }
 
     private void setupRecyclerView() {
         adapter = new BookingAdapter(new ArrayList<>(), this::onBookingAction);
-        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        layoutManager = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(layoutManager);
         recyclerView.setAdapter(adapter);
+
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0) maybeLoadMore();
+            }
+        });
     }
 
-    private void loadBookingRequests() {
-        progressBar.setVisibility(View.VISIBLE);
+    // Show a tab's rows and keep paging from where that tab left off
+    private void showTab(String tabKey) {
+        currentTab = tabKey;
         tvNoRequests.setVisibility(View.GONE);
-
         if (tvErrorMessage != null) {
             tvErrorMessage.setVisibility(View.GONE);
         }
 
-        if ("owner".equals(userRole)) {
-            loadOwnerRequests();
+        List<BookingRequest> rows = tabRows.get(tabKey);
+        if (rows == null) {
+            rows = new ArrayList<>();
+            tabRows.put(tabKey, rows);
+
+            String status = TAB_ALL.equals(tabKey) ? null : tabKey;
+            tabInboxes.put(tabKey, "owner".equals(userRole)
+                    ? BookingInbox.forOwner(currentUserId, status)
+                    : BookingInbox.forTenant(currentUserId, status));
+        }
+
+        adapter.setRequests(rows);
+        progressBar.setVisibility(View.GONE);
+
+        BookingInbox inbox = tabInboxes.get(tabKey);
+        if (!rows.isEmpty()) {
+            maybeLoadMore();
+        } else if (inbox.hasMore()) {
+            progressBar.setVisibility(View.VISIBLE);
+            loadNextPage(tabKey);
         } else {
-            loadUserRequests();
+            showEmptyState();
         }
     }
 
-    private void loadUserRequests() {
-        Log.d(TAG, "Loading user requests for: " + currentUserId);
+    private void showEmptyState() {
+        tvNoRequests.setVisibility(View.VISIBLE);
+        tvNoRequests.setText("owner".equals(userRole)
+                ? "No booking requests for your rooms"
+                : "No booking requests found");
+    }
 
-        // Query user's bookings from users/{userId}/bookings
-        db.collection("users")
-                .document(currentUserId)
-                .collection("bookings")
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .get()
-                .addOnCompleteListener(task -> {
-                    progressBar.setVisibility(View.GONE);
-
-                    if (task.isSuccessful()) {
-                        List<BookingRequest> requests = new ArrayList<>();
-                        QuerySnapshot snapshot = task.getResult();
-
-                        Log.d(TAG, "Found " + snapshot.size() + " bookings for user");
-
-                        for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                            BookingRequest request = doc.toObject(BookingRequest.class);
-                            if (request != null) {
-                                request.setId(doc.getId());
-
-                                // Ensure all required fields are set
-                                if (request.getRoomId() == null || request.getRoomId().isEmpty()) {
-                                    String roomIdFromDoc = doc.getString("roomId");
-                                    if (roomIdFromDoc != null) {
-                                        request.setRoomId(roomIdFromDoc);
-                                    } else {
-                                        Log.e(TAG, "Booking missing roomId: " + doc.getId());
-                                        continue; // Skip this booking
-                                    }
-                                }
-
-                                if (request.getRoomTitle() == null || request.getRoomTitle().isEmpty()) {
-                                    request.setRoomTitle("Loading...");
-                                    // Try to fetch room title
-                                    fetchRoomTitle(request);
-                                }
-
-                                if (request.getStatus() == null || request.getStatus().isEmpty()) {
-                                    request.setStatus("pending");
-                                }
-
-                                if (request.getTimestamp() == 0) {
-                                    Long timestamp = doc.getLong("timestamp");
-                                    if (timestamp != null) {
-                                        request.setTimestamp(timestamp);
-                                    } else {
-                                        request.setTimestamp(System.currentTimeMillis());
-                                    }
-                                }
-
-                                requests.add(request);
-                                Log.d(TAG, "Added booking: " + request.getId() +
-                                        " - Room: " + request.getRoomTitle() +
-                                        " - Status: " + request.getStatus());
-                            } else {
-                                Log.w(TAG, "Failed to convert document to BookingRequest: " + doc.getId());
-                            }
-                        }
+    // Prefetch the next page while a few rows are still left to scroll
+    private void maybeLoadMore() {
+        BookingInbox inbox = tabInboxes.get(currentTab);
+        if (inbox == null || !inbox.hasMore() || inbox.isLoading()) return;
+        if (layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+            loadNextPage(currentTab);
+        }
+    }
 
-                        adapter.setRequests(requests);
+    private void loadNextPage(String tabKey) {
+        BookingInbox inbox = tabInboxes.get(tabKey);
+        if (inbox == null) return;
+
+        inbox.loadNextPage(new BookingInbox.OnPageLoadedListener() {
+            @Override
+            public void onPageLoaded(List<BookingRequest> page, boolean hasMore) {
+                applyPendingStatuses(page);
+                keepTabRows(tabKey, page);
+                tabRows.get(tabKey).addAll(page);
+                // Another tab is showing, its rows are kept for when it comes back
+                if (!tabKey.equals(currentTab)) return;
+
+                progressBar.setVisibility(View.GONE);
+                for (BookingRequest request : page) {
+                    adapter.addRequest(request);
+                    if ("owner".equals(userRole)) {
+                        fetchUserDetails(request);
+                    } else if (!request.hasRoomTitle()) {
+                        fetchRoomTitle(request);
+                    }
+                }
+
+                if (adapter.getItemCount() == 0) {
+                    showEmptyState();
+                } else {
+                    // A short first page may not fill the screen, so no scroll would follow
+                    recyclerView.post(BookingRequestsActivity.this::maybeLoadMore);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (!tabKey.equals(currentTab)) return;
+                progressBar.setVisibility(View.GONE);
+                Toast.makeText(BookingRequestsActivity.this,
+                        "Error loading bookings: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                if (adapter.getItemCount() == 0) {
+                    tvNoRequests.setVisibility(View.VISIBLE);
+                    tvNoRequests.setText("Error loading bookings");
+                }
+            }
+        });
+    }
 
-                        if (requests.isEmpty()) {
-                            tvNoRequests.setVisibility(View.VISIBLE);
-                            tvNoRequests.setText("No booking requests found");
-                        }
+    // Status changes still queued in the outbox are newer than what the server returned
+    private void applyPendingStatuses(List<BookingRequest> page) {
+        WriteOutbox outbox = WriteOutbox.getInstance(this);
+        for (int i = page.size() - 1; i >= 0; i--) {
+            BookingRequest request = page.get(i);
+            String status = outbox.getPendingStatus(request.getId());
+            if (status == null) continue;
+            if ("cancelled".equals(status)) {
+                page.remove(i);
+            } else {
+                request.setStatus(status);
+            }
+        }
+    }
 
-                    } else {
-                        Log.e(TAG, "Error loading user bookings", task.getException());
-                        Toast.makeText(this, "Error loading bookings: " +
-                                task.getException().getMessage(), Toast.LENGTH_LONG).show();
-                        tvNoRequests.setVisibility(View.VISIBLE);
-                        tvNoRequests.setText("Error loading bookings");
-                    }
-                });
+    // Rows already moved into the tab, or changed here to another status, aren't added again
+    private void keepTabRows(String tabKey, List<BookingRequest> page) {
+        List<BookingRequest> rows = tabRows.get(tabKey);
+        for (int i = page.size() - 1; i >= 0; i--) {
+            BookingRequest request = page.get(i);
+            boolean otherStatus = !TAB_ALL.equals(tabKey) && !tabKey.equals(request.getStatus());
+            if (otherStatus || indexOf(rows, request.getId()) != -1) page.remove(i);
+        }
+    }
+
+    // Keep cancelled or deleted bookings from reappearing when switching tabs
+    private void removeFromTabs(BookingRequest request) {
+        for (List<BookingRequest> rows : tabRows.values()) {
+            for (int i = rows.size() - 1; i >= 0; i--) {
+                if (rows.get(i).getId().equals(request.getId())) {
+                    rows.remove(i);
+                }
+            }
+        }
     }
 
     private void fetchRoomTitle(BookingRequest request) {
@@ -208,153 +292,24 @@ public class BookingRequestsActivity extends AppCompatActivity {
                 });
     }
 
-    private void loadOwnerRequests() {
-        Log.d(TAG, "Loading owner requests for: " + currentUserId);
-
-        // First, get all rooms owned by this user
-        db.collection("rooms")
-                .whereEqualTo("postedBy", currentUserId)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        QuerySnapshot roomSnapshot = task.getResult();
-                        Log.d(TAG, "Found " + roomSnapshot.size() + " rooms owned");
-
-                        if (roomSnapshot.isEmpty()) {
-                            progressBar.setVisibility(View.GONE);
-                            tvNoRequests.setVisibility(View.VISIBLE);
-                            tvNoRequests.setText("You don't own any rooms yet");
-                            return;
-                        }
-
-                        adapter.clearRequests();
-
-                        // Process each room's bookings
-                        for (DocumentSnapshot roomDoc : roomSnapshot.getDocuments()) {
-                            String roomId = roomDoc.getId();
-                            String roomTitle = roomDoc.getString("title");
-
-                            if (roomTitle == null || roomTitle.isEmpty()) {
-                                roomTitle = "Unknown Room";
-                            }
-
-                            Log.d(TAG, "Checking bookings for room: " + roomId + " - " + roomTitle);
-
-                            // Query bookings for this room
-                            String finalRoomTitle = roomTitle;
-                            db.collection("rooms")
-                                    .document(roomId)
-                                    .collection("bookings")
-                                    .orderBy("timestamp", Query.Direction.DESCENDING)
-                                    .get()
-                                    .addOnCompleteListener(bookingTask -> {
-                                        if (bookingTask.isSuccessful()) {
-                                            QuerySnapshot bookingSnapshot = bookingTask.getResult();
-                                            Log.d(TAG, "Room " + roomId + " has " + bookingSnapshot.size() + " bookings");
-
-                                            for (DocumentSnapshot bookingDoc : bookingSnapshot.getDocuments()) {
-                                                // Try to get booking data
-                                                Map<String, Object> bookingData = bookingDoc.getData();
-                                                if (bookingData == null) {
-                                                    Log.w(TAG, "Booking data is null for: " + bookingDoc.getId());
-                                                    continue;
-                                                }
-
-                                                BookingRequest request = new BookingRequest();
-                                                request.setId(bookingDoc.getId());
-                                                request.setRoomId(roomId);
-                                                request.setRoomTitle(finalRoomTitle);
-
-                                                // Get user ID from booking
-                                                String userId = (String) bookingData.get("userId");
-                                                if (userId == null || userId.isEmpty()) {
-                                                    Log.e(TAG, "Booking missing userId: " + bookingDoc.getId());
-                                                    continue; // Skip this booking
-                                                }
-                                                request.setUserId(userId);
-
-                                                // Get status
-                                                String status = (String) bookingData.get("status");
-                                                request.setStatus(status != null ? status : "pending");
-
-                                                // Get timestamp
-                                                Long timestamp = (Long) bookingData.get("timestamp");
-                                                request.setTimestamp(timestamp != null ? timestamp : System.currentTimeMillis());
-
-                                                // Get booking date
-                                                String bookingDate = (String) bookingData.get("bookingDate");
-                                                request.setBookingDate(bookingDate != null ? bookingDate : "");
-
-                                                // Now fetch user details
-                                                fetchUserDetails(request, userId);
-                                            }
-                                        } else {
-                                            Log.e(TAG, "Error loading bookings for room: " + roomId,
-                                                    bookingTask.getException());
-                                        }
-
-                                        // Check if all rooms have been processed
-                                        adapter.notifyDataSetChanged();
-                                    });
-                        }
+    // Lookups for the same tenant are shared and batched by the cache
+    private void fetchUserDetails(BookingRequest request) {
+        UserProfileCache.getInstance().get(request.getUserId(), profile -> {
+            if (profile == null) {
+                Log.w(TAG, "User document not found for ID: " + request.getUserId());
+                return;
+            }
 
-                        // Hide progress bar after a delay
-                        new android.os.Handler().postDelayed(() -> {
-                            progressBar.setVisibility(View.GONE);
-                            if (adapter.getItemCount() == 0) {
-                                tvNoRequests.setVisibility(View.VISIBLE);
-                                tvNoRequests.setText("No booking requests for your rooms");
-                            }
-                        }, 2000);
-
-                    } else {
-                        progressBar.setVisibility(View.GONE);
-                        Exception e = task.getException();
-                        Log.e(TAG, "Error loading rooms", e);
-                        Toast.makeText(this, "Error loading rooms: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                        tvNoRequests.setVisibility(View.VISIBLE);
-                        tvNoRequests.setText("Error loading rooms");
-                    }
-                });
-    }
+            String userName = UserProfileCache.getName(profile);
+            if (userName != null) {
+                request.setUserName(userName);
+            }
 
-    private void fetchUserDetails(BookingRequest request, String userId) {
-        db.collection("users")
-                .document(userId)
-                .get()
-                .addOnSuccessListener(userDoc -> {
-                    if (userDoc.exists()) {
-                        // Get user name
-                        String userName = userDoc.getString("name");
-                        if (userName == null || userName.isEmpty()) {
-                            userName = userDoc.getString("fullName");
-                        }
-                        if (userName == null || userName.isEmpty()) {
-                            userName = "User";
-                        }
-                        request.setUserName(userName);
+            String userPhone = UserProfileCache.getPhone(profile);
+            request.setUserPhone(userPhone != null ? userPhone : "");
 
-                        // Get user phone
-                        String userPhone = userDoc.getString("phone");
-                        if (userPhone == null || userPhone.isEmpty()) {
-                            userPhone = userDoc.getString("contactPhone");
-                        }
-                        request.setUserPhone(userPhone != null ? userPhone : "");
-
-                        // Add to adapter
-                        adapter.addRequest(request);
-                        Log.d(TAG, "Added booking with user details: " + userName + " - " + request.getRoomTitle());
-                    } else {
-                        Log.w(TAG, "User document not found for ID: " + userId);
-                        request.setUserName("Unknown User");
-                        adapter.addRequest(request);
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to fetch user details", e);
-                    request.setUserName("Unknown User");
-                    adapter.addRequest(request);
-                });
+            adapter.updateRequest(request);
+        });
     }
 
     private void onBookingAction(BookingRequest request, String action) {
@@ -404,164 +359,107 @@ public class BookingRequestsActivity extends AppCompatActivity {
     }
 
     private void acceptBooking(BookingRequest request) {
-        String roomId = request.getRoomId();
-        String bookingId = request.getId();
-        String userId = request.getUserId();
-
-        Log.d(TAG, "Accepting booking - Room: " + roomId + ", Booking: " + bookingId + ", User: " + userId);
-
-        // Update in ROOM bookings collection
-        db.collection("rooms")
-                .document(roomId)
-                .collection("bookings")
-                .document(bookingId)
-                .update("status", "approved")
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "✅ Room booking status updated to approved");
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to update room booking", e);
-                });
-
-        // Update in USER bookings collection
-        db.collection("users")
-                .document(userId)
-                .collection("bookings")
-                .document(bookingId)
-                .update("status", "approved")
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "✅ User booking status updated to approved");
-                    Toast.makeText(this, "Booking accepted!", Toast.LENGTH_SHORT).show();
-                    request.setStatus("approved");
-                    adapter.notifyDataSetChanged();
-
-                    // Send notification to user
-                    sendNotificationToUser(userId, "Booking Approved",
-                            "Your booking for " + request.getRoomTitle() + " has been approved!");
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to update user booking", e);
-                    Toast.makeText(this, "Error updating user booking: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                });
+        Log.d(TAG, "Accepting booking - Room: " + request.getRoomId() + ", Booking: " + request.getId()
+                + ", User: " + request.getUserId());
+
+        // Shown right away; the outbox applies it once online and reports a clash of dates
+        watchForDrop(request);
+        WriteOutbox.getInstance(this).setBookingStatus(request, "approved", "Booking Approved",
+                "Your booking for " + request.getRoomTitle() + " has been approved!");
+        Toast.makeText(this, "Booking accepted!", Toast.LENGTH_SHORT).show();
+        moveToStatus(request, "approved");
     }
 
     private void rejectBooking(BookingRequest request) {
-        String roomId = request.getRoomId();
-        String bookingId = request.getId();
-        String userId = request.getUserId();
+        Log.d(TAG, "Rejecting booking - Room: " + request.getRoomId() + ", Booking: " + request.getId()
+                + ", User: " + request.getUserId());
+
+        watchForDrop(request);
+        WriteOutbox.getInstance(this).setBookingStatus(request, "rejected", "Booking Rejected",
+                "Your booking for " + request.getRoomTitle() + " has been rejected.");
+        Toast.makeText(this, "Booking rejected", Toast.LENGTH_SHORT).show();
+        moveToStatus(request, "rejected");
+    }
 
-        Log.d(TAG, "Rejecting booking - Room: " + roomId + ", Booking: " + bookingId + ", User: " + userId);
+    // A clash of dates or a rejected write puts the row back to what is still true
+    private void watchForDrop(BookingRequest request) {
+        String bookingId = request.getId();
+        if (statusBeforeChange.containsKey(bookingId)) return;
+        statusBeforeChange.put(bookingId, request.getStatus());
+
+        WriteOutbox outbox = WriteOutbox.getInstance(this);
+        outbox.addDropListener(this, WriteOutbox.bookingStatusTarget(bookingId), () -> {
+            // A later change of the same booking may still be queued
+            String status = outbox.getPendingStatus(bookingId);
+            if (status == null) status = statusBeforeChange.get(bookingId);
+            if (status == null || "cancelled".equals(status)) return;
+            moveToStatus(request, status);
+        });
+    }
 
-        // Update in ROOM bookings collection
-        db.collection("rooms")
-                .document(roomId)
-                .collection("bookings")
-                .document(bookingId)
-                .update("status", "rejected")
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "✅ Room booking status updated to rejected");
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, " Failed to update room booking", e);
-                });
+    // The row leaves the loaded tab of its old status and joins that of the new one; like
+    // removeFromTabs, so switching tabs shows what the owner just did
+    private void moveToStatus(BookingRequest request, String status) {
+        request.setStatus(status);
+        for (Map.Entry<String, List<BookingRequest>> tab : tabRows.entrySet()) {
+            String tabKey = tab.getKey();
+            List<BookingRequest> rows = tab.getValue();
+            boolean shown = tabKey.equals(currentTab);
+            boolean belongs = TAB_ALL.equals(tabKey) || tabKey.equals(status);
+            int index = indexOf(rows, request.getId());
+
+            if (index != -1 && belongs) {
+                rows.get(index).setStatus(status);
+                if (shown) adapter.updateRequest(rows.get(index));
+            } else if (index != -1) {
+                BookingRequest removed = rows.remove(index);
+                if (shown) adapter.removeRequest(removed);
+            } else if (belongs) {
+                // Newest first; past the loaded pages it turns up when they are loaded
+                int at = 0;
+                while (at < rows.size() && rows.get(at).getTimestamp() >= request.getTimestamp()) at++;
+                if (at == rows.size() && tabInboxes.get(tabKey).hasMore()) continue;
+                rows.add(at, request);
+                if (shown) adapter.setRequests(rows);
+            }
+        }
+        if (adapter.getItemCount() == 0) {
+            showEmptyState();
+        } else {
+            tvNoRequests.setVisibility(View.GONE);
+        }
+    }
 
-        // Update in USER bookings collection
-        db.collection("users")
-                .document(userId)
-                .collection("bookings")
-                .document(bookingId)
-                .update("status", "rejected")
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "✅ User booking status updated to rejected");
-                    Toast.makeText(this, "Booking rejected", Toast.LENGTH_SHORT).show();
-                    request.setStatus("rejected");
-                    adapter.notifyDataSetChanged();
-
-                    // Send notification to user
-                    sendNotificationToUser(userId, "Booking Rejected",
-                            "Your booking for " + request.getRoomTitle() + " has been rejected.");
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to update user booking", e);
-                    Toast.makeText(this, "Error updating user booking: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                });
+    private static int indexOf(List<BookingRequest> rows, String bookingId) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).getId().equals(bookingId)) return i;
+        }
+        return -1;
     }
 
     private void cancelBooking(BookingRequest request) {
-        String roomId = request.getRoomId();
-        String bookingId = request.getId();
-        String userId = request.getUserId();
+        Log.d(TAG, "Cancelling booking - Room: " + request.getRoomId() + ", Booking: " + request.getId()
+                + ", User: " + request.getUserId());
 
-        Log.d(TAG, "Cancelling booking - Room: " + roomId + ", Booking: " + bookingId + ", User: " + userId);
-
-        // Update in ROOM bookings collection
-        db.collection("rooms")
-                .document(roomId)
-                .collection("bookings")
-                .document(bookingId)
-                .update("status", "cancelled")
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "✅ Room booking status updated to cancelled");
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to update room booking", e);
-                });
-
-        // Update in USER bookings collection
-        db.collection("users")
-                .document(userId)
-                .collection("bookings")
-                .document(bookingId)
-                .update("status", "cancelled")
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "✅ User booking status updated to cancelled");
-                    Toast.makeText(this, "Booking cancelled", Toast.LENGTH_SHORT).show();
-                    adapter.removeRequest(request);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, " Failed to update user booking", e);
-                    Toast.makeText(this, "Error updating user booking: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                });
+        WriteOutbox.getInstance(this).setBookingStatus(request, "cancelled", null, null);
+        Toast.makeText(this, "Booking cancelled", Toast.LENGTH_SHORT).show();
+        adapter.removeRequest(request);
+        removeFromTabs(request);
     }
 
     private void deleteBooking(BookingRequest request) {
-        String roomId = request.getRoomId();
-        String bookingId = request.getId();
-        String userId = request.getUserId();
+        Log.d(TAG, "Deleting booking - Room: " + request.getRoomId() + ", Booking: " + request.getId()
+                + ", User: " + request.getUserId());
 
-        Log.d(TAG, "Deleting booking - Room: " + roomId + ", Booking: " + bookingId + ", User: " + userId);
-
-        // Delete from ROOM bookings collection
-        db.collection("rooms")
-                .document(roomId)
-                .collection("bookings")
-                .document(bookingId)
-                .delete()
+        BookingStatusCommand.delete(request)
                 .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "✅ Room booking deleted");
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to delete room booking", e);
-                });
-
-        // Delete from USER bookings collection
-        db.collection("users")
-                .document(userId)
-                .collection("bookings")
-                .document(bookingId)
-                .delete()
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "✅ User booking deleted");
                     Toast.makeText(this, "Booking deleted", Toast.LENGTH_SHORT).show();
                     adapter.removeRequest(request);
+                    removeFromTabs(request);
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to delete user booking", e);
-                    Toast.makeText(this, "Error deleting user booking: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    Log.e(TAG, "Failed to delete booking", e);
+                    Toast.makeText(this, "Error deleting booking: " + e.getMessage(), Toast.LENGTH_SHORT).show();
                 });
     }
-
-    private void sendNotificationToUser(String userId, String title, String message) {
-        FirebaseUtils.sendNotificationToUser(userId, title, message, null);
-    }
-}
\ No newline at end of file
+}
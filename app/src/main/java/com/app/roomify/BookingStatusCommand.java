@@ -0,0 +1,186 @@
+package com.app.roomify;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Changes a booking's status in one transaction: the room copy, the tenant's copy, the
+ * room's bookingsCount and bookedRanges (and its summary) and an optional tenant notification.
+ * bookingsCount counts approved bookings and is moved with FieldValue.increment. Approving
+ * a stay with dates also reads the room to refuse dates that overlap an approved stay, so
+ * a status change costs at most two reads.
+ */
+public class BookingStatusCommand {
+
+    public static final String STATUS_APPROVED = "approved";
+
+    // Idempotency key of the last status change applied to the booking
+    private static final String FIELD_LAST_OP_KEY = "lastOpKey";
+
+    /**
+     * Set the booking to the new status.
+     *
+     * @param notifyTitle Notification sent to the tenant, or null for none
+     */
+    public static Task<Void> setStatus(BookingRequest request, String status,
+                                       @Nullable String notifyTitle, @Nullable String notifyMessage) {
+        return setStatus(request, status, notifyTitle, notifyMessage, null);
+    }
+
+    /**
+     * Same, recording opKey on the booking so replaying the change (WriteOutbox retrying
+     * after a lost acknowledgement) is a no-op.
+     *
+     * @param opKey Idempotency key, or null to always apply
+     */
+    public static Task<Void> setStatus(BookingRequest request, String status,
+                                       @Nullable String notifyTitle, @Nullable String notifyMessage,
+                                       @Nullable String opKey) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        DocumentReference roomBooking = roomBookingRef(db, request);
+        DocumentReference userBooking = userBookingRef(db, request);
+
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot current = transaction.get(roomBooking);
+            if (!current.exists()) {
+                throw new FirebaseFirestoreException("This booking no longer exists",
+                        FirebaseFirestoreException.Code.NOT_FOUND);
+            }
+            if (opKey != null && opKey.equals(current.getString(FIELD_LAST_OP_KEY))) return null;
+            int delta = countDelta(current.getString("status"), status);
+            // Stays with dates also move the room's booked ranges (reads go before writes)
+            DocumentSnapshot room = delta != 0 && hasStayDates(current)
+                    ? transaction.get(roomRef(db, request)) : null;
+
+            Map<String, Object> update = new HashMap<>();
+            update.put("status", status);
+            if (opKey != null) update.put(FIELD_LAST_OP_KEY, opKey);
+            transaction.update(roomBooking, update);
+            // Merge so bookings made before the user copy existed don't fail the transaction
+            transaction.set(userBooking, update, SetOptions.merge());
+
+            if (delta != 0) {
+                updateRoom(db, transaction, request, current, room, delta);
+            }
+            if (notifyTitle != null) {
+                FirebaseUtils.addNotification(transaction, request.getUserId(), notifyTitle,
+                        notifyMessage, request.getId());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Delete both copies of the booking, giving back its slot in bookingsCount if approved.
+     */
+    public static Task<Void> delete(BookingRequest request) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        DocumentReference roomBooking = roomBookingRef(db, request);
+        DocumentReference userBooking = userBookingRef(db, request);
+
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot current = transaction.get(roomBooking);
+            int delta = current.exists() ? countDelta(current.getString("status"), null) : 0;
+            DocumentSnapshot room = delta != 0 && hasStayDates(current)
+                    ? transaction.get(roomRef(db, request)) : null;
+
+            transaction.delete(roomBooking);
+            transaction.delete(userBooking);
+            if (delta != 0) {
+                updateRoom(db, transaction, request, current, room, delta);
+            }
+            return null;
+        });
+    }
+
+    private static int countDelta(@Nullable String oldStatus, @Nullable String newStatus) {
+        int before = STATUS_APPROVED.equals(oldStatus) ? 1 : 0;
+        int after = STATUS_APPROVED.equals(newStatus) ? 1 : 0;
+        return after - before;
+    }
+
+    private static boolean hasStayDates(DocumentSnapshot booking) {
+        Long checkIn = booking.getLong("checkIn");
+        Long checkOut = booking.getLong("checkOut");
+        return checkIn != null && checkOut != null && checkOut > checkIn;
+    }
+
+    /**
+     * @param room The room, read in this transaction, or null when the booking has no dates
+     */
+    private static void updateRoom(FirebaseFirestore db, Transaction transaction, BookingRequest request,
+                                   DocumentSnapshot booking, @Nullable DocumentSnapshot room, int delta)
+            throws FirebaseFirestoreException {
+        Map<String, Object> update = new HashMap<>();
+        update.put("bookingsCount", FieldValue.increment(delta));
+        if (room != null) {
+            update.put(RoomAvailability.FIELD_BOOKED_RANGES, bookedRangesAfter(room, booking, delta > 0));
+        }
+        transaction.update(roomRef(db, request), RoomChanges.stamp(new HashMap<>(update)));
+        transaction.set(RoomSummaries.document(request.getRoomId()), update, SetOptions.merge());
+    }
+
+    // The room's ranges without this booking and without finished stays, plus the booking
+    // if it is being approved; refuses dates that overlap another approved stay
+    private static List<Map<String, Object>> bookedRangesAfter(DocumentSnapshot room, DocumentSnapshot booking,
+                                                               boolean approving) throws FirebaseFirestoreException {
+        long cutoff = System.currentTimeMillis() - RoomAvailability.DAY_MS;
+        List<Map<String, Object>> ranges = new ArrayList<>();
+        DateRangeIndex others = new DateRangeIndex();
+
+        Object stored = room.get(RoomAvailability.FIELD_BOOKED_RANGES);
+        if (stored instanceof List) {
+            for (Object item : (List<?>) stored) {
+                if (!(item instanceof Map)) continue;
+                Map<?, ?> range = (Map<?, ?>) item;
+                Object checkIn = range.get("checkIn");
+                Object checkOut = range.get("checkOut");
+                if (!(checkIn instanceof Number) || !(checkOut instanceof Number)) continue;
+                if (booking.getId().equals(range.get("bookingId"))) continue;
+                if (((Number) checkOut).longValue() < cutoff) continue;
+
+                others.add(((Number) checkIn).longValue(), ((Number) checkOut).longValue());
+                ranges.add(RoomAvailability.rangeData(String.valueOf(range.get("bookingId")),
+                        ((Number) checkIn).longValue(), ((Number) checkOut).longValue()));
+            }
+        }
+
+        if (approving) {
+            long checkIn = booking.getLong("checkIn");
+            long checkOut = booking.getLong("checkOut");
+            if (!others.isFree(checkIn, checkOut)) {
+                throw new FirebaseFirestoreException("Those dates are already booked",
+                        FirebaseFirestoreException.Code.FAILED_PRECONDITION);
+            }
+            ranges.add(RoomAvailability.rangeData(booking.getId(), checkIn, checkOut));
+        }
+        return ranges;
+    }
+
+    private static DocumentReference roomRef(FirebaseFirestore db, BookingRequest request) {
+        return db.collection("rooms").document(request.getRoomId());
+    }
+
+    private static DocumentReference roomBookingRef(FirebaseFirestore db, BookingRequest request) {
+        return db.collection("rooms").document(request.getRoomId())
+                .collection("bookings").document(request.getId());
+    }
+
+    private static DocumentReference userBookingRef(FirebaseFirestore db, BookingRequest request) {
+        return db.collection("users").document(request.getUserId())
+                .collection("bookings").document(request.getId());
+    }
+}
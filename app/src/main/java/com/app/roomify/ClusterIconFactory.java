@@ -0,0 +1,67 @@
+package com.app.roomify;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Draws the round "count" bubbles used for room clusters on both map screens.
+ * Counts are bucketed (10+, 50+, ...) so only a handful of bitmaps are ever created.
+ */
+public class ClusterIconFactory {
+
+    private static final int[] BUCKETS = {10, 20, 50, 100, 200, 500, 1000};
+
+    private static final Map<String, Bitmap> iconCache = new HashMap<>();
+
+    public static String getLabel(int count) {
+        if (count < BUCKETS[0]) return String.valueOf(count);
+        String label = BUCKETS[0] + "+";
+        for (int bucket : BUCKETS) {
+            if (count >= bucket) label = bucket + "+";
+        }
+        return label;
+    }
+
+    public static synchronized Bitmap getIcon(Context context, int count) {
+        String label = getLabel(count);
+        Bitmap icon = iconCache.get(label);
+        if (icon != null) return icon;
+
+        float density = context.getResources().getDisplayMetrics().density;
+        // Bigger clusters get slightly bigger bubbles
+        int sizeDp = count < 10 ? 36 : count < 100 ? 42 : 50;
+        int size = Math.round(sizeDp * density);
+
+        icon = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(icon);
+
+        Paint fill = new Paint(Paint.ANTI_ALIAS_FLAG);
+        fill.setColor(ContextCompat.getColor(context, R.color.user_location));
+        canvas.drawCircle(size / 2f, size / 2f, size / 2f, fill);
+
+        Paint ring = new Paint(Paint.ANTI_ALIAS_FLAG);
+        ring.setStyle(Paint.Style.STROKE);
+        ring.setStrokeWidth(3 * density);
+        ring.setColor(ContextCompat.getColor(context, R.color.white));
+        canvas.drawCircle(size / 2f, size / 2f, size / 2f - 2 * density, ring);
+
+        Paint text = new Paint(Paint.ANTI_ALIAS_FLAG);
+        text.setColor(ContextCompat.getColor(context, R.color.white));
+        text.setTextSize(13 * density);
+        text.setTypeface(Typeface.DEFAULT_BOLD);
+        text.setTextAlign(Paint.Align.CENTER);
+        float textY = size / 2f - (text.descent() + text.ascent()) / 2f;
+        canvas.drawText(label, size / 2f, textY, text);
+
+        iconCache.put(label, icon);
+        return icon;
+    }
+}
@@ -7,15 +7,22 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.Glide;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.card.MaterialCardView;
+import com.google.android.material.progressindicator.LinearProgressIndicator;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -30,6 +37,11 @@ public class DashboardActivity extends AppCompatActivity {
     private BottomNavigationView bottomNavigation;
     private View loadingOverlay;
     private ProgressBar progressBar;
+    private LinearProgressIndicator refreshIndicator;
+
+    // Showing cached data while the server snapshot is on its way
+    private boolean bookingsRefreshing, recommendationsRefreshing;
+    private List<Room> shownRecommendations;
 
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
@@ -71,6 +83,7 @@ public class DashboardActivity extends AppCompatActivity {
         bottomNavigation = findViewById(R.id.bottomNavigation);
         loadingOverlay = findViewById(R.id.loadingOverlay);
         progressBar = findViewById(R.id.progressBar);
+        refreshIndicator = findViewById(R.id.refreshIndicator);
 
         // Setup RecyclerViews
         rvRecentBookings.setLayoutManager(new LinearLayoutManager(this));
@@ -79,7 +92,7 @@ public class DashboardActivity extends AppCompatActivity {
         // ✅ INITIALIZE adapters FIRST
         rooms = new ArrayList<>();
         requests = new ArrayList<>();
-        recommendationAdapter = new RoomAdapter(rooms);
+        recommendationAdapter = new RoomAdapter(rooms, Glide.with(this));
 
         bookingAdapter = new BookingAdapter(new ArrayList<>(), (request, action) -> {
             // Handle actions here
@@ -101,6 +114,7 @@ public class DashboardActivity extends AppCompatActivity {
 
         rvRecentBookings.setAdapter(bookingAdapter);
         rvRecommendations.setAdapter(recommendationAdapter);
+        recommendationAdapter.attachPreloader(rvRecommendations);
     }
 
     private void setupFirebase() {
@@ -112,13 +126,12 @@ public class DashboardActivity extends AppCompatActivity {
         String userId = mAuth.getCurrentUser() != null ? mAuth.getCurrentUser().getUid() : null;
 
         if (userId != null) {
-            db.collection("users").document(userId).get()
-                    .addOnSuccessListener(documentSnapshot -> {
-                        if (documentSnapshot.exists()) {
-                            String name = documentSnapshot.getString("name");
-                            tvUserName.setText(name != null ? "Welcome back, " + name.split(" ")[0] : "Welcome back");
-                        }
-                    });
+            UserProfileCache.getInstance().getCacheFirst(userId, profile -> {
+                if (profile != null && profile.exists()) {
+                    String name = profile.getString("name");
+                    tvUserName.setText(name != null ? "Welcome back, " + name.split(" ")[0] : "Welcome back");
+                }
+            });
         }
 
         // Set sample stats (replace with actual data from Firestore)
@@ -186,49 +199,62 @@ public class DashboardActivity extends AppCompatActivity {
 
         showLoading(true);
 
-        db.collection("users")
+        Query query = db.collection("users")
                 .document(userId)
                 .collection("bookings")
-                .orderBy("timestamp", com.google.firebase.firestore.Query.Direction.DESCENDING)
-                .limit(3)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    showLoading(false);
-                    List<BookingRequest> bookings = new ArrayList<>();
-
-                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        BookingRequest booking = document.toObject(BookingRequest.class);
-                        booking.setId(document.getId());
-                        bookings.add(booking);
-                    }
-
-                    bookingAdapter.setRequests(bookings);
-                })
-                .addOnFailureListener(e -> {
-                    showLoading(false);
-                    Toast.makeText(this, "Error loading bookings: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                });
+                .orderBy("timestamp", Query.Direction.DESCENDING)
+                .limit(3);
+
+        // Cached bookings show straight away, the server snapshot follows
+        ListenerRegistry.getInstance().listen(this, query, MetadataChanges.INCLUDE, new ListenerRegistry.SnapshotListener() {
+            @Override
+            public void onSnapshot(@NonNull QuerySnapshot snapshot, boolean fullState) {
+                showLoading(false);
+                bookingsRefreshing = snapshot.getMetadata().isFromCache();
+                updateRefreshIndicator();
+                // Metadata-only update, e.g. the server confirming the cached copy
+                if (!fullState && snapshot.getDocumentChanges().isEmpty()) return;
+
+                List<BookingRequest> bookings = new ArrayList<>();
+                for (QueryDocumentSnapshot document : snapshot) {
+                    BookingRequest booking = document.toObject(BookingRequest.class);
+                    booking.setId(document.getId());
+                    bookings.add(booking);
+                }
+
+                bookingAdapter.setRequests(bookings);
+            }
+
+            @Override
+            public void onError(@NonNull FirebaseFirestoreException e) {
+                showLoading(false);
+                bookingsRefreshing = false;
+                updateRefreshIndicator();
+                Toast.makeText(DashboardActivity.this, "Error loading bookings: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private void loadRecommendations() {
-        db.collection("rooms")
-                .limit(5)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    List<Room> rooms = new ArrayList<>();
-
-                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        Room room = document.toObject(Room.class);
-                        room.setId(document.getId());
-                        rooms.add(room);
-                    }
-
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(this, "Error loading recommendations: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                });
-
-        recommendationAdapter.setRooms(rooms);
+        // Cards only need the summary fields; shared with the other screens through the repository
+        RoomRepository.getInstance(this).observe(this, RoomQuery.summaries().limit(5), new RoomRepository.Observer() {
+            @Override
+            public void onRooms(@NonNull List<Room> rooms, boolean fromCache) {
+                recommendationsRefreshing = fromCache;
+                updateRefreshIndicator();
+                // Metadata-only update, e.g. the server confirming the cached copy
+                if (rooms == shownRecommendations) return;
+                shownRecommendations = rooms;
+                recommendationAdapter.setRooms(rooms);
+            }
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                recommendationsRefreshing = false;
+                updateRefreshIndicator();
+                Toast.makeText(DashboardActivity.this, "Error loading recommendations: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private void onBookingClick(BookingRequest booking) {
@@ -247,4 +273,8 @@ public class DashboardActivity extends AppCompatActivity {
         loadingOverlay.setVisibility(show ? View.VISIBLE : View.GONE);
         progressBar.setVisibility(show ? View.VISIBLE : View.GONE);
     }
+
+    private void updateRefreshIndicator() {
+        refreshIndicator.setVisibility(bookingsRefreshing || recommendationsRefreshing ? View.VISIBLE : View.GONE);
+    }
 }
\ No newline at end of file
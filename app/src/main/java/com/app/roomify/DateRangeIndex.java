@@ -0,0 +1,80 @@
+package com.app.roomify;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Booked date ranges of one room as an interval index.
+ * Ranges are half-open [checkIn, checkOut) in epoch millis, so a check-out day is free for
+ * the next check-in. Overlapping or touching ranges are merged on insert, which leaves
+ * disjoint spans sorted by start; every query is then a single floor lookup, O(log n).
+ */
+public class DateRangeIndex {
+
+    // start -> end of disjoint spans
+    private final TreeMap<Long, Long> spans = new TreeMap<>();
+
+    public void add(long start, long end) {
+        if (end <= start) return;
+
+        long lo = start;
+        long hi = end;
+
+        Map.Entry<Long, Long> before = spans.floorEntry(start);
+        if (before != null && before.getValue() >= start) {
+            lo = before.getKey();
+            hi = Math.max(hi, before.getValue());
+            spans.remove(before.getKey());
+        }
+
+        Map.Entry<Long, Long> next = spans.ceilingEntry(lo);
+        while (next != null && next.getKey() <= hi) {
+            hi = Math.max(hi, next.getValue());
+            spans.remove(next.getKey());
+            next = spans.ceilingEntry(lo);
+        }
+
+        spans.put(lo, hi);
+    }
+
+    /**
+     * @return True if nothing booked overlaps [start, end)
+     */
+    public boolean isFree(long start, long end) {
+        if (end <= start) return true;
+        // Spans are disjoint and sorted, so the last one starting before end reaches furthest
+        Map.Entry<Long, Long> last = spans.lowerEntry(end);
+        return last == null || last.getValue() <= start;
+    }
+
+    /**
+     * @return True if the instant falls inside a booked span
+     */
+    public boolean isBooked(long time) {
+        Map.Entry<Long, Long> span = spans.floorEntry(time);
+        return span != null && span.getValue() > time;
+    }
+
+    public boolean isEmpty() {
+        return spans.isEmpty();
+    }
+
+    public int size() {
+        return spans.size();
+    }
+
+    /**
+     * @return Spans as {starts, ends}, sorted by start
+     */
+    public long[][] toArrays() {
+        long[] starts = new long[spans.size()];
+        long[] ends = new long[spans.size()];
+        int i = 0;
+        for (Map.Entry<Long, Long> span : spans.entrySet()) {
+            starts[i] = span.getKey();
+            ends[i] = span.getValue();
+            i++;
+        }
+        return new long[][]{starts, ends};
+    }
+}
@@ -0,0 +1,456 @@
+package com.app.roomify;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Environment;
+import android.provider.MediaStore;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.core.content.ContextCompat;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+
+/**
+ * Downloads contracts and videos into a content-addressed store under filesDir/downloads.
+ *
+ * Finished files are named by the SHA-256 of their bytes and an index maps each URL to its
+ * file, so opening the same contract again never touches the network. Interrupted downloads
+ * keep their partial file and continue with an HTTP Range request, and callers asking for a
+ * URL that is already downloading join that download instead of starting another one.
+ */
+public class DownloadEngine {
+
+    public interface Listener {
+        /**
+         * @param bytesTotal -1 while the size is unknown
+         */
+        void onProgress(long bytesDone, long bytesTotal);
+
+        void onComplete(File file);
+
+        void onError(Exception e);
+    }
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    // Firebase Storage sends "x-goog-hash: crc32c=...,md5=..." for the whole object
+    private static final String HEADER_GOOG_HASH = "x-goog-hash";
+
+    private static DownloadEngine instance;
+
+    private final OkHttpClient client;
+    private final File blobDir;
+    private final File partialDir;
+    private final File indexDir;
+    private final ExecutorService ioExecutor;
+    private final Executor callbackExecutor;
+    private final Map<String, Download> inFlight = new HashMap<>();
+    // A canceled download may still be unwinding while its replacement starts on the same partial
+    private final Map<String, Object> partialLocks = new ConcurrentHashMap<>();
+
+    public static synchronized DownloadEngine getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new DownloadEngine(new OkHttpClient(), new File(appContext.getFilesDir(), "downloads"),
+                    Executors.newFixedThreadPool(2), ContextCompat.getMainExecutor(appContext));
+        }
+        return instance;
+    }
+
+    // Listeners are called on callbackExecutor; tests pass a direct executor and a local server
+    DownloadEngine(OkHttpClient client, File dir, ExecutorService ioExecutor, Executor callbackExecutor) {
+        this.client = client;
+        this.blobDir = new File(dir, "blobs");
+        this.partialDir = new File(dir, "partial");
+        this.indexDir = new File(dir, "index");
+        this.ioExecutor = ioExecutor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * @return The downloaded file for this URL, or null if it has not been downloaded yet
+     */
+    @Nullable
+    public File getCached(String url) {
+        File indexFile = new File(indexDir, sha256Hex(url));
+        if (!indexFile.isFile()) return null;
+        try {
+            File blob = new File(blobDir, readText(indexFile));
+            return blob.isFile() ? blob : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Download the URL, or hand back the stored file right away if it was downloaded before.
+     */
+    public synchronized void download(String url, Listener listener) {
+        File cached = getCached(url);
+        if (cached != null) {
+            callbackExecutor.execute(() -> listener.onComplete(cached));
+            return;
+        }
+
+        Download running = inFlight.get(url);
+        if (running == null) {
+            running = new Download(url);
+            inFlight.put(url, running);
+            ioExecutor.execute(running);
+        }
+        running.addListener(listener);
+    }
+
+    /**
+     * Stop reporting to this listener. The download stops once nobody is listening; its partial
+     * file is kept, so the next request for the URL resumes where it left off.
+     */
+    public synchronized void cancel(String url, Listener listener) {
+        Download running = inFlight.get(url);
+        if (running == null) return;
+        running.listeners.remove(listener);
+        if (running.listeners.isEmpty()) {
+            inFlight.remove(url);
+            running.cancel();
+        }
+    }
+
+    /**
+     * Copy a downloaded file out of the store into a public folder, e.g. Downloads. From API 29
+     * this goes through MediaStore and needs no permission; below that the caller must hold
+     * WRITE_EXTERNAL_STORAGE. Reports through onComplete, with the stored file, or onError.
+     *
+     * @param directoryType Environment.DIRECTORY_DOWNLOADS or DIRECTORY_PICTURES
+     */
+    public void export(Context context, File file, String directoryType, String name, String mimeType,
+                       Listener listener) {
+        ContentResolver resolver = context.getApplicationContext().getContentResolver();
+        ioExecutor.execute(() -> {
+            try {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                    exportToMediaStore(resolver, file, directoryType, name, mimeType);
+                } else {
+                    File dir = Environment.getExternalStoragePublicDirectory(directoryType);
+                    if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+                    try (InputStream in = new FileInputStream(file);
+                         OutputStream out = new FileOutputStream(new File(dir, name))) {
+                        copy(in, out);
+                    }
+                }
+                callbackExecutor.execute(() -> listener.onComplete(file));
+            } catch (IOException | RuntimeException e) {
+                callbackExecutor.execute(() -> listener.onError(e));
+            }
+        });
+    }
+
+    // Written as pending so no other app sees a half-copied file, removed again on failure
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private static void exportToMediaStore(ContentResolver resolver, File file, String directoryType,
+                                           String name, String mimeType) throws IOException {
+        Uri collection = Environment.DIRECTORY_PICTURES.equals(directoryType)
+                ? MediaStore.Images.Media.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY)
+                : MediaStore.Downloads.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY);
+        ContentValues values = new ContentValues();
+        values.put(MediaStore.MediaColumns.DISPLAY_NAME, name);
+        values.put(MediaStore.MediaColumns.MIME_TYPE, mimeType);
+        values.put(MediaStore.MediaColumns.RELATIVE_PATH, directoryType);
+        values.put(MediaStore.MediaColumns.IS_PENDING, 1);
+
+        Uri item = resolver.insert(collection, values);
+        if (item == null) throw new IOException("Cannot create " + name + " in " + directoryType);
+        try {
+            try (InputStream in = new FileInputStream(file);
+                 OutputStream out = resolver.openOutputStream(item)) {
+                if (out == null) throw new IOException("Cannot write " + item);
+                copy(in, out);
+            }
+            values.clear();
+            values.put(MediaStore.MediaColumns.IS_PENDING, 0);
+            resolver.update(item, values, null, null);
+        } catch (IOException | RuntimeException e) {
+            resolver.delete(item, null, null);
+            throw e;
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_BYTES];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    private File fetch(Download download) throws IOException {
+        String key = sha256Hex(download.url);
+        synchronized (partialLocks.computeIfAbsent(key, k -> new Object())) {
+            return fetch(download, key);
+        }
+    }
+
+    private File fetch(Download download, String key) throws IOException {
+        File partial = new File(partialDir, key);
+        File etagFile = new File(partialDir, key + ".etag");
+        mkdirs(partialDir);
+
+        long offset = partial.length();
+        String etag = offset > 0 && etagFile.isFile() ? readText(etagFile) : null;
+        // Without a validator the server could hand back a different file's tail
+        if (etag == null) offset = 0;
+
+        Request.Builder request = new Request.Builder().url(download.url);
+        if (offset > 0) {
+            request.header("Range", "bytes=" + offset + "-").header("If-Range", etag);
+        }
+
+        Call call = client.newCall(request.build());
+        if (!download.setCall(call)) throw new IOException("Canceled");
+
+        try (Response response = call.execute()) {
+            if (response.code() == 416 && offset > 0) {
+                // The partial no longer matches the remote file, start over
+                delete(partial);
+                delete(etagFile);
+                return fetch(download, key);
+            }
+            if (!response.isSuccessful()) throw new IOException("HTTP " + response.code());
+
+            // A 200 to a Range request means the file changed, so the partial is discarded
+            boolean resumed = offset > 0 && response.code() == 206;
+            if (!resumed) offset = 0;
+
+            String newEtag = response.header("ETag");
+            if (newEtag != null) {
+                writeText(etagFile, newEtag);
+            } else {
+                delete(etagFile);
+            }
+
+            ResponseBody body = response.body();
+            long length = body.contentLength();
+            long total = length < 0 ? -1 : offset + length;
+
+            MessageDigest sha256 = digest("SHA-256");
+            String expectedMd5 = parseMd5(response.header(HEADER_GOOG_HASH));
+            MessageDigest md5 = expectedMd5 != null ? digest("MD5") : null;
+            if (resumed) hashFile(partial, sha256, md5);
+
+            long done = offset;
+            download.progress(done, total);
+            BufferedSource source = body.source();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+            try (FileChannel out = new FileOutputStream(partial, resumed).getChannel()) {
+                while (fill(source, buffer)) {
+                    buffer.flip();
+                    sha256.update(buffer.array(), 0, buffer.limit());
+                    if (md5 != null) md5.update(buffer.array(), 0, buffer.limit());
+                    done += buffer.limit();
+                    while (buffer.hasRemaining()) out.write(buffer);
+                    buffer.clear();
+                    download.progress(done, total);
+                }
+            }
+
+            if (total >= 0 && done != total) throw new IOException("Expected " + total + " bytes, got " + done);
+            if (md5 != null && !expectedMd5.equals(ByteString.of(md5.digest()).base64())) {
+                delete(partial);
+                delete(etagFile);
+                throw new IOException("Checksum mismatch for " + download.url);
+            }
+
+            String hash = ByteString.of(sha256.digest()).hex();
+            mkdirs(blobDir);
+            File blob = new File(blobDir, hash);
+            if (blob.isFile()) {
+                // Same bytes already stored under another URL
+                delete(partial);
+            } else if (!partial.renameTo(blob)) {
+                throw new IOException("Cannot move download into " + blob);
+            }
+            delete(etagFile);
+
+            mkdirs(indexDir);
+            writeText(new File(indexDir, key), hash);
+            return blob;
+        }
+    }
+
+    private void finish(Download download, @Nullable File file, @Nullable IOException error) {
+        List<Listener> listeners;
+        synchronized (this) {
+            // Canceled downloads were already removed, and may have been replaced by a new one
+            if (inFlight.get(download.url) != download) return;
+            inFlight.remove(download.url);
+            listeners = new ArrayList<>(download.listeners);
+        }
+        callbackExecutor.execute(() -> {
+            for (Listener listener : listeners) {
+                if (file != null) {
+                    listener.onComplete(file);
+                } else {
+                    listener.onError(error);
+                }
+            }
+        });
+    }
+
+    // Reads until the buffer is full or the body ends; false once nothing more was read
+    private static boolean fill(BufferedSource source, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (source.read(buffer) == -1) break;
+        }
+        return buffer.position() > 0;
+    }
+
+    private static void hashFile(File file, MessageDigest sha256, @Nullable MessageDigest md5) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        try (FileChannel in = new FileInputStream(file).getChannel()) {
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                sha256.update(buffer.array(), 0, buffer.limit());
+                if (md5 != null) md5.update(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+            }
+        }
+    }
+
+    @Nullable
+    private static String parseMd5(@Nullable String googHash) {
+        if (googHash == null) return null;
+        for (String part : googHash.split(",")) {
+            String trimmed = part.trim();
+            if (trimmed.startsWith("md5=")) return trimmed.substring(4);
+        }
+        return null;
+    }
+
+    static String sha256Hex(String value) {
+        return ByteString.encodeUtf8(value).sha256().hex();
+    }
+
+    private static MessageDigest digest(String algorithm) throws IOException {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(algorithm + " unavailable", e);
+        }
+    }
+
+    private static String readText(File file) throws IOException {
+        try (BufferedSource source = Okio.buffer(Okio.source(file))) {
+            return source.readUtf8().trim();
+        }
+    }
+
+    private static void writeText(File file, String text) throws IOException {
+        try (BufferedSink sink = Okio.buffer(Okio.sink(file))) {
+            sink.writeUtf8(text);
+        }
+    }
+
+    private static void mkdirs(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+    }
+
+    private static void delete(File file) {
+        if (file.exists()) file.delete();
+    }
+
+    /**
+     * One network download shared by every caller asking for the same URL.
+     */
+    private class Download implements Runnable {
+        private static final long PROGRESS_STEP = 64 * 1024;
+
+        final String url;
+        final List<Listener> listeners = new ArrayList<>();
+        private Call call;
+        private boolean canceled;
+        private long lastDone = -1;
+        private long lastTotal = -1;
+        private long lastReported = -1;
+
+        Download(String url) {
+            this.url = url;
+        }
+
+        @Override
+        public void run() {
+            try {
+                finish(this, fetch(this), null);
+            } catch (IOException e) {
+                finish(this, null, e);
+            }
+        }
+
+        // Called under the engine lock; late joiners get the progress so far straight away
+        void addListener(Listener listener) {
+            listeners.add(listener);
+            if (lastDone >= 0) {
+                long done = lastDone;
+                long total = lastTotal;
+                callbackExecutor.execute(() -> listener.onProgress(done, total));
+            }
+        }
+
+        void progress(long done, long total) {
+            List<Listener> targets;
+            synchronized (DownloadEngine.this) {
+                lastDone = done;
+                lastTotal = total;
+                // Roughly one update per buffer or percent, whichever is coarser
+                long step = Math.max(PROGRESS_STEP, total / 100);
+                if (lastReported >= 0 && done - lastReported < step && done != total) return;
+                lastReported = done;
+                targets = new ArrayList<>(listeners);
+            }
+            callbackExecutor.execute(() -> {
+                for (Listener listener : targets) {
+                    listener.onProgress(done, total);
+                }
+            });
+        }
+
+        synchronized boolean setCall(Call call) {
+            if (canceled) return false;
+            this.call = call;
+            return true;
+        }
+
+        synchronized void cancel() {
+            canceled = true;
+            if (call != null) call.cancel();
+        }
+    }
+}
@@ -8,6 +8,8 @@ import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
 
 public class FirebaseUtils {
 
@@ -32,14 +34,8 @@ public class FirebaseUtils {
             callback.onCallback(null);
             return;
         }
-        getUser(uid, task -> {
-            if (task.isSuccessful() && task.getResult() != null) {
-                String name = task.getResult().getString("name");
-                callback.onCallback(name);
-            } else {
-                callback.onCallback(null);
-            }
-        });
+        UserProfileCache.getInstance().get(uid, profile ->
+                callback.onCallback(profile != null ? profile.getString("name") : null));
     }
 
     // Get current user's phone
@@ -49,14 +45,8 @@ public class FirebaseUtils {
             callback.onCallback(null);
             return;
         }
-        getUser(uid, task -> {
-            if (task.isSuccessful() && task.getResult() != null) {
-                String phone = task.getResult().getString("phone");
-                callback.onCallback(phone);
-            } else {
-                callback.onCallback(null);
-            }
-        });
+        UserProfileCache.getInstance().get(uid, profile ->
+                callback.onCallback(profile != null ? profile.getString("phone") : null));
     }
 
     // --- Firestore Helpers ---
@@ -72,10 +62,15 @@ public class FirebaseUtils {
     // Save a room to Firestore
     public static void saveRoom(Room room, OnCompleteListener<Void> listener) {
         if (room == null || room.getId() == null) return;
-        db.collection("rooms")
-                .document(room.getId())
-                .set(room)
-                .addOnCompleteListener(listener);
+        if (room.getLatitude() != 0 || room.getLongitude() != 0) {
+            room.setGeohash(GeoHash.encode(room.getLatitude(), room.getLongitude()));
+        }
+        // Null is filled in with the server time on write
+        room.setUpdatedAt(null);
+        WriteBatch batch = db.batch();
+        batch.set(db.collection("rooms").document(room.getId()), room);
+        batch.set(RoomSummaries.document(room.getId()), RoomSummaries.fromRoom(room));
+        batch.commit().addOnCompleteListener(listener);
     }
 
     // Get room document by ID
@@ -100,11 +95,34 @@ public class FirebaseUtils {
         db.collection("users")
                 .document(userId)
                 .collection("notifications")
-                .add(new java.util.HashMap<String, Object>() {{
-                    put("title", title);
-                    put("message", message);
-                    put("bookingId", bookingId);
-                    put("timestamp", System.currentTimeMillis());
-                }});
+                .add(notificationData(title, message, bookingId));
+    }
+
+    // Same notification, written as part of a caller's transaction
+    public static void addNotification(Transaction transaction, String userId, String title, String message, String bookingId) {
+        if (userId == null) return;
+        transaction.set(db.collection("users")
+                .document(userId)
+                .collection("notifications")
+                .document(), notificationData(title, message, bookingId));
+    }
+
+    // Same, under a fixed id so a replayed write doesn't notify twice
+    public static void addNotificationOnce(Transaction transaction, String userId, String title, String message,
+                                           String bookingId, String notificationId) {
+        if (userId == null) return;
+        transaction.set(db.collection("users")
+                .document(userId)
+                .collection("notifications")
+                .document(notificationId), notificationData(title, message, bookingId));
+    }
+
+    private static java.util.Map<String, Object> notificationData(String title, String message, String bookingId) {
+        java.util.Map<String, Object> data = new java.util.HashMap<>();
+        data.put("title", title);
+        data.put("message", message);
+        data.put("bookingId", bookingId);
+        data.put("timestamp", System.currentTimeMillis());
+        return data;
     }
 }
\ No newline at end of file
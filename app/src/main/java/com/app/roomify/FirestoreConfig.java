@@ -0,0 +1,49 @@
+package com.app.roomify;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreSettings;
+import com.google.firebase.firestore.PersistentCacheIndexManager;
+import com.google.firebase.firestore.PersistentCacheSettings;
+
+/**
+ * One place for Firestore settings. Must run before anything else touches Firestore,
+ * so MyApp calls it first thing in onCreate.
+ *
+ * Screens read cache-first: ListenerRegistry with MetadataChanges.INCLUDE delivers the
+ * local copy straight away and again once the server has answered; while
+ * getMetadata().isFromCache() is true they show their refresh indicator.
+ */
+public class FirestoreConfig {
+
+    private static final String TAG = "FirestoreConfig";
+
+    // The room catalog, summaries and the user's bookings fit comfortably in this
+    private static final long CACHE_SIZE_BYTES = 100L * 1024 * 1024;
+
+    private static boolean initialized;
+
+    public static synchronized void init() {
+        if (initialized) return;
+        initialized = true;
+
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        try {
+            db.setFirestoreSettings(new FirebaseFirestoreSettings.Builder()
+                    .setLocalCacheSettings(PersistentCacheSettings.newBuilder()
+                            .setSizeBytes(CACHE_SIZE_BYTES)
+                            .build())
+                    .build());
+        } catch (IllegalStateException e) {
+            // Firestore was already used, it keeps the default settings
+            Log.e(TAG, "Firestore settings applied too late", e);
+        }
+
+        // Cache-first queries filter on postedBy, status and geohash; let the SDK index them locally
+        PersistentCacheIndexManager indexManager = db.getPersistentCacheIndexManager();
+        if (indexManager != null) {
+            indexManager.enableIndexAutoCreation();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.app.roomify;
+
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * RoomRepository's live source: one Firestore snapshot listener per query or room, cache
+ * first (MetadataChanges.INCLUDE). Snapshots that only change metadata hand back the
+ * previous Room objects so nothing is deserialized twice.
+ */
+public class FirestoreRoomBackend implements RoomRepository.Backend {
+
+    @Override
+    public RoomRepository.Registration listenQuery(RoomQuery roomQuery, RoomRepository.QueryListener listener) {
+        List<List<Room>> previous = new ArrayList<>(1);
+        ListenerRegistration registration = toQuery(roomQuery).addSnapshotListener(MetadataChanges.INCLUDE,
+                (snapshot, error) -> {
+                    if (error != null) {
+                        listener.onError(error);
+                        return;
+                    }
+                    if (snapshot == null) return;
+
+                    if (!previous.isEmpty() && snapshot.getDocumentChanges().isEmpty()) {
+                        listener.onRooms(previous.get(0), snapshot.getMetadata().isFromCache());
+                        return;
+                    }
+
+                    List<Room> rooms = new ArrayList<>(snapshot.size());
+                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                        Room room = roomQuery.isSummary() ? RoomSummaries.toRoom(doc) : toRoom(doc);
+                        if (room != null) rooms.add(room);
+                    }
+                    previous.clear();
+                    previous.add(rooms);
+                    listener.onRooms(rooms, snapshot.getMetadata().isFromCache());
+                });
+        return registration::remove;
+    }
+
+    @Override
+    public RoomRepository.Registration listenRoom(String roomId, RoomRepository.RoomListener listener) {
+        Object[] previous = new Object[2];
+        ListenerRegistration registration = FirebaseFirestore.getInstance()
+                .collection("rooms")
+                .document(roomId)
+                .addSnapshotListener(MetadataChanges.INCLUDE, (doc, error) -> {
+                    if (error != null) {
+                        listener.onError(error);
+                        return;
+                    }
+                    if (doc == null) return;
+                    boolean fromCache = doc.getMetadata().isFromCache();
+                    if (!doc.exists()) {
+                        listener.onRoom(null, fromCache);
+                        return;
+                    }
+
+                    // Same data as last time, e.g. the server confirming the cached copy
+                    Map<String, Object> data = doc.getData();
+                    if (previous[1] != null && Objects.equals(previous[0], data)) {
+                        listener.onRoom((Room) previous[1], fromCache);
+                        return;
+                    }
+                    Room room = toRoom(doc);
+                    previous[0] = data;
+                    previous[1] = room;
+                    listener.onRoom(room, fromCache);
+                });
+        return registration::remove;
+    }
+
+    /**
+     * A full room document as a Room, or null if it can't be read as one.
+     */
+    @Nullable
+    public static Room toRoom(DocumentSnapshot doc) {
+        Room room = doc.toObject(Room.class);
+        if (room == null) return null;
+        room.setId(doc.getId());
+        // Stored as isAvailable, which the bean mapping reads as "available"
+        Boolean available = doc.getBoolean("isAvailable");
+        room.setAvailable(available == null || available);
+        return room;
+    }
+
+    private static Query toQuery(RoomQuery roomQuery) {
+        Query query = FirebaseFirestore.getInstance().collection(roomQuery.getCollection());
+        for (Map.Entry<String, Object> filter : roomQuery.getEqualTo().entrySet()) {
+            query = query.whereEqualTo(filter.getKey(), filter.getValue());
+        }
+        String prefixField = roomQuery.getPrefixField();
+        if (prefixField != null) {
+            query = query.orderBy(prefixField)
+                    .startAt(roomQuery.getPrefix())
+                    .endAt(roomQuery.getPrefix() + GeoHash.RANGE_END);
+        }
+        if (roomQuery.getLimit() > 0) {
+            query = query.limit(roomQuery.getLimit());
+        }
+        return query;
+    }
+}
@@ -0,0 +1,145 @@
+package com.app.roomify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Geohash encoding and viewport cover helpers.
+ * Rooms store a geohash next to latitude/longitude so map screens can ask Firestore for
+ * only the prefix ranges covering the visible bounds instead of the whole catalog.
+ */
+public class GeoHash {
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    // Precision written to room documents (~5m cells), finer than any viewport query needs
+    public static final int STORED_PRECISION = 9;
+
+    // Upper bound on prefix queries per viewport; each one is a separate Firestore listener
+    public static final int MAX_QUERY_CELLS = 9;
+
+    // Sorts after every base32 character, closes a prefix range in endAt()
+    public static final String RANGE_END = "~";
+
+    public static String encode(double latitude, double longitude) {
+        return encode(latitude, longitude, STORED_PRECISION);
+    }
+
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int ch = 0;
+
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLng + maxLng) / 2;
+                if (longitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLng = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+
+            if (++bit == 5) {
+                hash.append(BASE32.charAt(ch));
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * @return Cell width in degrees of longitude at the given precision
+     */
+    public static double cellWidth(int precision) {
+        int lngBits = (5 * precision + 1) / 2;
+        return 360.0 / Math.pow(2, lngBits);
+    }
+
+    /**
+     * @return Cell height in degrees of latitude at the given precision
+     */
+    public static double cellHeight(int precision) {
+        int latBits = (5 * precision) / 2;
+        return 180.0 / Math.pow(2, latBits);
+    }
+
+    /**
+     * Smallest set of same-precision geohash prefixes covering the bounds, using the finest
+     * precision that needs at most {@link #MAX_QUERY_CELLS} cells.
+     * Bounds crossing the antimeridian (west > east) are split in two.
+     *
+     * @return Sorted, distinct prefixes; query each one as [prefix, prefix + RANGE_END]
+     */
+    public static List<String> coveringPrefixes(double south, double west, double north, double east) {
+        south = Math.max(-90, Math.min(90, south));
+        north = Math.max(-90, Math.min(90, north));
+
+        for (int precision = STORED_PRECISION; precision >= 1; precision--) {
+            long cells = west <= east
+                    ? countCells(south, west, north, east, precision)
+                    : countCells(south, west, north, 180, precision) + countCells(south, -180, north, east, precision);
+
+            if (cells <= MAX_QUERY_CELLS || precision == 1) {
+                TreeSet<String> prefixes = new TreeSet<>();
+                if (west <= east) {
+                    addCells(prefixes, south, west, north, east, precision);
+                } else {
+                    addCells(prefixes, south, west, north, 180, precision);
+                    addCells(prefixes, south, -180, north, east, precision);
+                }
+                return new ArrayList<>(prefixes);
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    private static long countCells(double south, double west, double north, double east, int precision) {
+        double width = cellWidth(precision);
+        double height = cellHeight(precision);
+        long columns = cellIndex(east + 180, width, 360) - cellIndex(west + 180, width, 360) + 1;
+        long rows = cellIndex(north + 90, height, 180) - cellIndex(south + 90, height, 180) + 1;
+        return columns * rows;
+    }
+
+    private static void addCells(TreeSet<String> prefixes, double south, double west,
+                                 double north, double east, int precision) {
+        double width = cellWidth(precision);
+        double height = cellHeight(precision);
+        long x0 = cellIndex(west + 180, width, 360);
+        long x1 = cellIndex(east + 180, width, 360);
+        long y0 = cellIndex(south + 90, height, 180);
+        long y1 = cellIndex(north + 90, height, 180);
+
+        for (long x = x0; x <= x1; x++) {
+            for (long y = y0; y <= y1; y++) {
+                // Encode the cell centre so floating point edges can't spill into a neighbour
+                double lat = (y + 0.5) * height - 90;
+                double lng = (x + 0.5) * width - 180;
+                prefixes.add(encode(lat, lng, precision));
+            }
+        }
+    }
+
+    private static long cellIndex(double offset, double cellSize, double span) {
+        long maxIndex = (long) Math.ceil(span / cellSize) - 1;
+        return Math.max(0, Math.min(maxIndex, (long) Math.floor(offset / cellSize)));
+    }
+}
@@ -0,0 +1,72 @@
+package com.app.roomify;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Geohash top-up for rooms posted before the field existed.
+ * Rooms without a geohash are invisible to the viewport queries on the map screens. The
+ * migration over the whole collection is scripts/migrations/backfill-geohash.js; this
+ * only repairs an owner's own listings, from documents already loaded, until it has run.
+ */
+public class GeoHashBackfill {
+
+    private static final String TAG = "GeoHashBackfill";
+
+    // Two writes per room (room + summary), Firestore allows 500 per batch
+    private static final int MAX_BATCH_SIZE = 250;
+
+    /**
+     * Write a geohash to every room in the list that is missing one or has a stale one.
+     * Costs no extra reads; rooms that are already up to date are skipped.
+     */
+    public static void backfill(List<Room> rooms) {
+        if (rooms == null || rooms.isEmpty()) return;
+
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        WriteBatch batch = db.batch();
+        int pending = 0;
+        int total = 0;
+
+        for (Room room : rooms) {
+            double lat = room.getLatitude();
+            double lng = room.getLongitude();
+            if (lat == 0 && lng == 0) continue;
+
+            String geohash = GeoHash.encode(lat, lng);
+            if (geohash.equals(room.getGeohash())) continue;
+
+            Map<String, Object> update = new HashMap<>();
+            update.put("geohash", geohash);
+            batch.update(db.collection("rooms").document(room.getId()), RoomChanges.stamp(update));
+            RoomSummaries.mirrorUpdate(batch, room.getId(), update);
+            pending++;
+            total++;
+
+            if (pending == MAX_BATCH_SIZE) {
+                commit(batch, pending);
+                batch = db.batch();
+                pending = 0;
+            }
+        }
+
+        if (pending > 0) {
+            commit(batch, pending);
+        }
+        if (total > 0) {
+            Log.d(TAG, "Backfilling geohash for " + total + " rooms");
+        }
+    }
+
+    private static void commit(WriteBatch batch, int count) {
+        batch.commit()
+                .addOnSuccessListener(aVoid -> Log.d(TAG, "Geohash written for " + count + " rooms"))
+                .addOnFailureListener(e -> Log.e(TAG, "Geohash backfill failed: " + e.getMessage()));
+    }
+}
@@ -1,23 +1,34 @@
 package com.app.roomify;
 
+import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
 
 import java.util.List;
 
 public class ImagePagerAdapter extends RecyclerView.Adapter<ImagePagerAdapter.ImageViewHolder> {
 
     private List<String> imageUrls;
+    // Small renditions shown while the page image loads, same order as imageUrls
+    private List<String> thumbnailUrls;
 
     public ImagePagerAdapter(List<String> imageUrls) {
+        this(imageUrls, null);
+    }
+
+    public ImagePagerAdapter(List<String> imageUrls, @Nullable List<String> thumbnailUrls) {
         this.imageUrls = imageUrls;
+        this.thumbnailUrls = thumbnailUrls;
     }
 
     @NonNull
@@ -31,10 +42,12 @@ public class ImagePagerAdapter extends RecyclerView.Adapter<ImagePagerAdapter.Im
     @Override
     public void onBindViewHolder(@NonNull ImageViewHolder holder, int position) {
         String url = imageUrls.get(position);
-        Glide.with(holder.itemView.getContext())
-                .load(url)
-                .centerCrop()
-                .into(holder.imageView);
+        RequestManager glide = Glide.with(holder.itemView.getContext());
+        RequestBuilder<Drawable> request = glide.load(url).centerCrop();
+        if (thumbnailUrls != null && position < thumbnailUrls.size()) {
+            request = request.thumbnail(glide.load(thumbnailUrls.get(position)).centerCrop());
+        }
+        request.into(holder.imageView);
     }
 
     @Override
@@ -0,0 +1,211 @@
+package com.app.roomify;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns a picked photo into thumbnail, medium and full renditions before upload.
+ *
+ * The source is decoded once, subsampled close to the largest rendition, rotated per its
+ * EXIF orientation and re-encoded, which also drops all metadata (camera, GPS). Each
+ * rendition is stored under its own folder in rooms/{roomId}/, full size keeping the
+ * original images/ folder. Uploading is left to MediaUploadWorker.
+ */
+public class ImageRenditions {
+
+    private static final String TAG = "ImageRenditions";
+
+    public enum Size {
+        THUMB("thumb", "thumbs", 320, 70),
+        MEDIUM("medium", "medium", 1080, 80),
+        FULL("full", "images", 1920, 85);
+
+        // Key in the room's imageRenditions entries
+        public final String key;
+        final String folder;
+        final int maxEdge;
+        final int quality;
+
+        Size(String key, String folder, int maxEdge, int quality) {
+            this.key = key;
+            this.folder = folder;
+            this.maxEdge = maxEdge;
+            this.quality = quality;
+        }
+    }
+
+    public static class Encoded {
+        public final Size size;
+        public final byte[] bytes;
+
+        Encoded(Size size, byte[] bytes) {
+            this.size = size;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Decode and encode every rendition. Blocking, call off the main thread.
+     */
+    public static List<Encoded> encode(Context context, Uri source) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = context.getContentResolver().openInputStream(source)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Not a decodable image: " + source);
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize(bounds.outWidth, bounds.outHeight, Size.FULL.maxEdge);
+        Bitmap decoded;
+        try (InputStream in = context.getContentResolver().openInputStream(source)) {
+            decoded = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (decoded == null) {
+            throw new IOException("Failed to decode " + source);
+        }
+
+        int orientation = readOrientation(context, source);
+        List<Encoded> renditions = new ArrayList<>();
+        try {
+            for (Size size : Size.values()) {
+                Bitmap scaled = transform(decoded, orientation, size.maxEdge);
+                renditions.add(new Encoded(size, compress(scaled, size.quality)));
+                if (scaled != decoded) scaled.recycle();
+            }
+        } finally {
+            decoded.recycle();
+        }
+
+        Log.d(TAG, "Encoded " + source + " from " + bounds.outWidth + "x" + bounds.outHeight
+                + " (sample " + options.inSampleSize + ")");
+        return renditions;
+    }
+
+    /**
+     * @return Storage path of a rendition, relative to rooms/{roomId}
+     */
+    public static String path(Size size, String baseName) {
+        return size.folder + "/" + baseName + extension();
+    }
+
+    /**
+     * Gallery URLs of one size in posting order. Rooms posted before renditions existed
+     * only have full-size images, which are returned as they are.
+     */
+    public static List<String> urls(Room room, Size size) {
+        List<Map<String, Object>> entries = new ArrayList<>(room.getImageRenditions());
+        if (entries.isEmpty()) {
+            return new ArrayList<>(room.getImages());
+        }
+
+        Collections.sort(entries, (a, b) -> Long.compare(indexOf(a), indexOf(b)));
+        List<String> urls = new ArrayList<>();
+        for (Map<String, Object> entry : entries) {
+            Object url = entry.get(size.key);
+            if (!(url instanceof String)) url = entry.get(Size.FULL.key);
+            if (url instanceof String) urls.add((String) url);
+        }
+        return urls;
+    }
+
+    private static long indexOf(Map<String, Object> entry) {
+        Object index = entry.get("index");
+        return index instanceof Number ? ((Number) index).longValue() : Long.MAX_VALUE;
+    }
+
+    // Largest power of two that keeps the long edge at or above the target
+    static int sampleSize(int width, int height, int targetEdge) {
+        int longEdge = Math.max(width, height);
+        int sample = 1;
+        while (longEdge / (sample * 2) >= targetEdge) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    private static int readOrientation(Context context, Uri source) {
+        try (InputStream in = context.getContentResolver().openInputStream(source)) {
+            if (in == null) return ExifInterface.ORIENTATION_NORMAL;
+            return new ExifInterface(in).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read EXIF of " + source, e);
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    private static Bitmap transform(Bitmap source, int orientation, int maxEdge) {
+        Matrix matrix = new Matrix();
+        float scale = Math.min(1f, (float) maxEdge / Math.max(source.getWidth(), source.getHeight()));
+        matrix.postScale(scale, scale);
+
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(-90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(-90);
+                break;
+            default:
+                break;
+        }
+
+        if (matrix.isIdentity()) return source;
+        return Bitmap.createBitmap(source, 0, 0, source.getWidth(), source.getHeight(), matrix, true);
+    }
+
+    private static byte[] compress(Bitmap bitmap, int quality) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(compressFormat(), quality, out);
+        return out.toByteArray();
+    }
+
+    // Lossy WebP needs API 30; older devices fall back to JPEG
+    private static Bitmap.CompressFormat compressFormat() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.JPEG;
+    }
+
+    private static String extension() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R ? ".webp" : ".jpg";
+    }
+
+    public static String contentType() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R ? "image/webp" : "image/jpeg";
+    }
+}
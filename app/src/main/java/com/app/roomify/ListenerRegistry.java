@@ -0,0 +1,279 @@
+package com.app.roomify;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.util.Pair;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Owns the app's Firestore snapshot listeners for bookings and notifications. Rooms go
+ * through RoomRepository, which keeps its own listeners next to its caches.
+ *
+ * Screens subscribe with their LifecycleOwner. Subscriptions are active between onStart
+ * and onStop and removed on onDestroy, so a stopped or recreated screen never leaks a live
+ * listener. Screens watching an equal Query share one underlying listener, ref-counted,
+ * and a late joiner is replayed the latest snapshot straight away.
+ *
+ * Reattaching after onStop re-listens the same query; the SDK resumes it from the local
+ * cache with its stored resume token, so only changes since the detach come over the
+ * network. Main thread only.
+ *
+ * With MetadataChanges.INCLUDE a subscriber first gets the locally cached snapshot and
+ * then another one once the server has answered, even if no document changed; screens
+ * use getMetadata().isFromCache() for their "refreshing" state.
+ */
+public class ListenerRegistry {
+
+    private static final String TAG = "ListenerRegistry";
+
+    public interface SnapshotListener {
+        /**
+         * @param fullState True when the snapshot should replace what the subscriber holds
+         *                  (first snapshot after attaching, or a replay for a late joiner);
+         *                  read snapshot.getDocuments(). Otherwise apply getDocumentChanges().
+         */
+        void onSnapshot(@NonNull QuerySnapshot snapshot, boolean fullState);
+
+        default void onError(@NonNull FirebaseFirestoreException error) {
+            Log.e(TAG, "Snapshot listener failed", error);
+        }
+    }
+
+    public interface DocumentListener {
+        /**
+         * @param snapshot Check exists(), the document may be missing or deleted
+         */
+        void onSnapshot(@NonNull DocumentSnapshot snapshot);
+
+        default void onError(@NonNull FirebaseFirestoreException error) {
+            Log.e(TAG, "Document listener failed", error);
+        }
+    }
+
+    /**
+     * Handle for one subscriber; remove() ends it early (e.g. a map cell scrolled away).
+     */
+    public class Subscription implements DefaultLifecycleObserver {
+        private final LifecycleOwner owner;
+        // Query or DocumentReference, paired with its MetadataChanges mode
+        private final Pair<Object, MetadataChanges> key;
+        @Nullable private final SnapshotListener queryListener;
+        @Nullable private final DocumentListener documentListener;
+        private boolean active;
+        private boolean removed;
+        // The first snapshot this subscriber sees after each (re)attach is full state
+        private boolean awaitingFullState = true;
+
+        Subscription(LifecycleOwner owner, Object target, MetadataChanges metadataChanges,
+                     @Nullable SnapshotListener queryListener, @Nullable DocumentListener documentListener) {
+            this.owner = owner;
+            this.key = Pair.create(target, metadataChanges);
+            this.queryListener = queryListener;
+            this.documentListener = documentListener;
+        }
+
+        @Override
+        public void onStart(@NonNull LifecycleOwner owner) {
+            activate(this);
+        }
+
+        @Override
+        public void onStop(@NonNull LifecycleOwner owner) {
+            deactivate(this);
+        }
+
+        @Override
+        public void onDestroy(@NonNull LifecycleOwner owner) {
+            remove();
+        }
+
+        public void remove() {
+            if (removed) return;
+            removed = true;
+            deactivate(this);
+            owner.getLifecycle().removeObserver(this);
+        }
+
+        void deliver(Object snapshot) {
+            if (documentListener != null) {
+                documentListener.onSnapshot((DocumentSnapshot) snapshot);
+                return;
+            }
+            boolean fullState = awaitingFullState;
+            awaitingFullState = false;
+            queryListener.onSnapshot((QuerySnapshot) snapshot, fullState);
+        }
+
+        void fail(FirebaseFirestoreException error) {
+            if (documentListener != null) {
+                documentListener.onError(error);
+            } else {
+                queryListener.onError(error);
+            }
+        }
+    }
+
+    private static class SharedListener {
+        final Set<Subscription> subscribers = new LinkedHashSet<>();
+        ListenerRegistration registration;
+        // QuerySnapshot or DocumentSnapshot, matching the key's target
+        Object latest;
+    }
+
+    private static ListenerRegistry instance;
+
+    private final Map<Pair<Object, MetadataChanges>, SharedListener> listeners = new HashMap<>();
+
+    public static synchronized ListenerRegistry getInstance() {
+        if (instance == null) {
+            instance = new ListenerRegistry();
+        }
+        return instance;
+    }
+
+    /**
+     * Listen to the query for as long as the owner is started, until it is destroyed or
+     * the subscription is removed.
+     */
+    public Subscription listen(LifecycleOwner owner, Query query, SnapshotListener listener) {
+        return listen(owner, query, MetadataChanges.EXCLUDE, listener);
+    }
+
+    /**
+     * Same, with MetadataChanges.INCLUDE for cache-first screens.
+     */
+    public Subscription listen(LifecycleOwner owner, Query query, MetadataChanges metadataChanges,
+                               SnapshotListener listener) {
+        return subscribe(new Subscription(owner, query, metadataChanges, listener, null));
+    }
+
+    /**
+     * Listen to a single document, with the same lifecycle and sharing as queries.
+     */
+    public Subscription listen(LifecycleOwner owner, DocumentReference document,
+                               MetadataChanges metadataChanges, DocumentListener listener) {
+        return subscribe(new Subscription(owner, document, metadataChanges, null, listener));
+    }
+
+    private Subscription subscribe(Subscription subscription) {
+        LifecycleOwner owner = subscription.owner;
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            subscription.removed = true;
+            return subscription;
+        }
+        // Replays onStart right away if the owner is already started
+        owner.getLifecycle().addObserver(subscription);
+        return subscription;
+    }
+
+    /**
+     * @return Underlying Firestore listeners currently attached
+     */
+    public int getLiveListenerCount() {
+        int count = 0;
+        for (SharedListener shared : listeners.values()) {
+            if (shared.registration != null) count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return Active subscriptions across all screens
+     */
+    public int getSubscriberCount() {
+        int count = 0;
+        for (SharedListener shared : listeners.values()) {
+            count += shared.subscribers.size();
+        }
+        return count;
+    }
+
+    private void activate(Subscription subscription) {
+        if (subscription.removed || subscription.active) return;
+        subscription.active = true;
+        subscription.awaitingFullState = true;
+
+        SharedListener shared = listeners.get(subscription.key);
+        if (shared == null) {
+            shared = new SharedListener();
+            listeners.put(subscription.key, shared);
+        }
+        shared.subscribers.add(subscription);
+
+        if (shared.registration == null) {
+            attach(subscription.key, shared);
+        } else if (shared.latest != null) {
+            // Already live for another screen
+            subscription.deliver(shared.latest);
+        }
+        logCounts();
+    }
+
+    private void deactivate(Subscription subscription) {
+        if (!subscription.active) return;
+        subscription.active = false;
+
+        SharedListener shared = listeners.get(subscription.key);
+        if (shared == null) return;
+        shared.subscribers.remove(subscription);
+
+        if (shared.subscribers.isEmpty()) {
+            if (shared.registration != null) {
+                shared.registration.remove();
+            }
+            listeners.remove(subscription.key);
+        }
+        logCounts();
+    }
+
+    private void attach(Pair<Object, MetadataChanges> key, SharedListener shared) {
+        if (key.first instanceof DocumentReference) {
+            shared.registration = ((DocumentReference) key.first).addSnapshotListener(key.second,
+                    (snapshot, error) -> dispatch(shared, snapshot, error));
+        } else {
+            shared.registration = ((Query) key.first).addSnapshotListener(key.second,
+                    (snapshot, error) -> dispatch(shared, snapshot, error));
+        }
+    }
+
+    private void dispatch(SharedListener shared, @Nullable Object snapshot,
+                          @Nullable FirebaseFirestoreException error) {
+        // Copy, a subscriber may unsubscribe while being notified
+        ArrayList<Subscription> subscribers = new ArrayList<>(shared.subscribers);
+        if (error != null) {
+            for (Subscription subscription : subscribers) {
+                subscription.fail(error);
+            }
+            return;
+        }
+        if (snapshot == null) return;
+
+        shared.latest = snapshot;
+        for (Subscription subscription : subscribers) {
+            if (subscription.active) subscription.deliver(snapshot);
+        }
+    }
+
+    private void logCounts() {
+        Log.d(TAG, "Live listeners: " + getLiveListenerCount()
+                + ", subscribers: " + getSubscriberCount());
+    }
+}
@@ -19,21 +19,27 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.provider.Settings;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputMethodManager;
+import android.widget.ArrayAdapter;
 import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
+import android.widget.ListPopupWindow;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.core.util.Pair;
 
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInClient;
@@ -62,17 +68,24 @@ import com.google.android.gms.maps.model.MarkerOptions;
 import com.google.android.gms.tasks.Task;
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.chip.Chip;
+import com.google.android.material.datepicker.CalendarConstraints;
+import com.google.android.material.datepicker.DateValidatorPointForward;
+import com.google.android.material.datepicker.MaterialDatePicker;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 public class LocationMap extends AppCompatActivity implements OnMapReadyCallback {
 
@@ -81,6 +94,9 @@ public class LocationMap extends AppCompatActivity implements OnMapReadyCallback
     private static final int LOCATION_TIMEOUT = 10000;
     private static final String TAG = "LocationMap";
     private static final String ACTION_NEW_ROOM = "com.app.roomify.NEW_ROOM_ADDED";
+    // Pause in typing before the catalog is searched
+    private static final long SUGGESTION_DELAY_MS = 120;
+    private static final int MAX_SUGGESTIONS = 8;
 
     private GoogleMap myMap;
     private BroadcastReceiver roomReceiver;
@@ -111,6 +127,7 @@ public class LocationMap extends AppCompatActivity implements OnMapReadyCallback
 
     // New UI Elements for search button
     private com.google.android.material.button.MaterialButton btnSearchAddress;
+    private Chip chipDates;
     private View overlayView;
     private com.google.android.material.progressindicator.CircularProgressIndicator progressIndicator;
 
@@ -122,11 +139,28 @@ public class LocationMap extends AppCompatActivity implements OnMapReadyCallback
     private Marker searchMarker;
 
     // Data holders
-    private final List<Room> roomsList = new ArrayList<>();
-    private final Map<Marker, Room> markerRoomMap = new HashMap<>();
+    private final RoomSpatialIndex roomIndex = new RoomSpatialIndex();
+    private final Map<String, Marker> roomMarkers = new HashMap<>();
+    private final Map<String, Marker> clusterMarkers = new HashMap<>();
+    private RoomClusterer roomClusterer;
+    private final RoomAvailability availability = new RoomAvailability();
+    // Stay dates to filter by, 0 when showing all rooms
+    private long filterCheckIn;
+    private long filterCheckOut;
     private Map<String, String> roomBookingStatus = new HashMap<>();
     private List<String> requestedRoomIds = new ArrayList<>();
 
+    // Firestore listeners owned by this activity; cells go through RoomRepository
+    private final Map<String, RoomRepository.Subscription> cellListeners = new HashMap<>();
+    private ListenerRegistry.Subscription bookingsListener;
+
+    // Search-as-you-type over the local catalog
+    private ListPopupWindow suggestionsPopup;
+    private ArrayAdapter<String> suggestionsAdapter;
+    private final List<Room> suggestions = new ArrayList<>();
+    private final Handler suggestionHandler = new Handler(Looper.getMainLooper());
+    private Runnable pendingSuggestionSearch;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -140,12 +174,15 @@ public class LocationMap extends AppCompatActivity implements OnMapReadyCallback
 
         initializeReceivers();
         db = FirebaseFirestore.getInstance();
+        roomClusterer = new RoomClusterer(ContextCompat.getMainExecutor(this));
         fusedLocationProviderClient = LocationServices.getFusedLocationProviderClient(this);
 
         initializeViews();
         setupClickListeners();
         setupSearch();
         setupSearchButton();
+        setupSuggestions();
+        setupDateFilter();
 
         // Listen to user bookings for real-time updates
         listenToUserBookings();
@@ -165,10 +202,8 @@ public class LocationMap extends AppCompatActivity implements OnMapReadyCallback
             @Override
             public void onReceive(Context context, Intent intent) {
                 if (ACTION_NEW_ROOM.equals(intent.getAction())) {
-                    Log.d(TAG, "New room added, refreshing map");
-                    if (myMap != null) {
-                        loadRoomsOnMap();
-                    }
+                    // The geohash cell listeners deliver the new room as an ADDED change if it is in view
+                    Log.d(TAG, "New room added, map listeners will pick it up");
                 }
             }
         };
@@ -205,33 +240,44 @@ public class LocationMap extends AppCompatActivity implements OnMapReadyCallback
             return;
         }
 
-        FirebaseFirestore.getInstance()
+        if (bookingsListener != null) return;
+
+        Query bookingsQuery = FirebaseFirestore.getInstance()
                 .collection("users")
                 .document(userId)
-                .collection("bookings")
-                .addSnapshotListener((snapshots, error) -> {
-                    if (error != null) {
-                        Log.e(TAG, "Error loading bookings", error);
-                        return;
-                    }
+                .collection("bookings");
 
-                    roomBookingStatus.clear();
+        // Always rebuilt from the full snapshot, so full-state and delta deliveries are alike
+        bookingsListener = ListenerRegistry.getInstance().listen(this, bookingsQuery,
+                (snapshots, fullState) -> {
+                    Map<String, String> updatedStatus = new HashMap<>();
 
-                    if (snapshots != null) {
-                        for (DocumentSnapshot doc : snapshots.getDocuments()) {
-                            String roomId = doc.getString("roomId");
-                            String status = doc.getString("status");
-                            if (roomId != null && status != null) {
-                                roomBookingStatus.put(roomId, status);
-                            }
+                    for (DocumentSnapshot doc : snapshots.getDocuments()) {
+                        String roomId = doc.getString("roomId");
+                        String status = doc.getString("status");
+                        if (roomId != null && status != null) {
+                            updatedStatus.put(roomId, status);
                         }
                     }
 
-                    Log.d(TAG, "Booking status updated: " + roomBookingStatus.size());
-
-                    if (myMap != null) {
-                        loadRoomsOnMap();
+                    Set<String> changedRoomIds = new HashSet<>();
+                    for (Map.Entry<String, String> entry : updatedStatus.entrySet()) {
+                        if (!entry.getValue().equals(roomBookingStatus.get(entry.getKey()))) {
+                            changedRoomIds.add(entry.getKey());
+                        }
+                    }
+                    for (String roomId : roomBookingStatus.keySet()) {
+                        if (!updatedStatus.containsKey(roomId)) {
+                            changedRoomIds.add(roomId);
+                        }
                     }
+
+                    roomBookingStatus = updatedStatus;
+
+                    Log.d(TAG, "Booking status updated: " + roomBookingStatus.size()
+                            + " (" + changedRoomIds.size() + " changed)");
+
+                    refreshRoomMarkers(changedRoomIds);
                 });
     }
 
@@ -245,6 +291,7 @@ public class LocationMap extends AppCompatActivity implements OnMapReadyCallback
 
             // Initialize new search button
             btnSearchAddress = findViewById(R.id.btn_search_address);
+            chipDates = findViewById(R.id.chip_dates);
             overlayView = findViewById(R.id.overlayView);
             progressIndicator = findViewById(R.id.progressIndicator);
 
@@ -277,18 +324,22 @@ public class LocationMap extends AppCompatActivity implements OnMapReadyCallback
     private void navigateBasedOnRole() {
         String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
 
-        FirebaseFirestore.getInstance()
-                .collection("users")
-                .document(userId)
-                .get()
-                .addOnSuccessListener(doc -> {
-                    String role = doc.getString("role");
-                    if ("tenant".equals(role)) {
-                        startActivity(new Intent(this, DashboardActivity.class));
-                    } else if ("owner".equals(role)) {
-                        startActivity(new Intent(this, OwnerDashboard.class));
-                    }
-                });
+        // Usually known locally since startup
+        StartupManager.getInstance(this).getRole(userId, new StartupManager.RoleCallback() {
+            @Override
+            public void onRole(@Nullable String role) {
+                if ("tenant".equals(role)) {
+                    startActivity(new Intent(LocationMap.this, DashboardActivity.class));
+                } else if ("owner".equals(role)) {
+                    startActivity(new Intent(LocationMap.this, OwnerDashboard.class));
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error loading role", e);
+            }
+        });
     }
 
     private void setupClickListeners() {
@@ -315,7 +366,7 @@ public class LocationMap extends AppCompatActivity implements OnMapReadyCallback
             // Apartment card click - show all apartments
             if (apartmentCard != null) {
                 apartmentCard.setOnClickListener(v -> {
-                    if (roomsList.isEmpty()) {
+                    if (roomIndex.isEmpty()) {
                         Toast.makeText(this, "No rooms available", Toast.LENGTH_SHORT).show();
                         return;
                     }
@@ -406,6 +457,52 @@ public class LocationMap extends AppCompatActivity implements OnMapReadyCallback
         finish();
     }
 
+    private void setupDateFilter() {
+        if (chipDates == null) return;
+
+        chipDates.setOnClickListener(v -> {
+            CalendarConstraints constraints = new CalendarConstraints.Builder()
+                    .setValidator(DateValidatorPointForward.now())
+                    .build();
+            MaterialDatePicker<Pair<Long, Long>> picker = MaterialDatePicker.Builder.dateRangePicker()
+                    .setTitleText("Show rooms free for")
+                    .setCalendarConstraints(constraints)
+                    .build();
+            picker.addOnPositiveButtonClickListener(selection -> {
+                if (selection == null || selection.first == null || selection.second == null) return;
+                if (selection.second <= selection.first) return;
+                filterCheckIn = selection.first;
+                filterCheckOut = selection.second;
+                chipDates.setText(picker.getHeaderText());
+                chipDates.setCloseIconVisible(true);
+                applyDateFilter();
+            });
+            picker.show(getSupportFragmentManager(), "date_filter");
+        });
+
+        chipDates.setOnCloseIconClickListener(v -> {
+            filterCheckIn = 0;
+            filterCheckOut = 0;
+            chipDates.setText("Any dates");
+            chipDates.setCloseIconVisible(false);
+            applyDateFilter();
+        });
+    }
+
+    // Availability comes with the room documents already loaded, no extra reads
+    private void applyDateFilter() {
+        if (roomClusterer == null) return;
+        roomClusterer.setRooms(visibleRooms());
+        renderClusters();
+    }
+
+    private List<Room> visibleRooms() {
+        if (filterCheckOut <= filterCheckIn) {
+            return roomIndex.getAll();
+        }
+        return availability.filterAvailable(roomIndex.getAll(), filterCheckIn, filterCheckOut);
+    }
+
     private void setupSearchButton() {
         if (btnSearchAddress != null) {
             btnSearchAddress.setOnClickListener(v -> {
@@ -478,7 +575,76 @@ public class LocationMap extends AppCompatActivity implements OnMapReadyCallback
         Log.d(TAG, "Search setup completed");
     }
 
+    // Listings matching the typed text by title, description, address or amenity, ranked
+    // from the local catalog without a Firestore query per keystroke
+    private void setupSuggestions() {
+        if (searchEditText == null) return;
+
+        suggestionsAdapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, new ArrayList<>());
+        suggestionsPopup = new ListPopupWindow(this);
+        suggestionsPopup.setAnchorView(searchCard != null ? searchCard : searchEditText);
+        suggestionsPopup.setAdapter(suggestionsAdapter);
+        suggestionsPopup.setModal(false);
+        suggestionsPopup.setOnItemClickListener((parent, view, position, id) -> {
+            if (position >= suggestions.size()) return;
+            Room room = suggestions.get(position);
+            suggestionsPopup.dismiss();
+            hideKeyboard();
+            Intent intent = new Intent(LocationMap.this, RoomDetailsActivity.class);
+            intent.putExtra("room_id", room.getId());
+            startActivity(intent);
+        });
+
+        searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                scheduleSuggestions(s.toString().trim());
+            }
+        });
+    }
+
+    private void scheduleSuggestions(String text) {
+        if (pendingSuggestionSearch != null) {
+            suggestionHandler.removeCallbacks(pendingSuggestionSearch);
+        }
+        if (text.isEmpty()) {
+            suggestions.clear();
+            suggestionsPopup.dismiss();
+            return;
+        }
+
+        pendingSuggestionSearch = () -> RoomCatalog.getInstance(this).search(text, null, MAX_SUGGESTIONS, rooms -> {
+            if (isFinishing() || isDestroyed()) return;
+            suggestions.clear();
+            suggestions.addAll(rooms);
+
+            List<String> labels = new ArrayList<>();
+            for (Room room : rooms) {
+                String address = room.getAddress() != null ? " · " + room.getAddress() : "";
+                labels.add(room.getTitle() + address + " · $" + (int) room.getPrice());
+            }
+            suggestionsAdapter.clear();
+            suggestionsAdapter.addAll(labels);
+
+            if (rooms.isEmpty() || !searchEditText.hasFocus()) {
+                suggestionsPopup.dismiss();
+            } else {
+                suggestionsPopup.show();
+            }
+        });
+        suggestionHandler.postDelayed(pendingSuggestionSearch, SUGGESTION_DELAY_MS);
+    }
+
     private void performImprovedSearch(String query) {
+        if (suggestionsPopup != null) suggestionsPopup.dismiss();
         if (query.isEmpty() || myMap == null) {
             Toast.makeText(this, "Cannot perform search", Toast.LENGTH_SHORT).show();
             return;
@@ -819,6 +985,12 @@ public class LocationMap extends AppCompatActivity implements OnMapReadyCallback
         // Load rooms on map
         loadRoomsOnMap();
 
+        // Re-query and re-cluster once the camera settles instead of on every frame
+        myMap.setOnCameraIdleListener(() -> {
+            loadRoomsOnMap();
+            renderClusters();
+        });
+
         // Set marker click listener
         myMap.setOnMarkerClickListener(marker -> {
             // Don't handle current location or search markers
@@ -827,20 +999,14 @@ public class LocationMap extends AppCompatActivity implements OnMapReadyCallback
                 return false;
             }
 
-            // Get room from map
-            Room room = markerRoomMap.get(marker);
-
-            // Fallback: try to find by tag
-            if (room == null && marker.getTag() != null) {
-                String roomId = (String) marker.getTag();
-                for (Room r : roomsList) {
-                    if (r.getId().equals(roomId)) {
-                        room = r;
-                        break;
-                    }
-                }
+            // Cluster markers carry their cluster, room markers their room id
+            if (marker.getTag() instanceof RoomClusterer.Cluster) {
+                zoomIntoCluster((RoomClusterer.Cluster) marker.getTag());
+                return true;
             }
 
+            Room room = marker.getTag() instanceof String ? roomIndex.get((String) marker.getTag()) : null;
+
             if (room == null) {
                 Log.e(TAG, "No room found for marker");
                 return true;
@@ -858,127 +1024,291 @@ public class LocationMap extends AppCompatActivity implements OnMapReadyCallback
         });
     }
 
+    // Keeps one snapshot listener per geohash cell covering the visible map. Called on camera
+    // idle; cells that scroll off-screen are detached and their rooms dropped.
     private void loadRoomsOnMap() {
         if (db == null || myMap == null) {
             Log.d(TAG, "Cannot load rooms: db=" + (db != null) + ", map=" + (myMap != null));
             return;
         }
 
-        db.collection("rooms")
-                .whereEqualTo("isAvailable", true)
-                .addSnapshotListener((snapshots, error) -> {
-                    if (error != null) {
-                        Log.e(TAG, "Firestore error: " + error.getMessage());
-                        return;
-                    }
+        LatLngBounds bounds = myMap.getProjection().getVisibleRegion().latLngBounds;
+        List<String> prefixes = GeoHash.coveringPrefixes(
+                bounds.southwest.latitude, bounds.southwest.longitude,
+                bounds.northeast.latitude, bounds.northeast.longitude);
+
+        boolean droppedCells = false;
+        Iterator<Map.Entry<String, RoomRepository.Subscription>> iterator = cellListeners.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, RoomRepository.Subscription> entry = iterator.next();
+            if (!prefixes.contains(entry.getKey())) {
+                entry.getValue().remove();
+                iterator.remove();
+                droppedCells = true;
+            }
+        }
 
-                    if (snapshots == null) return;
+        if (droppedCells) {
+            dropRoomsOutside(prefixes);
+        }
 
-                    Log.d(TAG, "Received " + snapshots.size() + " rooms from Firestore");
+        RoomRepository repository = RoomRepository.getInstance(this);
+        for (String prefix : prefixes) {
+            if (cellListeners.containsKey(prefix)) continue;
 
-                    // Save current location before clearing markers
-                    LatLng currentLocLatLng = null;
-                    if (currentLocation != null) {
-                        currentLocLatLng = new LatLng(
-                                currentLocation.getLatitude(),
-                                currentLocation.getLongitude()
-                        );
-                    }
+            RoomQuery cellQuery = RoomQuery.summaries()
+                    .whereEqualTo("isAvailable", true)
+                    .whereStartsWith("geohash", prefix);
 
-                    // Clear ONLY room markers, not location marker
-                    for (Marker marker : markerRoomMap.keySet()) {
-                        marker.remove();
-                    }
+            // Cells seen before (here or on another screen) are answered from memory first;
+            // detached on onStop and resumed on onStart
+            RoomRepository.Subscription subscription = repository.observe(this, cellQuery, (rooms, fromCache) -> {
+                if (myMap != null) replaceCellRooms(prefix, rooms);
+            });
+            cellListeners.put(prefix, subscription);
+        }
 
-                    roomsList.clear();
-                    markerRoomMap.clear();
-
-                    // Re-add or update current location marker
-                    if (currentLocLatLng != null) {
-                        if (currentLocationMarker == null) {
-                            currentLocationMarker = myMap.addMarker(
-                                    new MarkerOptions()
-                                            .position(currentLocLatLng)
-                                            .title("My Location")
-                                            .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_RED))
-                            );
-                        } else {
-                            currentLocationMarker.setPosition(currentLocLatLng);
-                        }
-                    }
+        Log.d(TAG, "Listening to " + cellListeners.size() + " geohash cells");
+    }
 
-                    // Add room markers
-                    for (DocumentSnapshot doc : snapshots.getDocuments()) {
-                        try {
-                            Room room = doc.toObject(Room.class);
-                            if (room == null) continue;
-
-                            room.setId(doc.getId());
-
-                            if (room.getLatitude() == 0 || room.getLongitude() == 0) continue;
-
-                            roomsList.add(room);
-
-                            LatLng roomLocation = new LatLng(room.getLatitude(), room.getLongitude());
-
-                            String status = roomBookingStatus.get(room.getId());
-                            float markerColor = BitmapDescriptorFactory.HUE_BLUE;
-                            String snippet = "Price: $" + room.getPrice();
-
-                            if (status != null) {
-                                switch (status) {
-                                    case "pending":
-                                        markerColor = BitmapDescriptorFactory.HUE_ORANGE;
-                                        snippet = "⚠️ Requested";
-                                        break;
-                                    case "approved":
-                                        markerColor = BitmapDescriptorFactory.HUE_GREEN;
-                                        snippet = "✅ Approved";
-                                        break;
-                                    case "rejected":
-                                        markerColor = BitmapDescriptorFactory.HUE_RED;
-                                        snippet = "❌ Rejected";
-                                        break;
-                                    case "cancelled":
-                                        markerColor = BitmapDescriptorFactory.HUE_VIOLET;
-                                        snippet = "Cancelled";
-                                        break;
-                                }
-                            }
-
-                            Marker marker = myMap.addMarker(
-                                    new MarkerOptions()
-                                            .position(roomLocation)
-                                            .title(room.getTitle())
-                                            .snippet(snippet)
-                                            .icon(BitmapDescriptorFactory.defaultMarker(markerColor))
-                            );
+    // Full state for one cell: drop whatever the cell held that isn't in the result
+    private void replaceCellRooms(String prefix, List<Room> rooms) {
+        Set<String> present = new HashSet<>();
+        for (Room room : rooms) {
+            present.add(room.getId());
+            upsertRoom(room);
+        }
+        for (Room room : roomIndex.getAll()) {
+            String geohash = room.getGeohash();
+            if (geohash != null && geohash.startsWith(prefix) && !present.contains(room.getId())) {
+                removeRoomMarker(room.getId());
+            }
+        }
 
-                            if (marker != null) {
-                                marker.setTag(room.getId());
-                                markerRoomMap.put(marker, room);
-                            }
+        roomClusterer.setRooms(visibleRooms());
+        renderClusters();
+        Log.d(TAG, "Cell " + prefix + " holds " + present.size() + " rooms");
+    }
 
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error processing room", e);
-                        }
+    private void upsertRoom(Room room) {
+        String roomId = room.getId();
+        try {
+            if (room.getLatitude() == 0 || room.getLongitude() == 0) {
+                removeRoomMarker(roomId);
+                return;
+            }
+
+            roomIndex.put(room);
+            availability.setRanges(roomId, room.getBookedRanges());
+
+            // Rooms currently drawn on their own are updated in place
+            if (roomMarkers.containsKey(roomId)) {
+                addOrUpdateRoomMarker(room);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error processing room " + roomId, e);
+        }
+    }
+
+    // Forget rooms that no longer fall in any listened cell so memory follows the viewport
+    private void dropRoomsOutside(List<String> prefixes) {
+        List<String> dropped = new ArrayList<>();
+        for (Room room : roomIndex.getAll()) {
+            String geohash = room.getGeohash();
+            boolean covered = false;
+            if (geohash != null) {
+                for (String prefix : prefixes) {
+                    if (geohash.startsWith(prefix)) {
+                        covered = true;
+                        break;
                     }
-                    Log.d(TAG, "Loaded " + roomsList.size() + " rooms with " + markerRoomMap.size() + " markers");
-                });
+                }
+            }
+            if (!covered) dropped.add(room.getId());
+        }
+
+        for (String roomId : dropped) {
+            removeRoomMarker(roomId);
+        }
+        roomClusterer.setRooms(visibleRooms());
+    }
+
+    // Called on camera idle and after room changes; clustering itself runs off the main thread
+    private void renderClusters() {
+        if (myMap == null || roomClusterer == null) return;
+
+        float zoom = myMap.getCameraPosition().zoom;
+        roomClusterer.requestClusters(zoom, (zoomLevel, clusters) -> {
+            if (myMap == null) return;
+            applyClusters(clusters, myMap.getProjection().getVisibleRegion().latLngBounds);
+        });
+    }
+
+    private void applyClusters(List<RoomClusterer.Cluster> clusters, LatLngBounds visibleBounds) {
+        // Pad the viewport by half a screen so short pans don't pop markers in
+        double latPad = (visibleBounds.northeast.latitude - visibleBounds.southwest.latitude) / 2;
+        double lngPad = Math.abs(visibleBounds.northeast.longitude - visibleBounds.southwest.longitude) / 2;
+        double south = visibleBounds.southwest.latitude - latPad;
+        double north = visibleBounds.northeast.latitude + latPad;
+        double west = visibleBounds.southwest.longitude - lngPad;
+        double east = visibleBounds.northeast.longitude + lngPad;
+
+        Set<String> visibleRoomIds = new HashSet<>();
+        Map<String, RoomClusterer.Cluster> visibleClusters = new HashMap<>();
+
+        for (RoomClusterer.Cluster cluster : clusters) {
+            if (!cluster.isWithin(south, west, north, east)) continue;
+            if (cluster.isSingleRoom()) {
+                visibleRoomIds.add(cluster.getKey());
+            } else {
+                visibleClusters.put(cluster.getKey(), cluster);
+            }
+        }
+
+        // Drop markers that are off-screen or now belong to a different cluster
+        Iterator<Map.Entry<String, Marker>> roomIterator = roomMarkers.entrySet().iterator();
+        while (roomIterator.hasNext()) {
+            Map.Entry<String, Marker> entry = roomIterator.next();
+            if (!visibleRoomIds.contains(entry.getKey())) {
+                entry.getValue().remove();
+                roomIterator.remove();
+            }
+        }
+
+        Iterator<Map.Entry<String, Marker>> clusterIterator = clusterMarkers.entrySet().iterator();
+        while (clusterIterator.hasNext()) {
+            Map.Entry<String, Marker> entry = clusterIterator.next();
+            if (!visibleClusters.containsKey(entry.getKey())) {
+                entry.getValue().remove();
+                clusterIterator.remove();
+            }
+        }
+
+        for (String roomId : visibleRoomIds) {
+            Room room = roomIndex.get(roomId);
+            if (room != null && !roomMarkers.containsKey(roomId)) {
+                addOrUpdateRoomMarker(room);
+            }
+        }
+
+        for (RoomClusterer.Cluster cluster : visibleClusters.values()) {
+            Marker marker = clusterMarkers.get(cluster.getKey());
+            if (marker != null && cluster.hasSameContent((RoomClusterer.Cluster) marker.getTag())) {
+                continue;
+            }
+
+            LatLng position = new LatLng(cluster.getLatitude(), cluster.getLongitude());
+            if (marker == null) {
+                marker = myMap.addMarker(new MarkerOptions().position(position));
+                if (marker == null) continue;
+                clusterMarkers.put(cluster.getKey(), marker);
+            } else {
+                marker.setPosition(position);
+            }
+
+            marker.setTag(cluster);
+            marker.setTitle(cluster.getSize() + " rooms");
+            marker.setSnippet(cluster.getPriceRangeText());
+            marker.setIcon(BitmapDescriptorFactory.fromBitmap(
+                    ClusterIconFactory.getIcon(this, cluster.getSize())));
+        }
+    }
+
+    private void zoomIntoCluster(RoomClusterer.Cluster cluster) {
+        LatLngBounds bounds = new LatLngBounds(
+                new LatLng(cluster.getMinLatitude(), cluster.getMinLongitude()),
+                new LatLng(cluster.getMaxLatitude(), cluster.getMaxLongitude()));
+
+        float zoom = myMap.getCameraPosition().zoom;
+        if (bounds.southwest.equals(bounds.northeast)) {
+            // Rooms at the exact same spot: jump straight past the clustering zoom
+            myMap.animateCamera(CameraUpdateFactory.newLatLngZoom(bounds.getCenter(),
+                    Math.max(zoom + 2, RoomClusterer.MAX_CLUSTER_ZOOM)));
+        } else {
+            myMap.animateCamera(CameraUpdateFactory.newLatLngBounds(bounds, 150));
+        }
+    }
+
+    private void addOrUpdateRoomMarker(Room room) {
+        Marker marker = roomMarkers.get(room.getId());
+        LatLng roomLocation = new LatLng(room.getLatitude(), room.getLongitude());
+
+        if (marker == null) {
+            marker = myMap.addMarker(new MarkerOptions().position(roomLocation));
+            if (marker == null) return;
+            marker.setTag(room.getId());
+            roomMarkers.put(room.getId(), marker);
+        } else if (!marker.getPosition().equals(roomLocation)) {
+            marker.setPosition(roomLocation);
+        }
+
+        applyRoomMarkerStyle(marker, room);
+    }
+
+    private void removeRoomMarker(String roomId) {
+        roomIndex.remove(roomId);
+        availability.remove(roomId);
+        Marker marker = roomMarkers.remove(roomId);
+        if (marker != null) {
+            marker.remove();
+        }
+    }
+
+    private void applyRoomMarkerStyle(Marker marker, Room room) {
+        String status = roomBookingStatus.get(room.getId());
+        float markerColor = BitmapDescriptorFactory.HUE_BLUE;
+        String snippet = "Price: $" + room.getPrice();
+
+        if (status != null) {
+            switch (status) {
+                case "pending":
+                    markerColor = BitmapDescriptorFactory.HUE_ORANGE;
+                    snippet = "⚠️ Requested";
+                    break;
+                case "approved":
+                    markerColor = BitmapDescriptorFactory.HUE_GREEN;
+                    snippet = "✅ Approved";
+                    break;
+                case "rejected":
+                    markerColor = BitmapDescriptorFactory.HUE_RED;
+                    snippet = "❌ Rejected";
+                    break;
+                case "cancelled":
+                    markerColor = BitmapDescriptorFactory.HUE_VIOLET;
+                    snippet = "Cancelled";
+                    break;
+            }
+        }
+
+        marker.setTitle(room.getTitle());
+        marker.setSnippet(snippet);
+        marker.setIcon(BitmapDescriptorFactory.defaultMarker(markerColor));
+    }
+
+    // Recolor only the markers whose booking status actually changed
+    private void refreshRoomMarkers(Set<String> roomIds) {
+        if (myMap == null) return;
+        for (String roomId : roomIds) {
+            Room room = roomIndex.get(roomId);
+            Marker marker = roomMarkers.get(roomId);
+            if (room != null && marker != null) {
+                applyRoomMarkerStyle(marker, room);
+            }
+        }
     }
 
     private void showAllRoomsOnMap() {
-        if (roomsList.isEmpty()) {
+        if (roomIndex.isEmpty()) {
             Toast.makeText(this, "No rooms available", Toast.LENGTH_SHORT).show();
             return;
         }
 
         if (myMap != null) {
-            LatLngBounds.Builder builder = new LatLngBounds.Builder();
-
-            for (Room room : roomsList) {
-                builder.include(new LatLng(room.getLatitude(), room.getLongitude()));
-            }
+            // {south, west, north, east}, maintained by the index as rooms come and go
+            double[] roomBounds = roomIndex.getBounds();
+            LatLngBounds.Builder builder = new LatLngBounds.Builder()
+                    .include(new LatLng(roomBounds[0], roomBounds[1]))
+                    .include(new LatLng(roomBounds[2], roomBounds[3]));
 
             if (currentLocation != null) {
                 builder.include(new LatLng(currentLocation.getLatitude(), currentLocation.getLongitude()));
@@ -1034,6 +1364,18 @@ public class LocationMap extends AppCompatActivity implements OnMapReadyCallback
         if (locationCallback != null && fusedLocationProviderClient != null) {
             fusedLocationProviderClient.removeLocationUpdates(locationCallback);
         }
+        // Subscriptions end with the lifecycle, the map only forgets them
+        cellListeners.clear();
+        bookingsListener = null;
+        if (roomClusterer != null) {
+            roomClusterer.shutdown();
+        }
+        if (pendingSuggestionSearch != null) {
+            suggestionHandler.removeCallbacks(pendingSuggestionSearch);
+        }
+        if (suggestionsPopup != null) {
+            suggestionsPopup.dismiss();
+        }
     }
 
     @Override
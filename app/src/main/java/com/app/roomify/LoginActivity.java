@@ -12,6 +12,7 @@ import android.view.animation.AnimationUtils;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
 
@@ -296,34 +297,30 @@ public class LoginActivity extends AppCompatActivity {
 
         String userId = user.getUid();
 
-        db.collection("users").document(userId).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    showLoading(false);
+        StartupManager.getInstance(this).getRole(userId, new StartupManager.RoleCallback() {
+            @Override
+            public void onRole(@Nullable String role) {
+                showLoading(false);
 
-                    if (documentSnapshot.exists()) {
-                        String role = documentSnapshot.getString("role");
+                if (role != null) {
+                    // ✅ Go to correct dashboard based on role
+                    navigateBasedOnRole(role);
+                } else {
+                    // Not in Firestore or no role yet → send to registration
+                    goToRegistrationWithEmail(user.getEmail(), user.getDisplayName());
+                }
+            }
 
-                        if (role != null) {
-                            // ✅ Go to correct dashboard based on role
-                            navigateBasedOnRole(role);
-                        } else {
-                            // No role → send to registration
-                            goToRegistrationWithEmail(user.getEmail(), user.getDisplayName());
-                        }
+            @Override
+            public void onError(Exception e) {
+                showLoading(false);
+                Log.e(TAG, "Auto-login failed", e);
 
-                    } else {
-                        // User not in Firestore → new user
-                        goToRegistrationWithEmail(user.getEmail(), user.getDisplayName());
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    showLoading(false);
-                    Log.e(TAG, "Auto-login failed", e);
-
-                    Toast.makeText(this,
-                            "Failed to load user data",
-                            Toast.LENGTH_SHORT).show();
-                });
+                Toast.makeText(LoginActivity.this,
+                        "Failed to load user data",
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
     }
     private void signInAsGuest() {
         showLoading(true);
@@ -433,27 +430,25 @@ public class LoginActivity extends AppCompatActivity {
     private void checkUserExistsInFirestore(FirebaseUser user) {
         String userId = user.getUid();
 
-        db.collection("users").document(userId).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        // User exists, check role and navigate
-                        String userRole = documentSnapshot.getString("role");
-                        if (userRole != null) {
-                            navigateBasedOnRole(userRole);
-                        } else {
-                            // No role assigned, go to registration to select role
-                            goToRegistrationWithEmail(user.getEmail(), user.getDisplayName());
-                        }
-                    } else {
-                        // New user, go to registration
-                        goToRegistrationWithEmail(user.getEmail(), user.getDisplayName());
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error checking user existence", e);
-                    Toast.makeText(this, "Error checking user data", Toast.LENGTH_SHORT).show();
-                    goToDashboard(); // Fallback to dashboard
-                });
+        StartupManager.getInstance(this).getRole(userId, new StartupManager.RoleCallback() {
+            @Override
+            public void onRole(@Nullable String userRole) {
+                if (userRole != null) {
+                    // User exists, navigate by role
+                    navigateBasedOnRole(userRole);
+                } else {
+                    // New user or no role assigned, go to registration to select role
+                    goToRegistrationWithEmail(user.getEmail(), user.getDisplayName());
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error checking user existence", e);
+                Toast.makeText(LoginActivity.this, "Error checking user data", Toast.LENGTH_SHORT).show();
+                goToDashboard(); // Fallback to dashboard
+            }
+        });
     }
 
     private void goToRegistrationWithEmail(String email, String name) {
@@ -467,44 +462,47 @@ public class LoginActivity extends AppCompatActivity {
     private void checkUserRoleAndNavigate(String userId) {
         showLoading(true);
 
-        db.collection("users").document(userId).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    showLoading(false);
-                    if (documentSnapshot.exists()) {
-                        String userRole = documentSnapshot.getString("role");
-
-                        // Validate selected role matches actual user role
-                        if (userRole != null && userRole.equals(selectedRole)) {
-                            // Role matches, navigate to appropriate activity
-                            navigateBasedOnRole(userRole);
-                        } else {
-                            // Role mismatch
-                            Toast.makeText(LoginActivity.this,
-                                    "You selected " + selectedRole + " but your account is registered as " + userRole,
-                                    Toast.LENGTH_LONG).show();
+        StartupManager.getInstance(this).getRole(userId, new StartupManager.RoleCallback() {
+            @Override
+            public void onRole(@Nullable String userRole) {
+                showLoading(false);
+                if (userRole == null) {
+                    // User document not found
+                    Toast.makeText(LoginActivity.this,
+                            "User data not found. Please contact support.",
+                            Toast.LENGTH_LONG).show();
+                    mAuth.signOut();
+                    return;
+                }
 
-                            // Auto-correct the role selection
-                            if ("owner".equals(userRole)) {
-                                chipOwnerLogin.setChecked(true);
-                            } else if ("tenant".equals(userRole)) {
-                                chipTenantLogin.setChecked(true);
-                            }
-                        }
-                    } else {
-                        // User document not found
-                        Toast.makeText(LoginActivity.this,
-                                "User data not found. Please contact support.",
-                                Toast.LENGTH_LONG).show();
-                        mAuth.signOut();
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    showLoading(false);
-                    Log.e(TAG, "Error checking user role", e);
+                // Validate selected role matches actual user role
+                if (userRole.equals(selectedRole)) {
+                    // Role matches, navigate to appropriate activity
+                    navigateBasedOnRole(userRole);
+                } else {
+                    // Role mismatch
                     Toast.makeText(LoginActivity.this,
-                            "Error checking user role: " + e.getMessage(),
-                            Toast.LENGTH_SHORT).show();
-                });
+                            "You selected " + selectedRole + " but your account is registered as " + userRole,
+                            Toast.LENGTH_LONG).show();
+
+                    // Auto-correct the role selection
+                    if ("owner".equals(userRole)) {
+                        chipOwnerLogin.setChecked(true);
+                    } else if ("tenant".equals(userRole)) {
+                        chipTenantLogin.setChecked(true);
+                    }
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                showLoading(false);
+                Log.e(TAG, "Error checking user role", e);
+                Toast.makeText(LoginActivity.this,
+                        "Error checking user role: " + e.getMessage(),
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private void navigateBasedOnRole(String role) {
@@ -4,6 +4,7 @@ import android.os.Bundle;
 import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.graphics.drawable.BitmapDrawable;
 import android.util.Log;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
@@ -12,16 +13,22 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationServices;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 import org.osmdroid.config.Configuration;
+import org.osmdroid.events.DelayedMapListener;
+import org.osmdroid.events.MapListener;
+import org.osmdroid.events.ScrollEvent;
+import org.osmdroid.events.ZoomEvent;
 import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
+import org.osmdroid.util.BoundingBox;
 import org.osmdroid.util.GeoPoint;
 import org.osmdroid.views.MapView;
 import org.osmdroid.views.overlay.Marker;
 import org.osmdroid.views.overlay.compass.CompassOverlay;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 public class MainMapActivity extends AppCompatActivity {
 
@@ -31,10 +38,15 @@ public class MainMapActivity extends AppCompatActivity {
 
     private MapView mapView;
     private FusedLocationProviderClient fusedLocationClient;
-    private List<Room> roomsList = new ArrayList<>();
-    private FirebaseFirestore db;
     private boolean shouldRefreshRooms = true;
 
+    private static final long CAMERA_IDLE_DELAY_MS = 200;
+    private final RoomSpatialIndex roomIndex = new RoomSpatialIndex();
+    private final Map<String, Marker> clusterMarkers = new HashMap<>();
+    // One live repository subscription per geohash cell in view
+    private final Map<String, RoomRepository.Subscription> cellSubscriptions = new HashMap<>();
+    private RoomClusterer roomClusterer;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -45,8 +57,7 @@ public class MainMapActivity extends AppCompatActivity {
 
         setContentView(R.layout.activity_main_map);
 
-        // Initialize Firebase
-        db = FirebaseFirestore.getInstance();
+        roomClusterer = new RoomClusterer(ContextCompat.getMainExecutor(this));
 
         // Initialize views and map
         initViews();
@@ -84,52 +95,231 @@ public class MainMapActivity extends AppCompatActivity {
         mapView.getController().setCenter(DEFAULT_LOCATION);
         mapView.getController().setZoom(12.0);
 
+        // Re-query and re-cluster once scrolling/zooming settles
+        mapView.addMapListener(new DelayedMapListener(new MapListener() {
+            @Override
+            public boolean onScroll(ScrollEvent event) {
+                loadVisibleCells();
+                renderClusters();
+                return false;
+            }
+
+            @Override
+            public boolean onZoom(ZoomEvent event) {
+                loadVisibleCells();
+                renderClusters();
+                return false;
+            }
+        }, CAMERA_IDLE_DELAY_MS));
+
         // Initialize location client
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
     }
 
+    // Full refresh of the visible cells (first load, returning to the screen)
     private void loadRoomsFromFirebase() {
-        db.collection("rooms")
-                .whereEqualTo("isAvailable", true)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    roomsList.clear();
-                    for (QueryDocumentSnapshot document : querySnapshot) {
-                        Room room = document.toObject(Room.class);
-                        room.setId(document.getId());
-                        roomsList.add(room);
+        for (RoomRepository.Subscription subscription : cellSubscriptions.values()) {
+            subscription.remove();
+        }
+        cellSubscriptions.clear();
+        loadVisibleCells();
+    }
+
+    // Fetch only the geohash cells covering the viewport that haven't been loaded yet
+    private void loadVisibleCells() {
+        if (mapView == null) return;
+        if (mapView.getWidth() == 0) {
+            // Bounding box is meaningless before the first layout pass
+            mapView.addOnFirstLayoutListener((v, left, top, right, bottom) -> loadVisibleCells());
+            return;
+        }
+
+        BoundingBox box = mapView.getBoundingBox();
+        List<String> prefixes = GeoHash.coveringPrefixes(
+                box.getLatSouth(), box.getLonWest(), box.getLatNorth(), box.getLonEast());
+
+        // Cells that left the viewport are unsubscribed and their rooms forgotten
+        boolean droppedCells = false;
+        Iterator<Map.Entry<String, RoomRepository.Subscription>> cells = cellSubscriptions.entrySet().iterator();
+        while (cells.hasNext()) {
+            Map.Entry<String, RoomRepository.Subscription> cell = cells.next();
+            if (!prefixes.contains(cell.getKey())) {
+                cell.getValue().remove();
+                cells.remove();
+                droppedCells = true;
+            }
+        }
+        if (droppedCells) {
+            dropRoomsOutside(prefixes);
+        }
+
+        RoomRepository repository = RoomRepository.getInstance(this);
+        for (String prefix : prefixes) {
+            if (cellSubscriptions.containsKey(prefix)) continue;
+
+            // Same cell query as LocationMap, so the two maps share results
+            RoomQuery cellQuery = RoomQuery.summaries()
+                    .whereEqualTo("isAvailable", true)
+                    .whereStartsWith("geohash", prefix);
+
+            // Answered from memory for cells seen before, then kept live until the cell leaves view
+            RoomRepository.Subscription subscription = repository.observe(this, cellQuery, new RoomRepository.Observer() {
+                @Override
+                public void onRooms(@NonNull List<Room> rooms, boolean fromCache) {
+                    // Replace whatever this cell held before with the new result
+                    List<String> stale = new ArrayList<>();
+                    for (Room room : roomIndex.getAll()) {
+                        if (room.getGeohash() != null && room.getGeohash().startsWith(prefix)) {
+                            stale.add(room.getId());
+                        }
+                    }
+                    for (String roomId : stale) {
+                        removeRoom(roomId);
+                    }
+
+                    for (Room room : rooms) {
+                        removeMarker(room.getId());
+                        roomIndex.put(room);
                     }
                     addRoomMarkersToMap();
-                })
-                .addOnFailureListener(e -> {
+                }
+
+                @Override
+                public void onError(@NonNull Exception e) {
+                    RoomRepository.Subscription failed = cellSubscriptions.remove(prefix);
+                    if (failed != null) failed.remove();
                     Log.e(TAG, "Failed to load rooms", e);
-                    Toast.makeText(this, "Failed to load rooms", Toast.LENGTH_SHORT).show();
-                });
+                    Toast.makeText(MainMapActivity.this, "Failed to load rooms", Toast.LENGTH_SHORT).show();
+                }
+            });
+            cellSubscriptions.put(prefix, subscription);
+        }
+    }
+
+    // Keep memory proportional to the viewport, not to everything panned over
+    private void dropRoomsOutside(List<String> prefixes) {
+        List<String> dropped = new ArrayList<>();
+        for (Room room : roomIndex.getAll()) {
+            boolean covered = false;
+            if (room.getGeohash() != null) {
+                for (String prefix : prefixes) {
+                    if (room.getGeohash().startsWith(prefix)) {
+                        covered = true;
+                        break;
+                    }
+                }
+            }
+            if (!covered) dropped.add(room.getId());
+        }
+
+        for (String roomId : dropped) {
+            removeRoom(roomId);
+        }
+        roomClusterer.setRooms(roomIndex.getAll());
+    }
+
+    private void removeRoom(String roomId) {
+        roomIndex.remove(roomId);
+        removeMarker(roomId);
+    }
+
+    private void removeMarker(String key) {
+        Marker marker = clusterMarkers.remove(key);
+        if (marker != null) {
+            mapView.getOverlays().remove(marker);
+        }
     }
 
     private void addRoomMarkersToMap() {
-        // Clear existing markers (except compass)
-        mapView.getOverlays().removeIf(overlay -> overlay instanceof Marker
-                && !"Your Location".equals(((Marker) overlay).getTitle()));
-
-        for (Room room : roomsList) {
-            if (room.getLatitude() == 0.0 && room.getLongitude() == 0.0) continue;
-
-            Marker marker = new Marker(mapView);
-            marker.setPosition(new GeoPoint(room.getLatitude(), room.getLongitude()));
-            marker.setTitle(room.getTitle());
-            marker.setSnippet("$" + room.getPrice() + "/month\n" + room.getAddress());
-            marker.setAnchor(Marker.ANCHOR_CENTER, Marker.ANCHOR_BOTTOM);
-            marker.setIcon(ContextCompat.getDrawable(this,
-                    room.isAvailable() ? R.drawable.ic_room_available : R.drawable.ic_room_occupied));
-            marker.setOnMarkerClickListener((m, mv) -> {
-                showRoomDetails(room);
-                return true;
-            });
+        roomClusterer.setRooms(roomIndex.getAll());
+        renderClusters();
+    }
+
+    // Clustering runs off the main thread; only markers inside the padded viewport are kept
+    private void renderClusters() {
+        if (mapView == null) return;
+
+        roomClusterer.requestClusters((float) mapView.getZoomLevelDouble(), (zoomLevel, clusters) -> {
+            BoundingBox box = mapView.getBoundingBox();
+            double latPad = box.getLatitudeSpan() / 2;
+            double lngPad = box.getLongitudeSpan() / 2;
+
+            Map<String, RoomClusterer.Cluster> visible = new HashMap<>();
+            for (RoomClusterer.Cluster cluster : clusters) {
+                if (cluster.isWithin(box.getLatSouth() - latPad, box.getLonWest() - lngPad,
+                        box.getLatNorth() + latPad, box.getLonEast() + lngPad)) {
+                    visible.put(cluster.getKey(), cluster);
+                }
+            }
+
+            Iterator<Map.Entry<String, Marker>> iterator = clusterMarkers.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Marker> entry = iterator.next();
+                RoomClusterer.Cluster cluster = visible.get(entry.getKey());
+                if (cluster == null || !cluster.hasSameContent((RoomClusterer.Cluster) entry.getValue().getRelatedObject())) {
+                    mapView.getOverlays().remove(entry.getValue());
+                    iterator.remove();
+                }
+            }
+
+            for (RoomClusterer.Cluster cluster : visible.values()) {
+                if (clusterMarkers.containsKey(cluster.getKey())) continue;
+                Marker marker = cluster.isSingleRoom()
+                        ? createRoomMarker(roomIndex.get(cluster.getKey()))
+                        : createClusterMarker(cluster);
+                if (marker == null) continue;
+                marker.setRelatedObject(cluster);
+                clusterMarkers.put(cluster.getKey(), marker);
+                mapView.getOverlays().add(marker);
+            }
+            mapView.invalidate();
+        });
+    }
 
-            mapView.getOverlays().add(marker);
+    private Marker createRoomMarker(Room room) {
+        if (room == null) return null;
+
+        Marker marker = new Marker(mapView);
+        marker.setPosition(new GeoPoint(room.getLatitude(), room.getLongitude()));
+        marker.setTitle(room.getTitle());
+        marker.setSnippet("$" + room.getPrice() + "/month\n" + room.getAddress());
+        marker.setAnchor(Marker.ANCHOR_CENTER, Marker.ANCHOR_BOTTOM);
+        marker.setIcon(ContextCompat.getDrawable(this,
+                room.isAvailable() ? R.drawable.ic_room_available : R.drawable.ic_room_occupied));
+        marker.setOnMarkerClickListener((m, mv) -> {
+            showRoomDetails(room);
+            return true;
+        });
+        return marker;
+    }
+
+    private Marker createClusterMarker(RoomClusterer.Cluster cluster) {
+        Marker marker = new Marker(mapView);
+        marker.setPosition(new GeoPoint(cluster.getLatitude(), cluster.getLongitude()));
+        marker.setTitle(cluster.getSize() + " rooms");
+        marker.setSnippet(cluster.getPriceRangeText());
+        marker.setAnchor(Marker.ANCHOR_CENTER, Marker.ANCHOR_CENTER);
+        marker.setIcon(new BitmapDrawable(getResources(),
+                ClusterIconFactory.getIcon(this, cluster.getSize())));
+        marker.setOnMarkerClickListener((m, mv) -> {
+            zoomIntoCluster(cluster);
+            return true;
+        });
+        return marker;
+    }
+
+    private void zoomIntoCluster(RoomClusterer.Cluster cluster) {
+        if (cluster.getMinLatitude() == cluster.getMaxLatitude()
+                && cluster.getMinLongitude() == cluster.getMaxLongitude()) {
+            // Rooms at the exact same spot: jump straight past the clustering zoom
+            mapView.getController().setZoom((double) Math.max(
+                    mapView.getZoomLevelDouble() + 2, RoomClusterer.MAX_CLUSTER_ZOOM));
+            mapView.getController().animateTo(new GeoPoint(cluster.getLatitude(), cluster.getLongitude()));
+        } else {
+            BoundingBox bounds = new BoundingBox(cluster.getMaxLatitude(), cluster.getMaxLongitude(),
+                    cluster.getMinLatitude(), cluster.getMinLongitude());
+            mapView.zoomToBoundingBox(bounds.increaseByScale(1.3f), true);
         }
-        mapView.invalidate();
     }
 
     private void showRoomDetails(Room room) {
@@ -228,6 +418,12 @@ public class MainMapActivity extends AppCompatActivity {
         if (mapView != null) mapView.onPause();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (roomClusterer != null) roomClusterer.shutdown();
+    }
+
     public void setShouldRefreshRooms(boolean shouldRefresh) {
         this.shouldRefreshRooms = shouldRefresh;
     }
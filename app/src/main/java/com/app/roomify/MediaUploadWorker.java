@@ -0,0 +1,532 @@
+package com.app.roomify;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.ServiceInfo;
+import android.database.Cursor;
+import android.net.ConnectivityManager;
+import android.net.NetworkCapabilities;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.app.NotificationCompat;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.ForegroundInfo;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.UploadTask;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uploads a posted room's photos, video and contract in the background.
+ *
+ * Runs as a foreground worker so it survives PostRoomActivity being closed. Parallel
+ * uploads are capped by network type. Each upload's Firebase Storage session URI is kept
+ * in SharedPreferences, so a retry resumes from the last confirmed byte instead of
+ * starting over; WorkManager retries with exponential backoff. Finished files are
+ * remembered too and skipped on retry. Progress is published as bytes done / total.
+ *
+ * The room is created as a "draft" with no summary; once everything is up its URLs are
+ * written in a single batch that also activates it and creates its summary.
+ */
+public class MediaUploadWorker extends Worker {
+
+    private static final String TAG = "MediaUploadWorker";
+
+    private static final String KEY_ROOM_ID = "roomId";
+    private static final String KEY_IMAGE_URIS = "imageUris";
+    private static final String KEY_VIDEO_URI = "videoUri";
+    private static final String KEY_CONTRACT_URI = "contractUri";
+
+    public static final String PROGRESS_BYTES_DONE = "bytesDone";
+    public static final String PROGRESS_BYTES_TOTAL = "bytesTotal";
+
+    private static final int MAX_ATTEMPTS = 6;
+    private static final String PREFS = "media_uploads";
+    private static final String CHANNEL_ID = "media_uploads";
+    private static final int NOTIFICATION_ID = 4201;
+
+    private static final String KIND_IMAGE = "image";
+    private static final String KIND_VIDEO = "video";
+    private static final String KIND_CONTRACT = "contract";
+
+    private static class Item {
+        final String kind;
+        final String path;
+        final Uri source;
+        final String contentType;
+        final long size;
+        // Images only
+        final int imageIndex;
+        final ImageRenditions.Size rendition;
+
+        Item(String kind, String path, Uri source, String contentType, long size,
+             int imageIndex, @Nullable ImageRenditions.Size rendition) {
+            this.kind = kind;
+            this.path = path;
+            this.source = source;
+            this.contentType = contentType;
+            this.size = size;
+            this.imageIndex = imageIndex;
+            this.rendition = rendition;
+        }
+    }
+
+    private SharedPreferences prefs;
+    private String roomId;
+    // Upload callbacks all run here, so the maps below need no locking
+    private ExecutorService callbackExecutor;
+    private final Map<String, Long> transferred = new HashMap<>();
+    private long totalBytes;
+    private int lastPercent = -1;
+
+    public MediaUploadWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Queue the uploads for a freshly created room. The source URIs must stay readable
+     * after the activity is gone (persisted document permissions).
+     *
+     * @return Work id to observe for progress
+     */
+    public static UUID enqueue(Context context, String roomId, List<Uri> images,
+                               @Nullable Uri video, @Nullable Uri contract) {
+        String[] imageUris = new String[images.size()];
+        for (int i = 0; i < images.size(); i++) {
+            imageUris[i] = images.get(i).toString();
+        }
+
+        Data input = new Data.Builder()
+                .putString(KEY_ROOM_ID, roomId)
+                .putStringArray(KEY_IMAGE_URIS, imageUris)
+                .putString(KEY_VIDEO_URI, video != null ? video.toString() : null)
+                .putString(KEY_CONTRACT_URI, contract != null ? contract.toString() : null)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(MediaUploadWorker.class)
+                .setInputData(input)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 15, TimeUnit.SECONDS)
+                .addTag(TAG)
+                .build();
+
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork("media_upload_" + roomId, ExistingWorkPolicy.KEEP, request);
+        return request.getId();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        roomId = getInputData().getString(KEY_ROOM_ID);
+        if (roomId == null) return Result.failure();
+        prefs = getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+
+        try {
+            setForegroundAsync(createForegroundInfo(0)).get();
+        } catch (Exception e) {
+            // Not allowed from the background on newer Android, carry on as a plain worker
+            Log.e(TAG, "Could not run in the foreground", e);
+        }
+
+        List<Item> items;
+        try {
+            items = prepareItems();
+        } catch (IOException | SecurityException e) {
+            // Source unreadable, retrying won't help
+            Log.e(TAG, "Could not read media for room " + roomId, e);
+            cleanUp();
+            return Result.failure();
+        }
+
+        for (Item item : items) {
+            totalBytes += item.size;
+        }
+
+        callbackExecutor = Executors.newSingleThreadExecutor();
+        int parallel = maxParallelUploads();
+        Semaphore slots = new Semaphore(parallel);
+        Log.d(TAG, "Uploading " + items.size() + " files for room " + roomId
+                + " (" + totalBytes + " bytes, " + parallel + " at a time)");
+
+        List<Task<String>> uploads = new ArrayList<>();
+        try {
+            for (Item item : items) {
+                slots.acquire();
+                if (isStopped()) break;
+                uploads.add(upload(item).addOnCompleteListener(callbackExecutor, t -> slots.release()));
+            }
+            Tasks.await(Tasks.whenAll(uploads));
+        } catch (ExecutionException | InterruptedException e) {
+            Log.e(TAG, "Upload attempt " + getRunAttemptCount() + " failed for room " + roomId, e);
+            if (getRunAttemptCount() + 1 < MAX_ATTEMPTS) {
+                return Result.retry();
+            }
+            // Out of attempts: publish with whatever made it rather than leave a hidden draft
+            publishQuietly(items, uploads);
+            cleanUp();
+            return Result.failure();
+        } finally {
+            callbackExecutor.shutdown();
+        }
+
+        if (isStopped()) return Result.retry();
+
+        try {
+            publish(items, uploads);
+        } catch (ExecutionException | InterruptedException e) {
+            Log.e(TAG, "Publishing room " + roomId + " failed", e);
+            return Result.retry();
+        }
+
+        cleanUp();
+        return Result.success(new Data.Builder()
+                .putLong(PROGRESS_BYTES_DONE, totalBytes)
+                .putLong(PROGRESS_BYTES_TOTAL, totalBytes)
+                .build());
+    }
+
+    // ==================== PREPARATION ====================
+
+    // Photos are encoded into renditions once and kept in the cache until the room is done,
+    // so retries upload the same bytes and can resume their sessions
+    private List<Item> prepareItems() throws IOException {
+        List<Item> items = new ArrayList<>();
+        File dir = cacheDir();
+
+        String[] imageUris = getInputData().getStringArray(KEY_IMAGE_URIS);
+        if (imageUris != null) {
+            for (int i = 0; i < imageUris.length; i++) {
+                String baseName = "image_" + i;
+                Uri source = Uri.parse(imageUris[i]);
+                List<ImageRenditions.Encoded> encoded = null;
+
+                for (ImageRenditions.Size size : ImageRenditions.Size.values()) {
+                    String path = ImageRenditions.path(size, baseName);
+                    File file = new File(dir, path.replace('/', '_'));
+                    if (!file.exists()) {
+                        if (encoded == null) {
+                            encoded = ImageRenditions.encode(getApplicationContext(), source);
+                        }
+                        writeFile(file, bytesFor(encoded, size));
+                    }
+                    items.add(new Item(KIND_IMAGE, path, Uri.fromFile(file),
+                            ImageRenditions.contentType(), file.length(), i, size));
+                }
+            }
+        }
+
+        String contract = getInputData().getString(KEY_CONTRACT_URI);
+        if (contract != null) {
+            Uri source = Uri.parse(contract);
+            items.add(new Item(KIND_CONTRACT, "contracts/contract.pdf", source,
+                    "application/pdf", sizeOf(source), -1, null));
+        }
+
+        // Largest last, so photos and the contract aren't stuck behind it
+        String video = getInputData().getString(KEY_VIDEO_URI);
+        if (video != null) {
+            Uri source = Uri.parse(video);
+            items.add(new Item(KIND_VIDEO, "video/video.mp4", source,
+                    "video/mp4", sizeOf(source), -1, null));
+        }
+        return items;
+    }
+
+    private static byte[] bytesFor(List<ImageRenditions.Encoded> encoded, ImageRenditions.Size size) {
+        for (ImageRenditions.Encoded rendition : encoded) {
+            if (rendition.size == size) return rendition.bytes;
+        }
+        throw new IllegalStateException("Missing rendition " + size);
+    }
+
+    private static void writeFile(File file, byte[] bytes) throws IOException {
+        File partial = new File(file.getPath() + ".part");
+        try (FileOutputStream out = new FileOutputStream(partial)) {
+            out.write(bytes);
+        }
+        if (!partial.renameTo(file)) {
+            throw new IOException("Could not write " + file);
+        }
+    }
+
+    private long sizeOf(Uri uri) {
+        try (Cursor cursor = getApplicationContext().getContentResolver()
+                .query(uri, new String[]{OpenableColumns.SIZE}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getLong(0);
+            }
+        }
+        return 0;
+    }
+
+    private File cacheDir() throws IOException {
+        File dir = new File(getApplicationContext().getCacheDir(), "uploads/" + roomId);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+        return dir;
+    }
+
+    // ==================== UPLOADING ====================
+
+    // Resolves to the file's download URL
+    private Task<String> upload(Item item) {
+        String doneKey = "done:" + roomId + "/" + item.path;
+        String uploadedUrl = prefs.getString(doneKey, null);
+        if (uploadedUrl != null) {
+            // Finished on an earlier attempt; counted on callbackExecutor like every other report
+            callbackExecutor.execute(() -> onProgress(item, item.size));
+            return Tasks.forResult(uploadedUrl);
+        }
+
+        StorageReference ref = FirebaseStorage.getInstance().getReference()
+                .child("rooms/" + roomId + "/" + item.path);
+        StorageMetadata metadata = new StorageMetadata.Builder()
+                .setContentType(item.contentType)
+                .build();
+
+        String sessionKey = "session:" + roomId + "/" + item.path;
+        String session = prefs.getString(sessionKey, null);
+        UploadTask task = session != null
+                ? ref.putFile(item.source, metadata, Uri.parse(session))
+                : ref.putFile(item.source, metadata);
+        if (session != null) Log.d(TAG, "Resuming " + item.path);
+
+        task.addOnProgressListener(callbackExecutor, snapshot -> {
+            Uri sessionUri = snapshot.getUploadSessionUri();
+            if (sessionUri != null && !sessionUri.toString().equals(prefs.getString(sessionKey, null))) {
+                prefs.edit().putString(sessionKey, sessionUri.toString()).apply();
+            }
+            onProgress(item, snapshot.getBytesTransferred());
+        });
+
+        return task.continueWithTask(callbackExecutor, t -> {
+            if (!t.isSuccessful()) {
+                Exception error = t.getException();
+                if (isSessionRejected(error)) {
+                    prefs.edit().remove(sessionKey).apply();
+                }
+                throw error != null ? error : new IOException("Upload cancelled: " + item.path);
+            }
+            return ref.getDownloadUrl();
+        }).continueWith(callbackExecutor, t -> {
+            String url = t.getResult().toString();
+            prefs.edit().remove(sessionKey).putString(doneKey, url).apply();
+            onProgress(item, item.size);
+            return url;
+        });
+    }
+
+    private static boolean hasEveryRendition(Map<String, Object> entry) {
+        for (ImageRenditions.Size size : ImageRenditions.Size.values()) {
+            if (!(entry.get(size.key) instanceof String)) return false;
+        }
+        return true;
+    }
+
+    // An expired or unknown session can't be resumed, the next attempt starts fresh
+    private static boolean isSessionRejected(@Nullable Exception e) {
+        if (!(e instanceof StorageException)) return false;
+        int http = ((StorageException) e).getHttpResultCode();
+        return http == 400 || http == 404 || http == 410;
+    }
+
+    // ==================== PUBLISHING ====================
+
+    /**
+     * Write every URL to the room in one update and flip it from draft to active. The
+     * summary is only created here, so map and list listeners see the room once, complete.
+     */
+    private void publish(List<Item> items, List<Task<String>> uploads)
+            throws ExecutionException, InterruptedException {
+        Map<Integer, Map<String, Object>> renditions = new TreeMap<>();
+        Map<String, Object> updates = new HashMap<>();
+
+        for (int i = 0; i < uploads.size(); i++) {
+            Task<String> upload = uploads.get(i);
+            if (!upload.isSuccessful()) continue;
+            Item item = items.get(i);
+            String url = upload.getResult();
+
+            if (KIND_IMAGE.equals(item.kind)) {
+                Map<String, Object> entry = renditions.get(item.imageIndex);
+                if (entry == null) {
+                    entry = new HashMap<>();
+                    entry.put("index", item.imageIndex);
+                    renditions.put(item.imageIndex, entry);
+                }
+                entry.put(item.rendition.key, url);
+            } else if (KIND_VIDEO.equals(item.kind)) {
+                updates.put("videoUrl", url);
+                updates.put("hasVideo", true);
+            } else {
+                updates.put("contractUrl", url);
+                updates.put("hasContract", true);
+            }
+        }
+
+        // Only photos with every rendition up count
+        List<String> images = new ArrayList<>();
+        List<Map<String, Object>> imageRenditions = new ArrayList<>();
+        for (Map<String, Object> entry : renditions.values()) {
+            if (!hasEveryRendition(entry)) continue;
+            images.add((String) entry.get(ImageRenditions.Size.FULL.key));
+            imageRenditions.add(entry);
+        }
+        updates.put("images", images);
+        updates.put("imageRenditions", imageRenditions);
+        updates.put("imageCount", images.size());
+        updates.put("imagesUpdatedAt", System.currentTimeMillis());
+        updates.put("status", "active");
+        RoomChanges.stamp(updates);
+
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        DocumentReference roomRef = db.collection("rooms").document(roomId);
+        DocumentSnapshot room = Tasks.await(roomRef.get(Source.SERVER));
+        if (!room.exists() || room.getData() == null) {
+            Log.d(TAG, "Room " + roomId + " was deleted while uploading");
+            return;
+        }
+
+        Map<String, Object> published = new HashMap<>(room.getData());
+        published.putAll(updates);
+        Map<String, Object> summary = RoomSummaries.fromRoomData(published);
+        if (!imageRenditions.isEmpty()) {
+            summary.put(RoomSummaries.FIELD_THUMBNAIL, imageRenditions.get(0).get(ImageRenditions.Size.THUMB.key));
+        }
+
+        WriteBatch batch = db.batch();
+        batch.update(roomRef, updates);
+        batch.set(RoomSummaries.document(roomId), summary);
+        Tasks.await(batch.commit());
+        Log.d(TAG, "Published room " + roomId + " with " + images.size() + " photos");
+    }
+
+    private void publishQuietly(List<Item> items, List<Task<String>> uploads) {
+        try {
+            publish(items, uploads);
+        } catch (ExecutionException | InterruptedException e) {
+            Log.e(TAG, "Publishing room " + roomId + " failed", e);
+        }
+    }
+
+    private int maxParallelUploads() {
+        ConnectivityManager cm = (ConnectivityManager) getApplicationContext()
+                .getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkCapabilities caps = cm != null ? cm.getNetworkCapabilities(cm.getActiveNetwork()) : null;
+        if (caps == null) return 1;
+        if (caps.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)
+                || caps.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+            return 4;
+        }
+        if (caps.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+            return 2;
+        }
+        return 1;
+    }
+
+    // ==================== PROGRESS ====================
+
+    private void onProgress(Item item, long bytes) {
+        transferred.put(item.path, bytes);
+        long done = 0;
+        for (long value : transferred.values()) {
+            done += value;
+        }
+
+        int percent = totalBytes > 0 ? (int) Math.min(100, done * 100 / totalBytes) : 0;
+        if (percent == lastPercent) return;
+        lastPercent = percent;
+
+        setProgressAsync(new Data.Builder()
+                .putLong(PROGRESS_BYTES_DONE, done)
+                .putLong(PROGRESS_BYTES_TOTAL, totalBytes)
+                .build());
+        setForegroundAsync(createForegroundInfo(percent));
+    }
+
+    private ForegroundInfo createForegroundInfo(int percent) {
+        Context context = getApplicationContext();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(
+                    CHANNEL_ID, "Uploads", NotificationManager.IMPORTANCE_LOW);
+            context.getSystemService(NotificationManager.class).createNotificationChannel(channel);
+        }
+
+        android.app.Notification notification = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_apartment)
+                .setContentTitle("Uploading room media")
+                .setProgress(100, percent, percent == 0)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .build();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return new ForegroundInfo(NOTIFICATION_ID, notification,
+                    ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
+        }
+        return new ForegroundInfo(NOTIFICATION_ID, notification);
+    }
+
+    private void cleanUp() {
+        String prefix = roomId + "/";
+        SharedPreferences.Editor editor = prefs.edit();
+        for (String key : prefs.getAll().keySet()) {
+            if (key.startsWith("done:" + prefix) || key.startsWith("session:" + prefix)) {
+                editor.remove(key);
+            }
+        }
+        editor.apply();
+
+        File dir = new File(getApplicationContext().getCacheDir(), "uploads/" + roomId);
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.delete()) Log.e(TAG, "Could not delete " + file);
+            }
+        }
+        dir.delete();
+    }
+}
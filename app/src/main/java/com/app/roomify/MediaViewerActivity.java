@@ -1,17 +1,34 @@
 package com.app.roomify;
 
+import android.Manifest;
 import android.content.Intent;
+import android.content.pm.PackageManager;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Environment;
+import android.util.Log;
 import android.view.View;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
-import android.widget.VideoView;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.OptIn;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+import androidx.core.content.FileProvider;
+import androidx.core.util.Consumer;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.source.DefaultMediaSourceFactory;
+import androidx.media3.ui.PlayerView;
 import androidx.viewpager2.widget.ViewPager2;
 
 import com.bumptech.glide.Glide;
@@ -19,6 +36,8 @@ import com.google.android.material.button.MaterialButton;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageReference;
 
+import java.io.File;
+import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -35,8 +54,11 @@ public class MediaViewerActivity extends AppCompatActivity {
     public static final int MEDIA_TYPE_VIDEO = 2;
     public static final int MEDIA_TYPE_DOCUMENT = 3;
 
+    private static final int STORAGE_PERMISSION_REQUEST_CODE = 201;
+
     private ViewPager2 viewPagerImages;
-    private VideoView videoView;
+    private PlayerView videoView;
+    private ExoPlayer player;
     private ImageView ivDocumentPreview;
     private TextView tvDocumentName, tvDocumentSize;
     private MaterialButton btnDownload, btnShare, btnOpenWith;
@@ -49,6 +71,9 @@ public class MediaViewerActivity extends AppCompatActivity {
     private String roomTitle;
     private String documentUrl;
     private String documentName;
+    private CharSequence downloadLabel;
+    private String activeDownloadUrl;
+    private DownloadEngine.Listener activeDownload;
 
     private FirebaseStorage storage;
 
@@ -71,6 +96,7 @@ public class MediaViewerActivity extends AppCompatActivity {
         tvDocumentName = findViewById(R.id.tvDocumentName);
         tvDocumentSize = findViewById(R.id.tvDocumentSize);
         btnDownload = findViewById(R.id.btnDownload);
+        downloadLabel = btnDownload.getText();
         btnShare = findViewById(R.id.btnShare);
         btnOpenWith = findViewById(R.id.btnOpenWith);
         progressBar = findViewById(R.id.progressBar);
@@ -137,26 +163,35 @@ public class MediaViewerActivity extends AppCompatActivity {
         }
     }
 
+    // Plays through VideoCache, so whatever the details screen preloaded starts instantly
+    // and replays don't download the tour again
+    @OptIn(markerClass = UnstableApi.class)
     private void playVideo(String videoUrl) {
         progressBar.setVisibility(View.VISIBLE);
 
-        videoView.setVideoURI(Uri.parse(videoUrl));
-        videoView.setOnPreparedListener(mp -> {
-            progressBar.setVisibility(View.GONE);
-            mp.setLooping(false);
-            videoView.start();
-        });
+        player = new ExoPlayer.Builder(this)
+                .setMediaSourceFactory(new DefaultMediaSourceFactory(
+                        VideoCache.getInstance(this).getDataSourceFactory()))
+                .build();
+        videoView.setPlayer(player);
 
-        videoView.setOnErrorListener((mp, what, extra) -> {
-            progressBar.setVisibility(View.GONE);
-            Toast.makeText(this, "Error playing video", Toast.LENGTH_SHORT).show();
-            return false;
+        player.addListener(new Player.Listener() {
+            @Override
+            public void onPlaybackStateChanged(int state) {
+                progressBar.setVisibility(state == Player.STATE_BUFFERING ? View.VISIBLE : View.GONE);
+            }
+
+            @Override
+            public void onPlayerError(@NonNull PlaybackException error) {
+                progressBar.setVisibility(View.GONE);
+                Log.e(TAG, "Error playing video", error);
+                Toast.makeText(MediaViewerActivity.this, "Error playing video", Toast.LENGTH_SHORT).show();
+            }
         });
 
-        // Add media controller
-        android.widget.MediaController mediaController = new android.widget.MediaController(this);
-        mediaController.setAnchorView(videoView);
-        videoView.setMediaController(mediaController);
+        player.setMediaItem(MediaItem.fromUri(videoUrl));
+        player.setPlayWhenReady(true);
+        player.prepare();
     }
 
     private void setupDocumentViewer() {
@@ -239,6 +274,16 @@ public class MediaViewerActivity extends AppCompatActivity {
     }
 
     private void downloadFile() {
+        // From API 29 saving goes through MediaStore, which needs no permission
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q
+                && ContextCompat.checkSelfPermission(this, Manifest.permission.WRITE_EXTERNAL_STORAGE)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this,
+                    new String[]{Manifest.permission.WRITE_EXTERNAL_STORAGE},
+                    STORAGE_PERMISSION_REQUEST_CODE);
+            return;
+        }
+
         if (mediaType == MEDIA_TYPE_DOCUMENT && documentUrl != null) {
             downloadDocument();
         } else if (mediaType == MEDIA_TYPE_VIDEO && mediaUrls != null && !mediaUrls.isEmpty()) {
@@ -249,57 +294,94 @@ public class MediaViewerActivity extends AppCompatActivity {
     }
 
     private void downloadDocument() {
-        progressBar.setVisibility(View.VISIBLE);
-
-        // Create a download intent
-        android.app.DownloadManager downloadManager = (android.app.DownloadManager) getSystemService(DOWNLOAD_SERVICE);
-        android.app.DownloadManager.Request request = new android.app.DownloadManager.Request(Uri.parse(documentUrl));
-
-        request.setTitle(documentName != null ? documentName : "Document");
-        request.setDescription("Downloading document...");
-        request.setNotificationVisibility(android.app.DownloadManager.Request.VISIBILITY_VISIBLE_NOTIFY_COMPLETED);
-        request.setDestinationInExternalPublicDir(android.os.Environment.DIRECTORY_DOWNLOADS, documentName);
-
-        downloadManager.enqueue(request);
-
-        Toast.makeText(this, "Download started: " + documentName, Toast.LENGTH_SHORT).show();
-        progressBar.setVisibility(View.GONE);
+        String fileName = documentName != null ? documentName : "Document.pdf";
+        String mimeType = URLConnection.guessContentTypeFromName(fileName);
+        saveToPublicFolder(documentUrl, Environment.DIRECTORY_DOWNLOADS, fileName,
+                mimeType != null ? mimeType : "application/octet-stream");
     }
 
     private void downloadVideo(String videoUrl) {
-        progressBar.setVisibility(View.VISIBLE);
+        String fileName = "video_" + System.currentTimeMillis() + ".mp4";
+        saveToPublicFolder(videoUrl, Environment.DIRECTORY_DOWNLOADS, fileName, "video/mp4");
+    }
 
-        android.app.DownloadManager downloadManager = (android.app.DownloadManager) getSystemService(DOWNLOAD_SERVICE);
-        android.app.DownloadManager.Request request = new android.app.DownloadManager.Request(Uri.parse(videoUrl));
+    private void downloadImage(String imageUrl) {
+        String fileName = "image_" + System.currentTimeMillis() + ".jpg";
+        saveToPublicFolder(imageUrl, Environment.DIRECTORY_PICTURES, fileName, "image/jpeg");
+    }
 
-        String fileName = "video_" + System.currentTimeMillis() + ".mp4";
-        request.setTitle("Room Video");
-        request.setDescription("Downloading video...");
-        request.setNotificationVisibility(android.app.DownloadManager.Request.VISIBILITY_VISIBLE_NOTIFY_COMPLETED);
-        request.setDestinationInExternalPublicDir(android.os.Environment.DIRECTORY_DOWNLOADS, fileName);
+    private void saveToPublicFolder(String url, String directoryType, String fileName, String mimeType) {
+        fetchFile(url, file -> {
+            DownloadEngine.getInstance(this).export(this, file, directoryType, fileName, mimeType,
+                    new DownloadEngine.Listener() {
+                @Override
+                public void onProgress(long bytesDone, long bytesTotal) {
+                }
 
-        downloadManager.enqueue(request);
+                @Override
+                public void onComplete(File exported) {
+                    if (isDestroyed()) return;
+                    Toast.makeText(MediaViewerActivity.this, "Saved: " + fileName, Toast.LENGTH_SHORT).show();
+                }
 
-        Toast.makeText(this, "Download started", Toast.LENGTH_SHORT).show();
-        progressBar.setVisibility(View.GONE);
+                @Override
+                public void onError(Exception e) {
+                    Log.e(TAG, "Could not save " + fileName, e);
+                    if (isDestroyed()) return;
+                    Toast.makeText(MediaViewerActivity.this, "Could not save file", Toast.LENGTH_SHORT).show();
+                }
+            });
+        });
     }
 
-    private void downloadImage(String imageUrl) {
+    // Through DownloadEngine, so a file saved or opened before comes from local storage and an
+    // interrupted one resumes instead of starting over
+    private void fetchFile(String url, Consumer<File> onReady) {
+        cancelActiveDownload();
         progressBar.setVisibility(View.VISIBLE);
+        btnDownload.setEnabled(false);
+
+        activeDownloadUrl = url;
+        activeDownload = new DownloadEngine.Listener() {
+            @Override
+            public void onProgress(long bytesDone, long bytesTotal) {
+                if (activeDownload != this) return;
+                if (bytesTotal > 0) {
+                    btnDownload.setText((bytesDone * 100 / bytesTotal) + "%");
+                }
+            }
 
-        android.app.DownloadManager downloadManager = (android.app.DownloadManager) getSystemService(DOWNLOAD_SERVICE);
-        android.app.DownloadManager.Request request = new android.app.DownloadManager.Request(Uri.parse(imageUrl));
+            @Override
+            public void onComplete(File file) {
+                if (activeDownload != this) return;
+                resetDownloadState();
+                onReady.accept(file);
+            }
 
-        String fileName = "image_" + System.currentTimeMillis() + ".jpg";
-        request.setTitle("Room Image");
-        request.setDescription("Downloading image...");
-        request.setNotificationVisibility(android.app.DownloadManager.Request.VISIBILITY_VISIBLE_NOTIFY_COMPLETED);
-        request.setDestinationInExternalPublicDir(android.os.Environment.DIRECTORY_PICTURES, fileName);
+            @Override
+            public void onError(Exception e) {
+                if (activeDownload != this) return;
+                resetDownloadState();
+                Log.e(TAG, "Download failed: " + url, e);
+                Toast.makeText(MediaViewerActivity.this, "Download failed", Toast.LENGTH_SHORT).show();
+            }
+        };
+        DownloadEngine.getInstance(this).download(url, activeDownload);
+    }
 
-        downloadManager.enqueue(request);
+    private void cancelActiveDownload() {
+        if (activeDownload != null) {
+            DownloadEngine.getInstance(this).cancel(activeDownloadUrl, activeDownload);
+        }
+        resetDownloadState();
+    }
 
-        Toast.makeText(this, "Download started", Toast.LENGTH_SHORT).show();
+    private void resetDownloadState() {
+        activeDownload = null;
+        activeDownloadUrl = null;
         progressBar.setVisibility(View.GONE);
+        btnDownload.setEnabled(true);
+        btnDownload.setText(downloadLabel);
     }
 
     private void shareFile() {
@@ -319,15 +401,20 @@ public class MediaViewerActivity extends AppCompatActivity {
 
     private void openWith() {
         if (mediaType == MEDIA_TYPE_DOCUMENT && documentUrl != null) {
-            Intent intent = new Intent(Intent.ACTION_VIEW);
-            intent.setDataAndType(Uri.parse(documentUrl), "application/pdf");
-            intent.setFlags(Intent.FLAG_ACTIVITY_NO_HISTORY);
-
-            try {
-                startActivity(Intent.createChooser(intent, "Open with"));
-            } catch (Exception e) {
-                Toast.makeText(this, "No app found to open this file", Toast.LENGTH_SHORT).show();
-            }
+            // Opened from the local copy, so reopening a contract doesn't download it again
+            fetchFile(documentUrl, file -> {
+                Uri fileUri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", file);
+                Intent intent = new Intent(Intent.ACTION_VIEW);
+                intent.setDataAndType(fileUri, "application/pdf");
+                intent.setFlags(Intent.FLAG_ACTIVITY_NO_HISTORY);
+                intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+
+                try {
+                    startActivity(Intent.createChooser(intent, "Open with"));
+                } catch (Exception e) {
+                    Toast.makeText(this, "No app found to open this file", Toast.LENGTH_SHORT).show();
+                }
+            });
         }
     }
 
@@ -338,16 +425,34 @@ public class MediaViewerActivity extends AppCompatActivity {
     @Override
     protected void onPause() {
         super.onPause();
-        if (videoView != null && videoView.isPlaying()) {
-            videoView.pause();
+        if (player != null) {
+            player.pause();
+        }
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
+                                           @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+
+        if (requestCode != STORAGE_PERMISSION_REQUEST_CODE) return;
+        if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+            downloadFile();
+        } else {
+            Toast.makeText(this, "Storage permission is needed to save files", Toast.LENGTH_SHORT).show();
         }
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (videoView != null) {
-            videoView.stopPlayback();
+        if (activeDownload != null) {
+            DownloadEngine.getInstance(this).cancel(activeDownloadUrl, activeDownload);
+            activeDownload = null;
+        }
+        if (player != null) {
+            player.release();
+            player = null;
         }
     }
 }
\ No newline at end of file
@@ -1,55 +1,64 @@
 package com.app.roomify;
 
 import android.app.Application;
-import android.content.Context;
-import android.content.Intent;
 import android.net.ConnectivityManager;
 import android.net.Network;
 import android.net.NetworkCapabilities;
-import android.net.NetworkRequest;
 
 import androidx.annotation.NonNull;
-
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ProcessLifecycleOwner;
 
 public class MyApp extends Application {
 
-    private boolean isOfflineDialogShown = false;
-
     @Override
     public void onCreate() {
         super.onCreate();
+        FirestoreConfig.init();
         registerNetworkCallback();
+        syncCatalogInForeground();
+    }
+
+    // On launch and every return to the foreground; only what changed since is fetched
+    private void syncCatalogInForeground() {
+        ProcessLifecycleOwner.get().getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onStart(@NonNull LifecycleOwner owner) {
+                RoomCatalog.getInstance(MyApp.this).sync();
+            }
+        });
     }
 
+    // Losing the network no longer interrupts the user: screens keep working from the
+    // Firestore cache and writes wait in WriteOutbox until a network is validated again
     private void registerNetworkCallback() {
         ConnectivityManager cm = (ConnectivityManager) getSystemService(CONNECTIVITY_SERVICE);
 
-        NetworkRequest request = new NetworkRequest.Builder()
-                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
-                .build();
+        // Until the first callback says otherwise
+        TrackingManager.getInstance().pauseTracking();
 
-        cm.registerNetworkCallback(request, new ConnectivityManager.NetworkCallback() {
+        cm.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
             @Override
-            public void onAvailable(Network network) {
-                // Internet back
-                if (isOfflineDialogShown) {
-                    // Close NoInternetActivity
-                    Intent intent = new Intent(getApplicationContext(), MainActivity.class);
-                    intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
-                    startActivity(intent);
-                    isOfflineDialogShown = false;
+            public void onCapabilitiesChanged(@NonNull Network network,
+                                              @NonNull NetworkCapabilities capabilities) {
+                if (capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED)) {
+                    // Internet back
+                    boolean wasOffline = TrackingManager.getInstance().isPaused();
+                    TrackingManager.getInstance().resumeTracking();
+                    WriteOutbox.getInstance(MyApp.this).drain();
+                    // Catches up on a sync that failed while offline
+                    if (wasOffline) RoomCatalog.getInstance(MyApp.this).sync();
+                } else {
+                    // Connected, but captive portal or no route yet
+                    TrackingManager.getInstance().pauseTracking();
                 }
             }
 
             @Override
-            public void onLost(Network network) {
+            public void onLost(@NonNull Network network) {
                 // Internet lost
-                if (!isOfflineDialogShown) {
-                    Intent intent = new Intent(getApplicationContext(), NoInternetActivity.class);
-                    intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
-                    startActivity(intent);
-                    isOfflineDialogShown = true;
-                }
+                TrackingManager.getInstance().pauseTracking();
             }
         });
     }
@@ -14,14 +14,18 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.Glide;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class MyPropertiesActivity extends AppCompatActivity {
 
@@ -62,8 +66,10 @@ public class MyPropertiesActivity extends AppCompatActivity {
 
         rvProperties.setLayoutManager(new LinearLayoutManager(this));
         propertyList = new ArrayList<>();
-        propertiesAdapter = new MyPropertiesAdapter(propertyList, this::onPropertyClick, this::onPropertyDelete);
+        propertiesAdapter = new MyPropertiesAdapter(propertyList, Glide.with(this),
+                this::onPropertyClick, this::onPropertyDelete, this::onAvailabilityToggle);
         rvProperties.setAdapter(propertiesAdapter);
+        propertiesAdapter.attachPreloader(rvProperties);
     }
 
     private void setupFirebase() {
@@ -97,77 +103,55 @@ public class MyPropertiesActivity extends AppCompatActivity {
 
         Log.d(TAG, "Loading properties for user: " + currentUserId);
 
-        // FIRST: Check ALL rooms to see what exists
-        db.collection("rooms")
-                .get()
-                .addOnCompleteListener(allRoomsTask -> {
-                    if (allRoomsTask.isSuccessful()) {
-                        Log.d(TAG, "=== TOTAL ROOMS IN DATABASE: " + allRoomsTask.getResult().size());
-                        for (QueryDocumentSnapshot doc : allRoomsTask.getResult()) {
-                            String postedBy = doc.getString("postedBy");
-                            Log.d(TAG, "Room ID: " + doc.getId() +
-                                    ", Title: " + doc.getString("title") +
-                                    ", postedBy: " + postedBy +
-                                    ", Current User: " + currentUserId +
-                                    ", Match: " + (currentUserId.equals(postedBy)));
+        // The list only shows summary fields; RoomDetailsActivity loads the full room.
+        // Kept live, so deletes and availability changes show up without reloading
+        RoomRepository.getInstance(this).observe(this, RoomQuery.summaries().whereEqualTo("postedBy", currentUserId),
+                new RoomRepository.Observer() {
+                    @Override
+                    public void onRooms(@NonNull List<Room> rooms, boolean fromCache) {
+                        Log.d(TAG, "Got " + rooms.size() + " properties for user, from cache: " + fromCache);
+                        if (rooms.isEmpty() && fromCache) return;
+
+                        showLoading(false);
+                        propertyList.clear();
+
+                        if (rooms.isEmpty()) {
+                            tvNoProperties.setVisibility(View.VISIBLE);
+                            tvErrorMessage.setText("No properties found. Try posting one!");
+                            tvErrorMessage.setVisibility(View.VISIBLE);
+                            propertiesAdapter.notifyDataSetChanged();
+                            return;
                         }
-                    }
-                });
-
-        // Now load only current user's properties
-        db.collection("rooms")
-                .whereEqualTo("postedBy", currentUserId)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    showLoading(false);
-                    propertyList.clear();
-
-                    Log.d(TAG, "Query returned " + queryDocumentSnapshots.size() + " properties for user");
-
-                    if (queryDocumentSnapshots.isEmpty()) {
-                        tvNoProperties.setVisibility(View.VISIBLE);
-                        tvErrorMessage.setText("No properties found. Try posting one!");
-                        tvErrorMessage.setVisibility(View.VISIBLE);
-                        Log.d(TAG, "No properties found for user: " + currentUserId);
-                        propertiesAdapter.notifyDataSetChanged();
-                        return;
-                    }
-
-                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        try {
-                            Room room = document.toObject(Room.class);
-                            room.setId(document.getId());
-
-                            // Debug: Print all fields
-                            Log.d(TAG, "Property found - ID: " + room.getId());
-                            Log.d(TAG, "  Title: " + room.getTitle());
-                            Log.d(TAG, "  postedBy field: " + document.getString("postedBy"));
-                            Log.d(TAG, "  All data: " + document.getData());
-
+                        tvNoProperties.setVisibility(View.GONE);
+                        tvErrorMessage.setVisibility(View.GONE);
+
+                        WriteOutbox outbox = WriteOutbox.getInstance(MyPropertiesActivity.this);
+                        Map<String, Boolean> pending = new HashMap<>();
+                        for (Room room : rooms) {
+                            // A toggle made offline and not sent yet, shown by the adapter
+                            Object available = outbox.getPendingRoomFields(room.getId()).get("isAvailable");
+                            if (available instanceof Boolean) pending.put(room.getId(), (Boolean) available);
                             propertyList.add(room);
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error converting document: " + e.getMessage());
                         }
-                    }
+                        propertiesAdapter.setPendingAvailability(pending);
 
-                    // Sort by createdAt (newest first)
-                    Collections.sort(propertyList, (r1, r2) ->
-                            Long.compare(r2.getCreatedAt(), r1.getCreatedAt())
-                    );
+                        // Sort by createdAt (newest first)
+                        Collections.sort(propertyList, (r1, r2) ->
+                                Long.compare(r2.getCreatedAt(), r1.getCreatedAt())
+                        );
 
-                    propertiesAdapter.notifyDataSetChanged();
-                    Log.d(TAG, "Loaded " + propertyList.size() + " properties into adapter");
+                        propertiesAdapter.notifyDataSetChanged();
+                        Log.d(TAG, "Loaded " + propertyList.size() + " properties into adapter");
+                    }
 
-                    if (propertyList.isEmpty()) {
-                        tvNoProperties.setVisibility(View.VISIBLE);
+                    @Override
+                    public void onError(@NonNull Exception e) {
+                        showLoading(false);
+                        Log.e(TAG, "Error loading properties: ", e);
+                        tvErrorMessage.setVisibility(View.VISIBLE);
+                        tvErrorMessage.setText("Error: " + e.getMessage());
+                        Toast.makeText(MyPropertiesActivity.this, "Error: " + e.getMessage(), Toast.LENGTH_LONG).show();
                     }
-                })
-                .addOnFailureListener(e -> {
-                    showLoading(false);
-                    Log.e(TAG, "Error loading properties: ", e);
-                    tvErrorMessage.setVisibility(View.VISIBLE);
-                    tvErrorMessage.setText("Error: " + e.getMessage());
-                    Toast.makeText(this, "Error: " + e.getMessage(), Toast.LENGTH_LONG).show();
                 });
     }
 
@@ -192,6 +176,20 @@ public class MyPropertiesActivity extends AppCompatActivity {
         startActivity(intent);
     }
 
+    // Shown straight away; the outbox updates the room and its summary once online
+    private void onAvailabilityToggle(Room room) {
+        // The room itself is shared through RoomRepository, so the change is only overlaid
+        boolean available = !propertiesAdapter.isAvailable(room);
+        propertiesAdapter.setPendingAvailability(room.getId(), available);
+        propertiesAdapter.notifyItemChanged(propertyList.indexOf(room));
+
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("isAvailable", available);
+        WriteOutbox.getInstance(this).updateRoom(room.getId(), fields);
+        Toast.makeText(this, available ? "Marked as available" : "Marked as not available",
+                Toast.LENGTH_SHORT).show();
+    }
+
     private void onPropertyDelete(Room room) {
         new androidx.appcompat.app.AlertDialog.Builder(this)
                 .setTitle("Delete Property")
@@ -209,17 +207,20 @@ public class MyPropertiesActivity extends AppCompatActivity {
                 .collection("bookings")
                 .get()
                 .addOnSuccessListener(bookings -> {
+                    WriteBatch batch = db.batch();
                     for (QueryDocumentSnapshot booking : bookings) {
-                        booking.getReference().delete();
+                        batch.delete(booking.getReference());
                     }
+                    batch.delete(db.collection("rooms").document(room.getId()));
+                    batch.delete(RoomSummaries.document(room.getId()));
+                    // So other devices' catalogs drop it on their next sync
+                    batch.set(RoomChanges.tombstone(room.getId()), RoomChanges.tombstoneData(room.getPostedBy()));
 
-                    db.collection("rooms")
-                            .document(room.getId())
-                            .delete()
+                    batch.commit()
                             .addOnSuccessListener(aVoid -> {
                                 showLoading(false);
+                                // The live listener drops it from the list
                                 Toast.makeText(this, "Property deleted", Toast.LENGTH_SHORT).show();
-                                loadProperties();
                             })
                             .addOnFailureListener(e -> {
                                 showLoading(false);
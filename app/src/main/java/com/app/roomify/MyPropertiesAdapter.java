@@ -10,13 +10,21 @@ import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.RequestManager;
+
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class MyPropertiesAdapter extends RecyclerView.Adapter<MyPropertiesAdapter.PropertyViewHolder> {
 
     private List<Room> properties;
     private final OnPropertyClickListener clickListener;
     private final OnPropertyDeleteListener deleteListener;
+    private final OnAvailabilityToggleListener availabilityListener;
+    private final RoomThumbnails thumbnails;
+    // Toggles still in WriteOutbox, shown over the rooms, which are shared and read-only
+    private final Map<String, Boolean> pendingAvailability = new HashMap<>();
 
     public interface OnPropertyClickListener {
         void onPropertyClick(Room room);
@@ -26,12 +34,44 @@ public class MyPropertiesAdapter extends RecyclerView.Adapter<MyPropertiesAdapte
         void onPropertyDelete(Room room);
     }
 
+    public interface OnAvailabilityToggleListener {
+        void onAvailabilityToggle(Room room);
+    }
+
     public MyPropertiesAdapter(List<Room> properties,
+                               RequestManager glide,
                                OnPropertyClickListener clickListener,
-                               OnPropertyDeleteListener deleteListener) {
+                               OnPropertyDeleteListener deleteListener,
+                               OnAvailabilityToggleListener availabilityListener) {
         this.properties = properties;
         this.clickListener = clickListener;
         this.deleteListener = deleteListener;
+        this.availabilityListener = availabilityListener;
+        this.thumbnails = new RoomThumbnails(glide, () -> this.properties);
+    }
+
+    public void setPendingAvailability(Map<String, Boolean> pending) {
+        pendingAvailability.clear();
+        pendingAvailability.putAll(pending);
+    }
+
+    public void setPendingAvailability(String roomId, boolean available) {
+        pendingAvailability.put(roomId, available);
+    }
+
+    /**
+     * The availability shown for the room, counting a toggle that hasn't been sent yet.
+     */
+    public boolean isAvailable(Room room) {
+        Boolean pending = pendingAvailability.get(room.getId());
+        return pending != null ? pending : room.isAvailable();
+    }
+
+    /**
+     * Start loading property images a few rows ahead of the scroll position.
+     */
+    public void attachPreloader(RecyclerView recyclerView) {
+        thumbnails.attachPreloader(recyclerView);
     }
 
     @NonNull
@@ -54,7 +94,7 @@ public class MyPropertiesAdapter extends RecyclerView.Adapter<MyPropertiesAdapte
 
 
             // Set availability badge
-            if (room.isAvailable()) {
+            if (isAvailable(room)) {
                 holder.tvAvailability.setText("Available");
                 holder.tvAvailability.setTextColor(holder.itemView.getContext().getColor(R.color.green_success));
                 holder.ivAvailability.setImageResource(R.drawable.ic_check_circle);
@@ -66,13 +106,8 @@ public class MyPropertiesAdapter extends RecyclerView.Adapter<MyPropertiesAdapte
                 holder.ivAvailability.setColorFilter(holder.itemView.getContext().getColor(R.color.red_error));
             }
 
-            // Set placeholder image if no image
-            if (room.hasImages()) {
-                // Use Glide or Picasso to load image
-                // Glide.with(holder.itemView.getContext()).load(room.getFirstImageUrl()).into(holder.ivPropertyImage);
-            } else {
-                holder.ivPropertyImage.setImageResource(R.drawable.ic_room_placeholder);
-            }
+            // Falls back to the placeholder when the room has no image
+            thumbnails.load(room, holder.ivPropertyImage, R.drawable.ic_room_placeholder);
 
             // Set click listeners
             holder.cardView.setOnClickListener(v -> {
@@ -87,6 +122,12 @@ public class MyPropertiesAdapter extends RecyclerView.Adapter<MyPropertiesAdapte
                 }
             });
 
+            holder.availabilityBadge.setOnClickListener(v -> {
+                if (availabilityListener != null) {
+                    availabilityListener.onAvailabilityToggle(room);
+                }
+            });
+
             holder.btnEdit.setOnClickListener(v -> {
                 // Navigate to edit activity
                 // Intent intent = new Intent(holder.itemView.getContext(), EditRoomActivity.class);
@@ -108,6 +149,7 @@ public class MyPropertiesAdapter extends RecyclerView.Adapter<MyPropertiesAdapte
 
     static class PropertyViewHolder extends RecyclerView.ViewHolder {
         CardView cardView;
+        View availabilityBadge;
         ImageView ivPropertyImage, ivAvailability, btnDelete, btnEdit;
         TextView tvTitle, tvPrice, tvLocation, tvBookingsCount, tvAvailability;
 
@@ -115,6 +157,7 @@ public class MyPropertiesAdapter extends RecyclerView.Adapter<MyPropertiesAdapte
             super(itemView);
             cardView = itemView.findViewById(R.id.cardView);
             ivPropertyImage = itemView.findViewById(R.id.ivPropertyImage);
+            availabilityBadge = itemView.findViewById(R.id.availabilityBadge);
             ivAvailability = itemView.findViewById(R.id.ivAvailability);
             btnDelete = itemView.findViewById(R.id.btnDelete);
             btnEdit = itemView.findViewById(R.id.btnEdit);
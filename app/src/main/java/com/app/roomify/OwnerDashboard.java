@@ -9,15 +9,16 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.card.MaterialCardView;
+import com.google.android.material.progressindicator.LinearProgressIndicator;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -33,6 +34,11 @@ public class OwnerDashboard extends AppCompatActivity {
     private ImageView ivNotifications, ivSettings;
     private View loadingOverlay;
     private ProgressBar progressBar, earningsProgress;
+    private LinearProgressIndicator refreshIndicator;
+
+    // Summaries and geohashes are backfilled once, from the first server snapshot
+    private boolean backfilled;
+    private List<Room> shownProperties;
 
     // Firebase
     private FirebaseAuth mAuth;
@@ -80,6 +86,7 @@ public class OwnerDashboard extends AppCompatActivity {
         ivSettings = findViewById(R.id.ivSettings);
         loadingOverlay = findViewById(R.id.loadingOverlay);
         progressBar = findViewById(R.id.progressBar);
+        refreshIndicator = findViewById(R.id.refreshIndicator);
         earningsProgress = findViewById(R.id.earningsProgress);
 
         // Setup RecyclerViews
@@ -108,16 +115,14 @@ public class OwnerDashboard extends AppCompatActivity {
     private void loadOwnerData() {
         if (currentUserId == null) return;
 
-        db.collection("users").document(currentUserId).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        String name = documentSnapshot.getString("name");
-                        tvOwnerName.setText(name != null ? "Welcome, " + name.split(" ")[0] : "Property Owner");
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(this, "Error loading user data", Toast.LENGTH_SHORT).show();
-                });
+        UserProfileCache.getInstance().getCacheFirst(currentUserId, profile -> {
+            if (profile == null) {
+                Toast.makeText(this, "Error loading user data", Toast.LENGTH_SHORT).show();
+            } else if (profile.exists()) {
+                String name = profile.getString("name");
+                tvOwnerName.setText(name != null ? "Welcome, " + name.split(" ")[0] : "Property Owner");
+            }
+        });
 
         loadStatistics();
     }
@@ -125,31 +130,27 @@ public class OwnerDashboard extends AppCompatActivity {
     private void loadStatistics() {
         if (currentUserId == null) return;
 
-        // Count properties
-        db.collection("rooms")
-                .whereEqualTo("postedBy", currentUserId)
-                .get()
-                .addOnSuccessListener(query -> {
-                    int count = query.size();
-                    tvTotalProperties.setText(String.valueOf(count));
-                });
-
-        // Count bookings and earnings
-        db.collection("rooms")
-                .whereEqualTo("postedBy", currentUserId)
-                .get()
-                .addOnSuccessListener(rooms -> {
-                    int totalBookings = 0;
-                    double totalEarnings = 0;
-
-                    // You need to iterate through each room and count its bookings
-                    // This is simplified - you'll need to implement actual counting
-
-                    tvTotalBookings.setText(String.valueOf(totalBookings));
-                    tvTotalEarnings.setText("$" + totalEarnings);
-                    tvThisMonthEarnings.setText("$" + (totalEarnings * 0.3));
-                    tvLastMonthEarnings.setText("$" + (totalEarnings * 0.2));
-                });
+        // Same query as loadProperties, so both ride on one listener
+        RoomRepository.getInstance(this).observe(this, ownerRoomsQuery(), (rooms, fromCache) -> {
+            // Count properties
+            tvTotalProperties.setText(String.valueOf(rooms.size()));
+
+            // Count bookings and earnings
+            int totalBookings = 0;
+            double totalEarnings = 0;
+
+            // You need to iterate through each room and count its bookings
+            // This is simplified - you'll need to implement actual counting
+
+            tvTotalBookings.setText(String.valueOf(totalBookings));
+            tvTotalEarnings.setText("$" + totalEarnings);
+            tvThisMonthEarnings.setText("$" + (totalEarnings * 0.3));
+            tvLastMonthEarnings.setText("$" + (totalEarnings * 0.2));
+        });
+    }
+
+    private RoomQuery ownerRoomsQuery() {
+        return RoomQuery.rooms().whereEqualTo("postedBy", currentUserId);
     }
 
     private void setupClickListeners() {
@@ -217,71 +218,30 @@ public class OwnerDashboard extends AppCompatActivity {
 
         showLoading(true);
 
-        // Create a temporary list to collect all requests
-        List<BookingRequest> allPendingRequests = new ArrayList<>();
-
-        db.collection("rooms")
-                .whereEqualTo("postedBy", currentUserId)
-                .get()
-                .addOnSuccessListener(rooms -> {
-                    if (rooms.isEmpty()) {
-                        showLoading(false);
-                        pendingRequestAdapter.setRequests(allPendingRequests);
-                        return;
-                    }
+        // First page of pending bookings across all rooms, in one query
+        BookingInbox.forOwner(currentUserId, "pending").loadNextPage(new BookingInbox.OnPageLoadedListener() {
+            @Override
+            public void onPageLoaded(List<BookingRequest> page, boolean hasMore) {
+                // Answered offline but not sent yet: no longer pending here
+                WriteOutbox outbox = WriteOutbox.getInstance(OwnerDashboard.this);
+                for (int i = page.size() - 1; i >= 0; i--) {
+                    if (outbox.getPendingStatus(page.get(i).getId()) != null) page.remove(i);
+                }
+                pendingRequestAdapter.setRequests(page);
+                showLoading(false);
+
+                // Show empty state if no requests
+                if (page.isEmpty()) {
+                    Toast.makeText(OwnerDashboard.this, "No pending requests", Toast.LENGTH_SHORT).show();
+                }
+            }
 
-                    // Track how many rooms have been processed
-                    final int[] processedRooms = {0};
-                    final int totalRooms = rooms.size();
-
-                    for (QueryDocumentSnapshot room : rooms) {
-                        String roomId = room.getId();
-                        String roomTitle = room.getString("title");
-                        if (roomTitle == null) roomTitle = "Unknown Room";
-
-                        String finalRoomTitle = roomTitle;
-                        db.collection("rooms")
-                                .document(roomId)
-                                .collection("bookings")
-                                .whereEqualTo("status", "pending")
-                                .get()
-                                .addOnSuccessListener(bookings -> {
-                                    for (QueryDocumentSnapshot booking : bookings) {
-                                        BookingRequest request = booking.toObject(BookingRequest.class);
-                                        if (request != null) {
-                                            request.setId(booking.getId());
-                                            request.setRoomId(roomId);
-                                            request.setRoomTitle(finalRoomTitle);
-                                            allPendingRequests.add(request);
-                                        }
-                                    }
-
-                                    processedRooms[0]++;
-
-                                    // Update adapter after processing all rooms
-                                    if (processedRooms[0] == totalRooms) {
-                                        pendingRequestAdapter.setRequests(allPendingRequests);
-                                        showLoading(false);
-
-                                        // Show empty state if no requests
-                                        if (allPendingRequests.isEmpty()) {
-                                            Toast.makeText(this, "No pending requests", Toast.LENGTH_SHORT).show();
-                                        }
-                                    }
-                                })
-                                .addOnFailureListener(e -> {
-                                    processedRooms[0]++;
-                                    if (processedRooms[0] == totalRooms) {
-                                        pendingRequestAdapter.setRequests(allPendingRequests);
-                                        showLoading(false);
-                                    }
-                                });
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    showLoading(false);
-                    Toast.makeText(this, "Error loading requests: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                });
+            @Override
+            public void onError(Exception e) {
+                showLoading(false);
+                Toast.makeText(OwnerDashboard.this, "Error loading requests: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private void loadProperties() {
@@ -289,31 +249,38 @@ public class OwnerDashboard extends AppCompatActivity {
 
         showLoading(true);
 
-        db.collection("rooms")
-                .whereEqualTo("postedBy", currentUserId)
-                .get()
-                .addOnSuccessListener(rooms -> {
-                    List<Room> propertyList = new ArrayList<>();
-
-                    for (QueryDocumentSnapshot document : rooms) {
-                        Room room = document.toObject(Room.class);
-                        if (room != null) {
-                            room.setId(document.getId());
-                            propertyList.add(room);
-                        }
-                    }
+        // Remembered listings show straight away, the server's answer follows
+        RoomRepository.getInstance(this).observe(this, ownerRoomsQuery(), new RoomRepository.Observer() {
+            @Override
+            public void onRooms(@NonNull List<Room> rooms, boolean fromCache) {
+                showLoading(false);
+                refreshIndicator.setVisibility(fromCache ? View.VISIBLE : View.GONE);
 
-                    propertyAdapter.setRooms(propertyList);
-                    showLoading(false);
+                if (!fromCache && !backfilled) {
+                    backfilled = true;
+                    // Older listings need a geohash and a summary to show up on the map screens
+                    GeoHashBackfill.backfill(rooms);
+                    RoomSummaries.backfill(OwnerDashboard.this, currentUserId, rooms);
 
-                    if (propertyList.isEmpty()) {
-                        Toast.makeText(this, "No properties found. Add your first property!", Toast.LENGTH_LONG).show();
+                    // An empty cache says nothing, so only the server's answer gets the nudge
+                    if (rooms.isEmpty()) {
+                        Toast.makeText(OwnerDashboard.this, "No properties found. Add your first property!", Toast.LENGTH_LONG).show();
                     }
-                })
-                .addOnFailureListener(e -> {
-                    showLoading(false);
-                    Toast.makeText(this, "Error loading properties: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                });
+                }
+
+                // Metadata-only update, e.g. the server confirming the cached copy
+                if (rooms == shownProperties) return;
+                shownProperties = rooms;
+                propertyAdapter.setRooms(rooms);
+            }
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                showLoading(false);
+                refreshIndicator.setVisibility(View.GONE);
+                Toast.makeText(OwnerDashboard.this, "Error loading properties: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private void onRequestAction(BookingRequest request, String action) {
@@ -324,50 +291,15 @@ public class OwnerDashboard extends AppCompatActivity {
         }
     }
 
-    // When a booking is approved or created
+    // When a booking is approved or rejected
     private void updateBookingStatus(BookingRequest request, String status) {
-        showLoading(true);
-
-        // Update booking status
-        db.collection("rooms")
-                .document(request.getRoomId())
-                .collection("bookings")
-                .document(request.getId())
-                .update("status", status)
-                .addOnSuccessListener(aVoid -> {
-                    // Also update the room's bookings count
-                    updateRoomBookingsCount(request.getRoomId());
-
-                    showLoading(false);
-                    Toast.makeText(this, "Booking " + status + "d", Toast.LENGTH_SHORT).show();
-                    loadPendingRequests();
-                    loadStatistics();
-                })
-                .addOnFailureListener(e -> {
-                    showLoading(false);
-                    Toast.makeText(this, "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                });
-    }
+        String title = "approved".equals(status) ? "Booking Approved" : "Booking Rejected";
+        String message = "Your booking for " + request.getRoomTitle() + " has been " + status + ".";
 
-    // Helper method to update room's bookings count
-    private void updateRoomBookingsCount(String roomId) {
-        // Count all approved bookings for this room
-        db.collection("rooms")
-                .document(roomId)
-                .collection("bookings")
-                .whereEqualTo("status", "approved")
-                .get()
-                .addOnSuccessListener(bookings -> {
-                    int count = bookings.size();
-
-                    // Update the room document with the count
-                    db.collection("rooms")
-                            .document(roomId)
-                            .update("bookingsCount", count)
-                            .addOnSuccessListener(aVoid -> {
-                                Log.d("OwnerDashboard", "Updated bookings count for room: " + roomId + " to " + count);
-                            });
-                });
+        // Queued in the outbox, so this works offline too; no longer pending either way
+        WriteOutbox.getInstance(this).setBookingStatus(request, status, title, message);
+        Toast.makeText(this, "Booking " + status, Toast.LENGTH_SHORT).show();
+        pendingRequestAdapter.removeRequest(request);
     }
 
     private void onPropertyClick(Room room) {
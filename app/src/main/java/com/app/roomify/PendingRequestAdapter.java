@@ -75,6 +75,16 @@ public class PendingRequestAdapter extends RecyclerView.Adapter<PendingRequestAd
         notifyDataSetChanged();
     }
 
+    public void removeRequest(BookingRequest request) {
+        for (int i = 0; i < requests.size(); i++) {
+            if (requests.get(i).getId().equals(request.getId())) {
+                requests.remove(i);
+                notifyItemRemoved(i);
+                return;
+            }
+        }
+    }
+
     public static class MyHolderView extends RecyclerView.ViewHolder {
         TextView tvBookingDate, tvPhone, tvPropertyTitle, tvTenantName;
         Button btnAccept, btnReject;
@@ -24,6 +24,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.documentfile.provider.DocumentFile;
+import androidx.work.WorkManager;
 
 import com.bumptech.glide.Glide;
 import com.google.android.gms.maps.CameraUpdateFactory;
@@ -47,8 +48,6 @@ import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.messaging.FirebaseMessaging;
 import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
-import com.google.firebase.storage.UploadTask;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -57,7 +56,6 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class PostRoomActivity extends AppCompatActivity implements OnMapReadyCallback {
 
@@ -402,20 +400,20 @@ public class PostRoomActivity extends AppCompatActivity implements OnMapReadyCal
     }
 
     private void pickImages() {
-        Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
         intent.setType("image/*");
         intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
         startActivityForResult(Intent.createChooser(intent, "Select Images"), IMAGE_PICK_REQUEST_CODE);
     }
 
     private void pickVideo() {
-        Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
         intent.setType("video/*");
         startActivityForResult(intent, VIDEO_PICK_REQUEST_CODE);
     }
 
     private void pickContract() {
-        Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
         intent.setType("application/pdf");
         startActivityForResult(intent, CONTRACT_PICK_REQUEST_CODE);
     }
@@ -432,6 +430,7 @@ public class PostRoomActivity extends AppCompatActivity implements OnMapReadyCal
                         break;
                     case VIDEO_PICK_REQUEST_CODE:
                         selectedVideoUri = data.getData();
+                        persistReadPermission(selectedVideoUri);
                         if (selectedVideoUri != null) {
                             videoFileName = getFileName(selectedVideoUri);
                             updateSelectedFilesInfo();
@@ -440,6 +439,7 @@ public class PostRoomActivity extends AppCompatActivity implements OnMapReadyCal
                         break;
                     case CONTRACT_PICK_REQUEST_CODE:
                         selectedContractUri = data.getData();
+                        persistReadPermission(selectedContractUri);
                         if (selectedContractUri != null) {
                             contractFileName = getFileName(selectedContractUri);
                             updateSelectedFilesInfo();
@@ -474,9 +474,11 @@ public class PostRoomActivity extends AppCompatActivity implements OnMapReadyCal
             int count = Math.min(data.getClipData().getItemCount(), MAX_IMAGES);
             for (int i = 0; i < count; i++) {
                 Uri uri = data.getClipData().getItemAt(i).getUri();
+                persistReadPermission(uri);
                 selectedImageUris.add(uri);
             }
         } else if (data.getData() != null) {
+            persistReadPermission(data.getData());
             selectedImageUris.add(data.getData());
         }
 
@@ -635,6 +637,7 @@ public class PostRoomActivity extends AppCompatActivity implements OnMapReadyCal
         room.put("price", price);
         room.put("latitude", selectedLatLng.latitude);
         room.put("longitude", selectedLatLng.longitude);
+        room.put("geohash", GeoHash.encode(selectedLatLng.latitude, selectedLatLng.longitude));
         room.put("address", TextUtils.isEmpty(selectedAddress) ? "Location set" : selectedAddress);
         room.put("propertyType", propertyType);
         room.put("contactPhone", phone);
@@ -651,8 +654,10 @@ public class PostRoomActivity extends AppCompatActivity implements OnMapReadyCal
         room.put("roomsCount", roomsCount);
         room.put("bathroomsCount", bathroomsCount);
         room.put("postedBy", authenticatedUserId);
-        room.put("status", "active");
+        // Hidden from listings until MediaUploadWorker publishes it with its media
+        room.put("status", "draft");
         room.put("area", area);
+        RoomChanges.stamp(room);
 
         if (!TextUtils.isEmpty(rules)) {
             List<String> rulesList = new ArrayList<>();
@@ -669,8 +674,8 @@ public class PostRoomActivity extends AppCompatActivity implements OnMapReadyCal
             room.put("rules", new ArrayList<>());
         }
 
-        db.collection("rooms").document(currentRoomId)
-                .set(room)
+        // The map/list summary is created on publish, once the media is up
+        db.collection("rooms").document(currentRoomId).set(room)
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Room created, starting uploads...");
                     startUploadingMedia();
@@ -681,99 +686,49 @@ public class PostRoomActivity extends AppCompatActivity implements OnMapReadyCal
                 });
     }
 
+    // Uploads run in MediaUploadWorker so they outlive this screen; observed here for progress
     private void startUploadingMedia() {
-        int totalUploads = selectedImageUris.size() +
-                (selectedVideoUri != null ? 1 : 0) +
-                (selectedContractUri != null ? 1 : 0);
-
-        if (totalUploads == 0) {
-            finishPosting();
-            return;
-        }
-
-        AtomicInteger completedUploads = new AtomicInteger(0);
-
-        // Upload images
-        for (int i = 0; i < selectedImageUris.size(); i++) {
-            final int index = i;
-            Uri imageUri = selectedImageUris.get(i);
-            StorageReference imageRef = storage.getReference()
-                    .child("rooms/" + currentRoomId + "/images/image_" + System.currentTimeMillis() + "_" + index + ".jpg");
-
-            imageRef.putFile(imageUri)
-                    .addOnSuccessListener(taskSnapshot -> {
-                        imageRef.getDownloadUrl().addOnSuccessListener(uri -> {
-                            db.collection("rooms").document(currentRoomId)
-                                    .update("images", com.google.firebase.firestore.FieldValue.arrayUnion(uri.toString()))
-                                    .addOnSuccessListener(aVoid -> {
-                                        int completed = completedUploads.incrementAndGet();
-                                        if (completed == totalUploads) {
-                                            finishPosting();
-                                        }
-                                    });
-                        });
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Image upload failed: " + e.getMessage());
-                        int completed = completedUploads.incrementAndGet();
-                        if (completed == totalUploads) finishPosting();
-                    });
-        }
-
-        // Upload video
-        if (selectedVideoUri != null) {
-            StorageReference videoRef = storage.getReference()
-                    .child("rooms/" + currentRoomId + "/video/video_" + System.currentTimeMillis() + ".mp4");
-
-            videoRef.putFile(selectedVideoUri)
-                    .addOnSuccessListener(taskSnapshot -> {
-                        videoRef.getDownloadUrl().addOnSuccessListener(uri -> {
-                            Map<String, Object> updates = new HashMap<>();
-                            updates.put("videoUrl", uri.toString());
-                            updates.put("hasVideo", true);
-
-                            db.collection("rooms").document(currentRoomId)
-                                    .update(updates)
-                                    .addOnSuccessListener(aVoid -> {
-                                        Log.d(TAG, "✓ Video uploaded: " + uri.toString());
-                                        int completed = completedUploads.incrementAndGet();
-                                        if (completed == totalUploads) finishPosting();
-                                    });
-                        });
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Video upload failed: " + e.getMessage());
-                        int completed = completedUploads.incrementAndGet();
-                        if (completed == totalUploads) finishPosting();
-                    });
-        }
+        // Always queued, even without media, since the worker is what publishes the room
+        UUID workId = MediaUploadWorker.enqueue(this, currentRoomId,
+                selectedImageUris, selectedVideoUri, selectedContractUri);
+
+        WorkManager.getInstance(this).getWorkInfoByIdLiveData(workId).observe(this, info -> {
+            if (info == null) return;
+            switch (info.getState()) {
+                case RUNNING:
+                    long done = info.getProgress().getLong(MediaUploadWorker.PROGRESS_BYTES_DONE, 0);
+                    long total = info.getProgress().getLong(MediaUploadWorker.PROGRESS_BYTES_TOTAL, 0);
+                    if (total > 0 && progressIndicator != null) {
+                        progressIndicator.setIndeterminate(false);
+                        progressIndicator.setProgressCompat((int) (done * 100 / total), true);
+                    }
+                    break;
+                case ENQUEUED:
+                    if (info.getRunAttemptCount() > 0) {
+                        Log.d(TAG, "Upload interrupted, will resume (attempt " + info.getRunAttemptCount() + ")");
+                    }
+                    break;
+                case SUCCEEDED:
+                    finishPosting();
+                    break;
+                case FAILED:
+                case CANCELLED:
+                    showLoading(false);
+                    showError("Some files could not be uploaded");
+                    break;
+                default:
+                    break;
+            }
+        });
+    }
 
-        // Upload contract
-        if (selectedContractUri != null) {
-            StorageReference contractRef = storage.getReference()
-                    .child("rooms/" + currentRoomId + "/contracts/contract_" + System.currentTimeMillis() + ".pdf");
-
-            contractRef.putFile(selectedContractUri)
-                    .addOnSuccessListener(taskSnapshot -> {
-                        contractRef.getDownloadUrl().addOnSuccessListener(uri -> {
-                            Map<String, Object> updates = new HashMap<>();
-                            updates.put("contractUrl", uri.toString());
-                            updates.put("hasContract", true);
-
-                            db.collection("rooms").document(currentRoomId)
-                                    .update(updates)
-                                    .addOnSuccessListener(aVoid -> {
-                                        Log.d(TAG, "✓ Contract uploaded: " + uri.toString());
-                                        int completed = completedUploads.incrementAndGet();
-                                        if (completed == totalUploads) finishPosting();
-                                    });
-                        });
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Contract upload failed: " + e.getMessage());
-                        int completed = completedUploads.incrementAndGet();
-                        if (completed == totalUploads) finishPosting();
-                    });
+    // The upload worker reads the picked files after this screen is gone
+    private void persistReadPermission(@Nullable Uri uri) {
+        if (uri == null) return;
+        try {
+            getContentResolver().takePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        } catch (SecurityException e) {
+            Log.e(TAG, "No persistable permission for " + uri, e);
         }
     }
 
@@ -3,10 +3,14 @@ package com.app.roomify;
 import androidx.annotation.Nullable;
 
 import com.google.firebase.firestore.Exclude;
+import com.google.firebase.firestore.ServerTimestamp;
+
+import java.io.Serializable;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Room Model Class
@@ -15,7 +19,10 @@ import java.util.List;
  * @author Roomify Team
  * @version 2.0
  */
-public class Room {
+public class Room implements Serializable {
+
+    // RoomRepository keeps rooms on disk; bump when fields change incompatibly
+    private static final long serialVersionUID = 1L;
 
     // ==================== BASIC IDENTIFICATION ====================
     private String id;                  // Unique room ID (Firestore document ID)
@@ -30,6 +37,7 @@ public class Room {
     private double latitude;            // GPS latitude
     private double longitude;           // GPS longitude
     private String address;             // Full address
+    private String geohash;             // Geohash of latitude/longitude, used for viewport queries
 
     // ==================== OWNER INFORMATION ====================
     private String postedBy;            // Owner or landlord ID (Firebase UID)
@@ -52,6 +60,8 @@ public class Room {
 
     // ==================== MEDIA FILES ====================
     private List<String> images;        // URLs to room images
+    private List<Map<String, Object>> imageRenditions; // Per photo {index, thumb, medium, full}, see ImageRenditions
+    private long imagesUpdatedAt;       // When the photos last changed, used as the image cache signature
     private int imageCount;             // NEW: Number of images uploaded (from PostRoomActivity)
     private boolean hasVideo;           // NEW: Whether room has a video tour
     private boolean hasContract;        // NEW: Whether room has a contract/agreement PDF
@@ -63,6 +73,9 @@ public class Room {
     private String status;              // NEW: Room status (active, pending, inactive)
     private int bookingsCount;          // Number of bookings for this room
     private long createdAt;             // Timestamp of creation (milliseconds)
+    @ServerTimestamp
+    private Date updatedAt;             // Server time of the last write, see RoomChanges; null = stamp on save
+    private List<Map<String, Object>> bookedRanges; // Approved stays {bookingId, checkIn, checkOut}, see RoomAvailability
 
     // ==================== CONSTRUCTORS ====================
 
@@ -211,6 +224,14 @@ public class Room {
         this.address = address;
     }
 
+    public String getGeohash() {
+        return geohash;
+    }
+
+    public void setGeohash(String geohash) {
+        this.geohash = geohash;
+    }
+
     // --- Owner Information ---
     public String getPostedBy() {
         return postedBy != null ? postedBy : "";
@@ -380,6 +401,22 @@ public class Room {
         this.imageCount = this.images.size();
     }
 
+    public List<Map<String, Object>> getImageRenditions() {
+        return imageRenditions != null ? imageRenditions : new ArrayList<>();
+    }
+
+    public void setImageRenditions(List<Map<String, Object>> imageRenditions) {
+        this.imageRenditions = imageRenditions;
+    }
+
+    public long getImagesUpdatedAt() {
+        return imagesUpdatedAt;
+    }
+
+    public void setImagesUpdatedAt(long imagesUpdatedAt) {
+        this.imagesUpdatedAt = imagesUpdatedAt;
+    }
+
     public int getImageCount() {
         return imageCount;
     }
@@ -435,6 +472,14 @@ public class Room {
         return status != null ? status : "active";
     }
 
+    public List<Map<String, Object>> getBookedRanges() {
+        return bookedRanges != null ? bookedRanges : new ArrayList<>();
+    }
+
+    public void setBookedRanges(List<Map<String, Object>> bookedRanges) {
+        this.bookedRanges = bookedRanges;
+    }
+
     public void setStatus(String status) {
         this.status = status;
     }
@@ -447,6 +492,15 @@ public class Room {
         this.createdAt = createdAt;
     }
 
+    @Nullable
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(@Nullable Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     public int getBookingsCount() {
         return bookingsCount;
     }
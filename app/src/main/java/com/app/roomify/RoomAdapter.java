@@ -9,16 +9,25 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class RoomAdapter extends RecyclerView.Adapter<RoomAdapter.MyViewHolder> {
    private final ArrayList<Room> RoomList;
+    private final RoomThumbnails thumbnails;
 
-    public RoomAdapter(ArrayList<Room> roomList) {
+    public RoomAdapter(ArrayList<Room> roomList, RequestManager glide) {
         RoomList = roomList;
+        thumbnails = new RoomThumbnails(glide, () -> RoomList);
+    }
+
+    /**
+     * Start loading card images a few rooms ahead of the scroll position.
+     */
+    public void attachPreloader(RecyclerView recyclerView) {
+        thumbnails.attachPreloader(recyclerView);
     }
 
     @NonNull
@@ -36,16 +45,7 @@ public class RoomAdapter extends RecyclerView.Adapter<RoomAdapter.MyViewHolder>
         holder.tvLocation.setText(room.getAddress());
         holder.tvRoomTitle.setText(room.getTitle());
 
-        List<String> images = room.getImages();
-        if(images != null && !images.isEmpty()){
-            Glide.with(holder.ivRoomImage.getContext())
-                    .load(images.get(0))
-                    .placeholder(R.drawable.ic_back)
-                    .error(R.drawable.ic_back)
-                    .into(holder.ivRoomImage);
-        }else{
-            holder.ivRoomImage.setImageResource(R.drawable.ic_back);
-        }
+        thumbnails.load(room, holder.ivRoomImage, R.drawable.ic_back);
 
 
     }
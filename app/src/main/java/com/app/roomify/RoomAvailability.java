@@ -0,0 +1,92 @@
+package com.app.roomify;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Availability of loaded rooms by date range.
+ *
+ * Approved stays are kept on the room (and its summary) as a "bookedRanges" array of
+ * {bookingId, checkIn, checkOut}, maintained by BookingStatusCommand. Screens feed it
+ * the documents their listeners already receive, so date filtering needs no per-room
+ * queries and each check is O(log n) in that room's bookings.
+ */
+public class RoomAvailability {
+
+    public static final String FIELD_BOOKED_RANGES = "bookedRanges";
+
+    public static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private final Map<String, DateRangeIndex> rooms = new HashMap<>();
+
+    /**
+     * Replace a room's booked ranges with the value of its bookedRanges field.
+     */
+    public void setRanges(String roomId, @Nullable Object bookedRanges) {
+        DateRangeIndex index = parse(bookedRanges);
+        if (index.isEmpty()) {
+            rooms.remove(roomId);
+        } else {
+            rooms.put(roomId, index);
+        }
+    }
+
+    public void remove(String roomId) {
+        rooms.remove(roomId);
+    }
+
+    public void clear() {
+        rooms.clear();
+    }
+
+    /**
+     * @return True if the room has no approved stay overlapping [checkIn, checkOut)
+     */
+    public boolean isAvailable(String roomId, long checkIn, long checkOut) {
+        DateRangeIndex index = rooms.get(roomId);
+        return index == null || index.isFree(checkIn, checkOut);
+    }
+
+    public List<Room> filterAvailable(Collection<Room> candidates, long checkIn, long checkOut) {
+        List<Room> available = new ArrayList<>(candidates.size());
+        for (Room room : candidates) {
+            if (isAvailable(room.getId(), checkIn, checkOut)) {
+                available.add(room);
+            }
+        }
+        return available;
+    }
+
+    // ==================== FIELD HELPERS ====================
+
+    /**
+     * Build an index from a bookedRanges field value; malformed entries are skipped.
+     */
+    public static DateRangeIndex parse(@Nullable Object bookedRanges) {
+        DateRangeIndex index = new DateRangeIndex();
+        if (!(bookedRanges instanceof List)) return index;
+
+        for (Object item : (List<?>) bookedRanges) {
+            if (!(item instanceof Map)) continue;
+            Object checkIn = ((Map<?, ?>) item).get("checkIn");
+            Object checkOut = ((Map<?, ?>) item).get("checkOut");
+            if (checkIn instanceof Number && checkOut instanceof Number) {
+                index.add(((Number) checkIn).longValue(), ((Number) checkOut).longValue());
+            }
+        }
+        return index;
+    }
+
+    public static Map<String, Object> rangeData(String bookingId, long checkIn, long checkOut) {
+        Map<String, Object> range = new HashMap<>();
+        range.put("bookingId", bookingId);
+        range.put("checkIn", checkIn);
+        range.put("checkOut", checkOut);
+        return range;
+    }
+}
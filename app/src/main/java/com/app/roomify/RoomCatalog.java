@@ -0,0 +1,541 @@
+package com.app.roomify;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local mirror of the room catalog in catalog.db, for offline search-as-you-type.
+ *
+ * "rooms" holds one row per published room, with B-tree indexes on the filter columns;
+ * "rooms_fts" is an FTS4 index over title, description, address and amenities that
+ * triggers keep in step with it. Matches are ranked by BM25 computed from matchinfo().
+ * Schema changes go through migrate() one version at a time, never by dropping tables.
+ * Reads and writes run on one background thread; results come back on the main thread.
+ *
+ * sync() reads the whole collection once, then only what changed: rooms whose updatedAt
+ * is past the stored watermark and tombstones of deleted ones (see RoomChanges).
+ */
+public class RoomCatalog extends SQLiteOpenHelper {
+
+    private static final String TAG = "RoomCatalog";
+
+    public static final String DB_NAME = "catalog.db";
+    private static final int DB_VERSION = 2;
+
+    private static final String TABLE_ROOMS = "rooms";
+    private static final String TABLE_FTS = "rooms_fts";
+    private static final String TABLE_SYNC = "sync_state";
+
+    // Watermarks, per source collection, in sync_state
+    private static final String SOURCE_ROOMS = "rooms";
+    private static final String SOURCE_TOMBSTONES = "tombstones";
+    private static final int SYNC_PAGE_SIZE = 200;
+
+    // BM25 tuning and per-column weights, in rooms_fts column order
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double[] COLUMN_WEIGHTS = {3.0, 1.0, 2.0, 1.5};
+
+    public interface SearchCallback {
+        void onResults(List<Room> rooms);
+    }
+
+    /**
+     * Optional narrowing on the indexed columns. Unset fields don't filter.
+     */
+    public static class Filter {
+        private String propertyType;
+        private double maxPrice;
+        private int minRooms;
+
+        public Filter setPropertyType(String propertyType) {
+            this.propertyType = propertyType;
+            return this;
+        }
+
+        public Filter setMaxPrice(double maxPrice) {
+            this.maxPrice = maxPrice;
+            return this;
+        }
+
+        public Filter setMinRooms(int minRooms) {
+            this.minRooms = minRooms;
+            return this;
+        }
+    }
+
+    private static RoomCatalog instance;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Executor mainExecutor;
+    // Only the latest search is delivered, so fast typing never shows stale results
+    private final AtomicInteger searchGeneration = new AtomicInteger();
+    private final AtomicBoolean syncing = new AtomicBoolean();
+
+    public static synchronized RoomCatalog getInstance(Context context) {
+        if (instance == null) {
+            instance = new RoomCatalog(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private RoomCatalog(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+        mainExecutor = ContextCompat.getMainExecutor(context);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_ROOMS + " (" +
+                "id TEXT NOT NULL UNIQUE, " +
+                "title TEXT, " +
+                "description TEXT, " +
+                "address TEXT, " +
+                "amenities TEXT, " +
+                "property_type TEXT, " +
+                "price REAL NOT NULL DEFAULT 0, " +
+                "rooms_count INTEGER NOT NULL DEFAULT 0, " +
+                "latitude REAL, " +
+                "longitude REAL, " +
+                "thumbnail_url TEXT, " +
+                "status TEXT, " +
+                "is_available INTEGER NOT NULL DEFAULT 1, " +
+                "posted_by TEXT, " +
+                "created_at INTEGER NOT NULL DEFAULT 0, " +
+                "images_updated_at INTEGER NOT NULL DEFAULT 0)");
+
+        db.execSQL("CREATE INDEX idx_rooms_price ON " + TABLE_ROOMS + " (price)");
+        db.execSQL("CREATE INDEX idx_rooms_type_price ON " + TABLE_ROOMS + " (property_type, price)");
+        db.execSQL("CREATE INDEX idx_rooms_count_price ON " + TABLE_ROOMS + " (rooms_count, price)");
+
+        // External content: the text lives once, in rooms; rooms_fts only holds the index
+        db.execSQL("CREATE VIRTUAL TABLE " + TABLE_FTS + " USING fts4(" +
+                "content=\"" + TABLE_ROOMS + "\", title, description, address, amenities, " +
+                "tokenize=unicode61)");
+
+        String columns = "title, description, address, amenities";
+        String newValues = "new.title, new.description, new.address, new.amenities";
+        db.execSQL("CREATE TRIGGER rooms_bu BEFORE UPDATE ON " + TABLE_ROOMS + " BEGIN " +
+                "DELETE FROM " + TABLE_FTS + " WHERE docid = old.rowid; END");
+        db.execSQL("CREATE TRIGGER rooms_bd BEFORE DELETE ON " + TABLE_ROOMS + " BEGIN " +
+                "DELETE FROM " + TABLE_FTS + " WHERE docid = old.rowid; END");
+        db.execSQL("CREATE TRIGGER rooms_au AFTER UPDATE ON " + TABLE_ROOMS + " BEGIN " +
+                "INSERT INTO " + TABLE_FTS + " (docid, " + columns + ") VALUES (new.rowid, " + newValues + "); END");
+        db.execSQL("CREATE TRIGGER rooms_ai AFTER INSERT ON " + TABLE_ROOMS + " BEGIN " +
+                "INSERT INTO " + TABLE_FTS + " (docid, " + columns + ") VALUES (new.rowid, " + newValues + "); END");
+
+        // The rest of the schema is built the same way as on an upgraded install
+        onUpgrade(db, 1, DB_VERSION);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        for (int version = oldVersion + 1; version <= newVersion; version++) {
+            migrate(db, version);
+        }
+    }
+
+    /**
+     * Bring the schema from version - 1 to version, keeping the data.
+     */
+    private void migrate(SQLiteDatabase db, int version) {
+        switch (version) {
+            case 2:
+                db.execSQL("ALTER TABLE " + TABLE_ROOMS + " ADD COLUMN updated_at INTEGER NOT NULL DEFAULT 0");
+                // Newest server change mirrored so far, in ms; no row means sync from scratch
+                db.execSQL("CREATE TABLE " + TABLE_SYNC + " (" +
+                        "source TEXT PRIMARY KEY, " +
+                        "watermark INTEGER NOT NULL)");
+                break;
+            default:
+                throw new IllegalStateException("No migration to catalog version " + version);
+        }
+    }
+
+    /**
+     * Open the database ahead of the first search or sync, so neither waits for it.
+     */
+    public void warmUp() {
+        executor.execute(this::getReadableDatabase);
+    }
+
+    // ==================== SYNC ====================
+
+    /**
+     * Bring the mirror up to date with the server. Without a watermark the whole collection
+     * is read; after that only rooms and tombstones newer than it, so warm starts read as
+     * many rooms as changed. Calls while a sync is running are dropped.
+     */
+    public void sync() {
+        if (!syncing.compareAndSet(false, true)) return;
+        executor.execute(() -> {
+            long start = System.currentTimeMillis();
+            Long rooms = readWatermark(SOURCE_ROOMS);
+            Long tombstones = readWatermark(SOURCE_TOMBSTONES);
+            if (rooms == null || tombstones == null) {
+                fullSync(start);
+                return;
+            }
+            syncSince(SOURCE_ROOMS, rooms, null, rooms, 0, roomChanges ->
+                    syncSince(SOURCE_TOMBSTONES, tombstones, null, tombstones, 0, deletions -> {
+                        Log.d(TAG, "Catalog synced " + roomChanges + " changed and " + deletions
+                                + " deleted rooms (" + (System.currentTimeMillis() - start) + " ms)");
+                        syncing.set(false);
+                    }));
+        });
+    }
+
+    private interface SyncStep {
+        void onDone(int count);
+    }
+
+    private void fullSync(long start) {
+        FirebaseFirestore.getInstance()
+                .collection("rooms")
+                .get(Source.SERVER)
+                .addOnSuccessListener(executor, snapshot -> {
+                    replaceAll(snapshot);
+                    Log.d(TAG, "Catalog fully synced (" + (System.currentTimeMillis() - start) + " ms)");
+                    syncing.set(false);
+                })
+                .addOnFailureListener(executor, this::onSyncFailed);
+    }
+
+    // One page of changes past the watermark after the given document, ordered by stamp;
+    // the watermark only moves once every page is in, so an interrupted sync starts over
+    private void syncSince(String source, long watermark, @Nullable DocumentSnapshot after,
+                           long newest, int count, SyncStep next) {
+        boolean tombstones = SOURCE_TOMBSTONES.equals(source);
+        String field = tombstones ? RoomChanges.FIELD_DELETED_AT : RoomChanges.FIELD_UPDATED_AT;
+        Query query = FirebaseFirestore.getInstance()
+                .collection(tombstones ? RoomChanges.TOMBSTONES : "rooms")
+                .whereGreaterThan(field, new Timestamp(new Date(watermark)))
+                .orderBy(field)
+                .limit(SYNC_PAGE_SIZE);
+        // A document cursor, not a time, so rooms stamped by the same batch aren't skipped
+        if (after != null) query = query.startAfter(after);
+
+        query.get(Source.SERVER)
+                .addOnSuccessListener(executor, page -> {
+                    long pageNewest = applyChanges(page, tombstones, field, newest);
+                    int total = count + page.size();
+                    if (page.size() == SYNC_PAGE_SIZE) {
+                        syncSince(source, watermark, page.getDocuments().get(page.size() - 1),
+                                pageNewest, total, next);
+                        return;
+                    }
+                    if (pageNewest > watermark) writeWatermark(getWritableDatabase(), source, pageNewest);
+                    next.onDone(total);
+                })
+                .addOnFailureListener(executor, this::onSyncFailed);
+    }
+
+    private void onSyncFailed(Exception e) {
+        // Offline or failed: the mirror stays as it was and the next sync retries
+        Log.e(TAG, "Catalog sync failed: " + e.getMessage());
+        syncing.set(false);
+    }
+
+    /**
+     * @return The newest stamp seen, or newest if none was newer
+     */
+    private long applyChanges(QuerySnapshot page, boolean tombstones, String field, long newest) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (DocumentSnapshot doc : page.getDocuments()) {
+                if (tombstones) {
+                    db.delete(TABLE_ROOMS, "id = ?", new String[]{doc.getId()});
+                } else {
+                    upsert(db, doc);
+                }
+                newest = Math.max(newest, stampOf(doc, field));
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return newest;
+    }
+
+    private void replaceAll(QuerySnapshot snapshot) {
+        long start = System.currentTimeMillis();
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            Set<String> seen = new HashSet<>();
+            long newest = 0;
+            for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                if (upsert(db, doc)) seen.add(doc.getId());
+                newest = Math.max(newest, stampOf(doc, RoomChanges.FIELD_UPDATED_AT));
+            }
+
+            List<String> stale = new ArrayList<>();
+            try (Cursor cursor = db.query(TABLE_ROOMS, new String[]{"id"}, null, null, null, null, null)) {
+                while (cursor.moveToNext()) {
+                    if (!seen.contains(cursor.getString(0))) stale.add(cursor.getString(0));
+                }
+            }
+            for (String id : stale) {
+                db.delete(TABLE_ROOMS, "id = ?", new String[]{id});
+            }
+
+            // Anything deleted before the newest room change is already missing from this read
+            writeWatermark(db, SOURCE_ROOMS, newest);
+            writeWatermark(db, SOURCE_TOMBSTONES, newest);
+            db.setTransactionSuccessful();
+            Log.d(TAG, "Catalog holds " + seen.size() + " rooms, removed " + stale.size()
+                    + " (" + (System.currentTimeMillis() - start) + " ms)");
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Rounded down to the ms, so at worst the newest change is fetched once more
+    private static long stampOf(DocumentSnapshot doc, String field) {
+        Timestamp stamp = doc.getTimestamp(field);
+        return stamp != null ? stamp.toDate().getTime() : 0;
+    }
+
+    @Nullable
+    private Long readWatermark(String source) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_SYNC, new String[]{"watermark"},
+                "source = ?", new String[]{source}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : null;
+        }
+    }
+
+    private static void writeWatermark(SQLiteDatabase db, String source, long watermark) {
+        ContentValues values = new ContentValues();
+        values.put("source", source);
+        values.put("watermark", watermark);
+        db.insertWithOnConflict(TABLE_SYNC, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * @return False if the room is not publicly listed and was removed instead
+     */
+    private boolean upsert(SQLiteDatabase db, DocumentSnapshot doc) {
+        Room room = FirestoreRoomBackend.toRoom(doc);
+        // Drafts are still uploading and have no summary either
+        if (room == null || "draft".equals(room.getStatus())) {
+            db.delete(TABLE_ROOMS, "id = ?", new String[]{doc.getId()});
+            return false;
+        }
+
+        ContentValues values = new ContentValues();
+        values.put("id", doc.getId());
+        values.put("title", room.getTitle());
+        values.put("description", room.getDescription());
+        values.put("address", room.getAddress());
+        values.put("amenities", room.getAmenities() != null ? TextUtils.join(" ", room.getAmenities()) : null);
+        values.put("property_type", room.getPropertyType());
+        values.put("price", room.getPrice());
+        values.put("rooms_count", room.getRoomsCount());
+        values.put("latitude", room.getLatitude());
+        values.put("longitude", room.getLongitude());
+        List<String> thumbs = ImageRenditions.urls(room, ImageRenditions.Size.THUMB);
+        values.put("thumbnail_url", thumbs.isEmpty() ? null : thumbs.get(0));
+        values.put("status", room.getStatus());
+        values.put("is_available", room.isAvailable() ? 1 : 0);
+        values.put("posted_by", room.getPostedBy());
+        values.put("created_at", room.getCreatedAt());
+        values.put("images_updated_at", room.getImagesUpdatedAt());
+        values.put("updated_at", room.getUpdatedAt() != null ? room.getUpdatedAt().getTime() : 0);
+
+        // Not REPLACE: its implicit delete would skip the FTS delete trigger
+        if (db.update(TABLE_ROOMS, values, "id = ?", new String[]{doc.getId()}) == 0) {
+            db.insert(TABLE_ROOMS, null, values);
+        }
+        return true;
+    }
+
+    // ==================== SEARCH ====================
+
+    /**
+     * Ranked prefix search over title, description, address and amenities; with empty text,
+     * just the filter, cheapest first. Earlier searches still running are not delivered.
+     */
+    public void search(String text, @Nullable Filter filter, int limit, SearchCallback callback) {
+        int generation = searchGeneration.incrementAndGet();
+        executor.execute(() -> {
+            if (generation != searchGeneration.get()) return;
+            List<Room> results;
+            try {
+                results = searchNow(text, filter, limit);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Catalog search failed", e);
+                results = Collections.emptyList();
+            }
+            List<Room> delivered = results;
+            mainExecutor.execute(() -> {
+                if (generation == searchGeneration.get()) callback.onResults(delivered);
+            });
+        });
+    }
+
+    private List<Room> searchNow(String text, @Nullable Filter filter, int limit) {
+        long start = System.nanoTime();
+        SQLiteDatabase db = getReadableDatabase();
+        String match = toMatchQuery(text);
+
+        List<String> args = new ArrayList<>();
+        StringBuilder where = new StringBuilder("1");
+        if (filter != null) {
+            if (filter.propertyType != null) {
+                where.append(" AND r.property_type = ?");
+                args.add(filter.propertyType);
+            }
+            if (filter.maxPrice > 0) {
+                where.append(" AND r.price <= ?");
+                args.add(String.valueOf(filter.maxPrice));
+            }
+            if (filter.minRooms > 0) {
+                where.append(" AND r.rooms_count >= ?");
+                args.add(String.valueOf(filter.minRooms));
+            }
+        }
+
+        List<Room> results = new ArrayList<>();
+        if (match == null) {
+            try (Cursor cursor = db.rawQuery("SELECT r.* FROM " + TABLE_ROOMS + " r WHERE " + where +
+                    " ORDER BY r.price LIMIT " + limit, args.toArray(new String[0]))) {
+                while (cursor.moveToNext()) {
+                    results.add(toRoom(cursor));
+                }
+            }
+            return results;
+        }
+
+        args.add(0, match);
+        List<double[]> scores = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("SELECT r.*, matchinfo(" + TABLE_FTS + ", 'pcnalx') AS info FROM " +
+                TABLE_FTS + " JOIN " + TABLE_ROOMS + " r ON r.rowid = " + TABLE_FTS + ".docid WHERE " +
+                TABLE_FTS + " MATCH ? AND " + where, args.toArray(new String[0]))) {
+            int infoColumn = cursor.getColumnIndexOrThrow("info");
+            while (cursor.moveToNext()) {
+                scores.add(new double[]{bm25(cursor.getBlob(infoColumn)), results.size()});
+                results.add(toRoom(cursor));
+            }
+        }
+
+        Collections.sort(scores, (a, b) -> Double.compare(b[0], a[0]));
+        List<Room> ranked = new ArrayList<>(Math.min(limit, scores.size()));
+        for (int i = 0; i < scores.size() && i < limit; i++) {
+            ranked.add(results.get((int) scores.get(i)[1]));
+        }
+        Log.d(TAG, "Search \"" + text + "\": " + results.size() + " matches in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return ranked;
+    }
+
+    /**
+     * Every word of the input as a prefix term, ANDed. Lowercased so words like "or" and
+     * "not" are never read as operators.
+     *
+     * @return null when the input has no searchable words
+     */
+    @Nullable
+    static String toMatchQuery(String text) {
+        if (text == null) return null;
+        StringBuilder query = new StringBuilder();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) continue;
+            if (query.length() > 0) query.append(' ');
+            query.append(word).append('*');
+        }
+        return query.length() > 0 ? query.toString() : null;
+    }
+
+    /**
+     * Okapi BM25 from matchinfo 'pcnalx': phrase and column counts, row count, average and
+     * row token counts per column, then per phrase and column the hits in this row, hits in
+     * all rows and rows with a hit.
+     */
+    private static double bm25(byte[] blob) {
+        ByteBuffer info = ByteBuffer.wrap(blob).order(ByteOrder.nativeOrder());
+        int phrases = info.getInt(0);
+        int columns = info.getInt(4);
+        long rows = info.getInt(8) & 0xffffffffL;
+        int avgOffset = 3;
+        int lengthOffset = avgOffset + columns;
+        int hitsOffset = lengthOffset + columns;
+
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns && column < COLUMN_WEIGHTS.length; column++) {
+                int base = hitsOffset + 3 * (phrase * columns + column);
+                double hits = info.getInt(base * 4);
+                if (hits == 0) continue;
+                double docsWithHit = info.getInt((base + 2) * 4);
+                double avgLength = Math.max(1, info.getInt((avgOffset + column) * 4));
+                double length = info.getInt((lengthOffset + column) * 4);
+
+                double idf = Math.log((rows - docsWithHit + 0.5) / (docsWithHit + 0.5));
+                // Very common words still count a little
+                if (idf <= 0) idf = 1e-6;
+                score += COLUMN_WEIGHTS[column] * idf * (hits * (K1 + 1))
+                        / (hits + K1 * (1 - B + B * length / avgLength));
+            }
+        }
+        return score;
+    }
+
+    private static Room toRoom(Cursor cursor) {
+        Room room = new Room();
+        room.setId(cursor.getString(cursor.getColumnIndexOrThrow("id")));
+        room.setTitle(cursor.getString(cursor.getColumnIndexOrThrow("title")));
+        room.setDescription(cursor.getString(cursor.getColumnIndexOrThrow("description")));
+        room.setAddress(cursor.getString(cursor.getColumnIndexOrThrow("address")));
+        room.setPropertyType(cursor.getString(cursor.getColumnIndexOrThrow("property_type")));
+        room.setPrice(cursor.getDouble(cursor.getColumnIndexOrThrow("price")));
+        room.setRoomsCount(cursor.getInt(cursor.getColumnIndexOrThrow("rooms_count")));
+        room.setLatitude(cursor.getDouble(cursor.getColumnIndexOrThrow("latitude")));
+        room.setLongitude(cursor.getDouble(cursor.getColumnIndexOrThrow("longitude")));
+        room.setPostedBy(cursor.getString(cursor.getColumnIndexOrThrow("posted_by")));
+        room.setAvailable(cursor.getInt(cursor.getColumnIndexOrThrow("is_available")) == 1);
+        room.setCreatedAt(cursor.getLong(cursor.getColumnIndexOrThrow("created_at")));
+        room.setImagesUpdatedAt(cursor.getLong(cursor.getColumnIndexOrThrow("images_updated_at")));
+        long updatedAt = cursor.getLong(cursor.getColumnIndexOrThrow("updated_at"));
+        if (updatedAt > 0) room.setUpdatedAt(new Date(updatedAt));
+
+        String status = cursor.getString(cursor.getColumnIndexOrThrow("status"));
+        if (status != null) room.setStatus(status);
+
+        String thumbnail = cursor.getString(cursor.getColumnIndexOrThrow("thumbnail_url"));
+        List<String> images = new ArrayList<>();
+        if (thumbnail != null) images.add(thumbnail);
+        room.setImages(images);
+        return room;
+    }
+}
@@ -0,0 +1,42 @@
+package com.app.roomify;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * What lets RoomCatalog sync only what changed. Every write to a room stamps updatedAt
+ * with the server time, and deleting a room leaves a tombstone in room_tombstones under
+ * the same document id, since a deleted document can't show up in a query.
+ */
+public class RoomChanges {
+
+    public static final String FIELD_UPDATED_AT = "updatedAt";
+
+    public static final String TOMBSTONES = "room_tombstones";
+    public static final String FIELD_DELETED_AT = "deletedAt";
+
+    /**
+     * Add the server-time stamp to a room write or update.
+     *
+     * @return The same map
+     */
+    public static Map<String, Object> stamp(Map<String, Object> roomData) {
+        roomData.put(FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+        return roomData;
+    }
+
+    public static DocumentReference tombstone(String roomId) {
+        return FirebaseFirestore.getInstance().collection(TOMBSTONES).document(roomId);
+    }
+
+    public static Map<String, Object> tombstoneData(String ownerId) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("postedBy", ownerId);
+        data.put(FIELD_DELETED_AT, FieldValue.serverTimestamp());
+        return data;
+    }
+}
@@ -0,0 +1,234 @@
+package com.app.roomify;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Grid based clustering for room markers.
+ * Rooms are projected to Web Mercator pixels and bucketed into fixed size cells per
+ * integer zoom level, so the same engine works for Google Maps and osmdroid.
+ * Clustering runs on a background thread and results are cached per zoom level until
+ * the room set changes, so panning at a fixed zoom never recomputes.
+ */
+public class RoomClusterer {
+
+    // Cell size in screen pixels (256px tiles), roughly one marker icon plus spacing
+    private static final double CELL_SIZE_PX = 96;
+    private static final double TILE_SIZE_PX = 256;
+
+    // From this zoom level on every room gets its own marker
+    public static final int MAX_CLUSTER_ZOOM = 17;
+
+    public interface OnClustersReadyListener {
+        void onClustersReady(int zoom, List<Cluster> clusters);
+    }
+
+    /**
+     * A group of rooms sharing one grid cell. A cluster of one is rendered as the room marker itself.
+     */
+    public static class Cluster {
+        private final String key;
+        private final double latitude;
+        private final double longitude;
+        private final double minLatitude, maxLatitude, minLongitude, maxLongitude;
+        private final double minPrice, maxPrice;
+        private final List<String> roomIds;
+
+        Cluster(String key, List<Item> items) {
+            double latSum = 0, lngSum = 0;
+            double minLat = 90, maxLat = -90, minLng = 180, maxLng = -180;
+            double minP = Double.MAX_VALUE, maxP = 0;
+            List<String> ids = new ArrayList<>(items.size());
+
+            for (Item item : items) {
+                latSum += item.latitude;
+                lngSum += item.longitude;
+                minLat = Math.min(minLat, item.latitude);
+                maxLat = Math.max(maxLat, item.latitude);
+                minLng = Math.min(minLng, item.longitude);
+                maxLng = Math.max(maxLng, item.longitude);
+                minP = Math.min(minP, item.price);
+                maxP = Math.max(maxP, item.price);
+                ids.add(item.id);
+            }
+
+            this.key = key;
+            this.latitude = latSum / items.size();
+            this.longitude = lngSum / items.size();
+            this.minLatitude = minLat;
+            this.maxLatitude = maxLat;
+            this.minLongitude = minLng;
+            this.maxLongitude = maxLng;
+            this.minPrice = minP;
+            this.maxPrice = maxP;
+            this.roomIds = Collections.unmodifiableList(ids);
+        }
+
+        /** Stable identity: the room id for single rooms, the grid cell otherwise. */
+        public String getKey() { return key; }
+        public double getLatitude() { return latitude; }
+        public double getLongitude() { return longitude; }
+        public double getMinLatitude() { return minLatitude; }
+        public double getMaxLatitude() { return maxLatitude; }
+        public double getMinLongitude() { return minLongitude; }
+        public double getMaxLongitude() { return maxLongitude; }
+        public double getMinPrice() { return minPrice; }
+        public double getMaxPrice() { return maxPrice; }
+        public List<String> getRoomIds() { return roomIds; }
+        public int getSize() { return roomIds.size(); }
+        public boolean isSingleRoom() { return roomIds.size() == 1; }
+
+        public boolean isWithin(double south, double west, double north, double east) {
+            if (latitude < south || latitude > north) return false;
+            // Bounds crossing the antimeridian have west > east
+            return west <= east
+                    ? longitude >= west && longitude <= east
+                    : longitude >= west || longitude <= east;
+        }
+
+        /**
+         * @return Price range label (e.g., "$200 - $450")
+         */
+        public String getPriceRangeText() {
+            String min = "$" + String.format("%,.0f", minPrice);
+            if (maxPrice == minPrice) return min;
+            return min + " - $" + String.format("%,.0f", maxPrice);
+        }
+
+        // Content equality, used to skip re-rendering unchanged cluster markers
+        public boolean hasSameContent(Cluster other) {
+            return other != null
+                    && key.equals(other.key)
+                    && roomIds.size() == other.roomIds.size()
+                    && minPrice == other.minPrice
+                    && maxPrice == other.maxPrice
+                    && latitude == other.latitude
+                    && longitude == other.longitude;
+        }
+    }
+
+    /** Immutable per-room input, projected once when the room set changes. */
+    static class Item {
+        final String id;
+        final double latitude;
+        final double longitude;
+        final double price;
+        final double worldX;   // 0..1 Mercator x
+        final double worldY;   // 0..1 Mercator y
+
+        Item(String id, double latitude, double longitude, double price) {
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.price = price;
+            this.worldX = longitude / 360.0 + 0.5;
+            double sin = Math.sin(Math.toRadians(Math.max(-85.0511, Math.min(85.0511, latitude))));
+            this.worldY = 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+        }
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Executor callbackExecutor;
+    private final AtomicInteger requestGeneration = new AtomicInteger();
+
+    private volatile List<Item> items = Collections.emptyList();
+    private volatile Map<Integer, List<Cluster>> cache = new HashMap<>();
+
+    /**
+     * @param callbackExecutor Where results are delivered, usually the main thread executor
+     */
+    public RoomClusterer(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Replace the clustered room set. Cheap enough to call on every snapshot; the projection
+     * is done here and cached clusters are dropped.
+     */
+    public void setRooms(Collection<Room> rooms) {
+        List<Item> newItems = new ArrayList<>(rooms.size());
+        for (Room room : rooms) {
+            if (room.getId() == null) continue;
+            if (room.getLatitude() == 0 && room.getLongitude() == 0) continue;
+            newItems.add(new Item(room.getId(), room.getLatitude(), room.getLongitude(), room.getPrice()));
+        }
+        items = newItems;
+        cache = new HashMap<>();
+    }
+
+    /**
+     * Compute clusters for the given camera zoom off the main thread.
+     * Only the latest request is delivered; superseded results are dropped.
+     */
+    public void requestClusters(float zoom, OnClustersReadyListener listener) {
+        final int generation = requestGeneration.incrementAndGet();
+        final int zoomLevel = (int) Math.floor(zoom);
+        final List<Item> snapshot = items;
+        final Map<Integer, List<Cluster>> snapshotCache = cache;
+
+        executor.execute(() -> {
+            // The cache is only touched from this single worker thread
+            List<Cluster> clusters = snapshotCache.get(zoomLevel);
+            if (clusters == null) {
+                clusters = cluster(snapshot, zoomLevel);
+                snapshotCache.put(zoomLevel, clusters);
+            }
+
+            final List<Cluster> result = clusters;
+            callbackExecutor.execute(() -> {
+                if (generation == requestGeneration.get()) {
+                    listener.onClustersReady(zoomLevel, result);
+                }
+            });
+        });
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    static List<Cluster> cluster(List<Item> items, int zoomLevel) {
+        List<Cluster> clusters = new ArrayList<>();
+
+        if (zoomLevel >= MAX_CLUSTER_ZOOM) {
+            for (Item item : items) {
+                clusters.add(new Cluster(item.id, Collections.singletonList(item)));
+            }
+            return clusters;
+        }
+
+        double cellsPerWorld = TILE_SIZE_PX * Math.pow(2, zoomLevel) / CELL_SIZE_PX;
+        Map<Long, List<Item>> cells = new LinkedHashMap<>();
+
+        for (Item item : items) {
+            long cellX = (long) Math.floor(item.worldX * cellsPerWorld);
+            long cellY = (long) Math.floor(item.worldY * cellsPerWorld);
+            long cellKey = (cellX << 32) | (cellY & 0xffffffffL);
+
+            List<Item> cell = cells.get(cellKey);
+            if (cell == null) {
+                cell = new ArrayList<>();
+                cells.put(cellKey, cell);
+            }
+            cell.add(item);
+        }
+
+        for (Map.Entry<Long, List<Item>> entry : cells.entrySet()) {
+            List<Item> cell = entry.getValue();
+            String key = cell.size() == 1
+                    ? cell.get(0).id
+                    : "cluster:" + zoomLevel + ":" + entry.getKey();
+            clusters.add(new Cluster(key, cell));
+        }
+        return clusters;
+    }
+}
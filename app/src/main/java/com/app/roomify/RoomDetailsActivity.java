@@ -22,10 +22,14 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
+import androidx.core.util.Pair;
+import androidx.media3.common.util.UnstableApi;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.viewpager2.widget.ViewPager2;
@@ -34,11 +38,13 @@ import com.bumptech.glide.Glide;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.material.button.MaterialButton;
+import com.google.android.material.datepicker.CalendarConstraints;
+import com.google.android.material.datepicker.CompositeDateValidator;
+import com.google.android.material.datepicker.DateValidatorPointForward;
+import com.google.android.material.datepicker.MaterialDatePicker;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
-import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.android.material.progressindicator.LinearProgressIndicator;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
 
 import org.osmdroid.config.Configuration;
 import org.osmdroid.util.GeoPoint;
@@ -46,11 +52,7 @@ import org.osmdroid.views.MapView;
 import org.osmdroid.views.overlay.Marker;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -108,13 +110,22 @@ public class RoomDetailsActivity extends AppCompatActivity {
     private Room currentRoom;
     private boolean alreadyRequested = false;
     private boolean isRoomLoaded = false;
+    private boolean isFavorite = false;
+    private LinearProgressIndicator refreshIndicator;
+    private DateRangeIndex bookedDates = new DateRangeIndex();
     private List<String> imageUrls = new ArrayList<>();
+    private List<String> pagerImageUrls = new ArrayList<>();
+    private List<String> thumbnailUrls = new ArrayList<>();
     private List<String> amenitiesList = new ArrayList<>();
+    // The room listener calls showRoom on every change; these are set up once and then updated
+    private Marker roomMarker;
+    private ViewPager2.OnPageChangeCallback indicatorCallback;
+    private String shownVideoUrl;
+    private boolean isPagerSetUp;
 
     // Firebase
     private FusedLocationProviderClient fusedLocationClient;
     private FirebaseFirestore db;
-    private FirebaseStorage storage;
     private ExecutorService executorService;
 
     @Override
@@ -148,13 +159,15 @@ public class RoomDetailsActivity extends AppCompatActivity {
         loadRoomDetails();
         checkIfAlreadyRequested();
         checkIfFavorite();
+
+        // Have the tenant's profile ready before they tap "Book Now"
+        UserProfileCache.getInstance().get(FirebaseUtils.getCurrentUserId(), profile -> { });
     }
 
     // ==================== INITIALIZATION METHODS ====================
 
     private void initializeFirebase() {
         db = FirebaseFirestore.getInstance();
-        storage = FirebaseStorage.getInstance();
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
     }
 
@@ -193,6 +206,7 @@ public class RoomDetailsActivity extends AppCompatActivity {
         btnCallOwner = findViewById(R.id.btnCallOwner);
         btnMessageOwner = findViewById(R.id.btnMessageOwner);
         btnBookNow = findViewById(R.id.btnBookNow);
+        refreshIndicator = findViewById(R.id.refreshIndicator);
         btnFavorite = findViewById(R.id.btnFavorite);
 
         // Media Action Layouts
@@ -308,44 +322,63 @@ public class RoomDetailsActivity extends AppCompatActivity {
 
     // ==================== DATA LOADING METHODS ====================
 
+    // The cached room draws immediately, possibly the summary a list already loaded; the
+    // repository's listener then brings the full server copy and later edits, e.g. newly
+    // booked dates
     private void loadRoomDetails() {
-        FirebaseUtils.getRoom(roomId, task -> {
-            if (!task.isSuccessful() || task.getResult() == null) {
-                Toast.makeText(this, "Failed to load room", Toast.LENGTH_SHORT).show();
-                if (btnBookNow != null) {
-                    btnBookNow.setEnabled(false);
-                    btnBookNow.setText("Error Loading");
+        RoomRepository.getInstance(this).observeRoom(this, roomId, new RoomRepository.RoomObserver() {
+            @Override
+            public void onRoom(@Nullable Room room, boolean fromCache) {
+                if (refreshIndicator != null) {
+                    refreshIndicator.setVisibility(fromCache ? View.VISIBLE : View.GONE);
                 }
-                return;
+                if (room == null) {
+                    Toast.makeText(RoomDetailsActivity.this, "Room data not found", Toast.LENGTH_SHORT).show();
+                    if (btnBookNow != null) {
+                        btnBookNow.setEnabled(false);
+                        btnBookNow.setText("Data Error");
+                    }
+                    return;
+                }
+
+                // Only the metadata changed, e.g. the server confirmed the cached copy
+                if (room == currentRoom) return;
+
+                showRoom(room);
             }
 
-            DocumentSnapshot doc = task.getResult();
-            Room room = doc.toObject(Room.class);
-            if (room == null) {
-                Toast.makeText(this, "Room data not found", Toast.LENGTH_SHORT).show();
+            @Override
+            public void onError(@NonNull Exception e) {
+                Log.e(TAG, "Room listener failed", e);
+                if (refreshIndicator != null) refreshIndicator.setVisibility(View.GONE);
+                // Keep showing the cached room if there is one
+                if (isRoomLoaded) return;
+                Toast.makeText(RoomDetailsActivity.this, "Failed to load room", Toast.LENGTH_SHORT).show();
                 if (btnBookNow != null) {
                     btnBookNow.setEnabled(false);
-                    btnBookNow.setText("Data Error");
+                    btnBookNow.setText("Error Loading");
                 }
-                return;
             }
-
-            currentRoom = room;
-            isRoomLoaded = true;
-            roomLat = room.getLatitude();
-            roomLng = room.getLongitude();
-
-            displayBasicInfo(room);
-            displayOwnerInfo(room);
-            displayAmenities(room);
-            loadRoomMedia(room);
-            setupMapPreview(room);
-            updateRoomStatus(room);
-            updateBookButtonState(room);
-            updateMediaButtonsVisibility(room);
         });
     }
 
+    private void showRoom(Room room) {
+        currentRoom = room;
+        isRoomLoaded = true;
+        bookedDates = RoomAvailability.parse(room.getBookedRanges());
+        roomLat = room.getLatitude();
+        roomLng = room.getLongitude();
+
+        displayBasicInfo(room);
+        displayOwnerInfo(room);
+        displayAmenities(room);
+        loadRoomMedia(room);
+        setupMapPreview(room);
+        updateRoomStatus(room);
+        updateBookButtonState(room);
+        updateMediaButtonsVisibility(room);
+    }
+
     // ==================== DISPLAY METHODS ====================
 
     private void displayBasicInfo(Room room) {
@@ -402,24 +435,11 @@ public class RoomDetailsActivity extends AppCompatActivity {
     private void loadOwnerDetailsFromUserCollection(String ownerId) {
         if (db == null) return;
 
-        db.collection("users").document(ownerId).get()
-                .addOnSuccessListener(userDoc -> {
-                    if (tvOwnerName != null) {
-                        if (userDoc.exists()) {
-                            String name = userDoc.getString("name");
-                            if (name == null || name.isEmpty()) {
-                                name = userDoc.getString("fullName");
-                            }
-                            tvOwnerName.setText(name != null && !name.isEmpty() ? name : "Owner");
-                        } else {
-                            tvOwnerName.setText("Owner");
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    if (tvOwnerName != null) tvOwnerName.setText("Owner");
-                    Log.e(TAG, "Failed to load owner details", e);
-                });
+        UserProfileCache.getInstance().get(ownerId, profile -> {
+            if (tvOwnerName == null) return;
+            String name = UserProfileCache.getName(profile);
+            tvOwnerName.setText(name != null ? name : "Owner");
+        });
     }
 
     private void displayAmenities(Room room) {
@@ -440,44 +460,20 @@ public class RoomDetailsActivity extends AppCompatActivity {
     // ==================== MEDIA METHODS ====================
 
     private void loadRoomMedia(Room room) {
-        if (room.getImageCount() > 0) {
-            loadImagesFromStorage();
-        } else {
-            hideImageGallery();
-        }
+        // URLs come with the room doc, in posting order; full size only opens in the viewer
+        List<String> pagerUrls = ImageRenditions.urls(room, ImageRenditions.Size.MEDIUM);
+        imageUrls = ImageRenditions.urls(room, ImageRenditions.Size.FULL);
+        thumbnailUrls = ImageRenditions.urls(room, ImageRenditions.Size.THUMB);
+        // Rebuilt only when the photos changed, e.g. from the summary's thumbnail to the full room
+        if (isPagerSetUp && pagerUrls.equals(pagerImageUrls)) return;
+        pagerImageUrls = pagerUrls;
+        isPagerSetUp = true;
+        setupImagePager();
 
         Log.d(TAG, "Has video: " + room.isHasVideo());
         Log.d(TAG, "Has contract: " + room.isHasContract());
     }
 
-    private void loadImagesFromStorage() {
-        if (storage == null || roomId == null) return;
-
-        StorageReference roomImagesRef = storage.getReference()
-                .child("rooms/" + roomId + "/images");
-
-        roomImagesRef.listAll()
-                .addOnSuccessListener(listResult -> {
-                    if (listResult.getItems().isEmpty()) {
-                        hideImageGallery();
-                        return;
-                    }
-
-                    for (StorageReference item : listResult.getItems()) {
-                        item.getDownloadUrl().addOnSuccessListener(uri -> {
-                            imageUrls.add(uri.toString());
-                            setupImagePager();
-                        }).addOnFailureListener(e -> {
-                            Log.e(TAG, "Failed to get image URL: " + e.getMessage());
-                        });
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to load images", e);
-                    hideImageGallery();
-                });
-    }
-
     private void hideImageGallery() {
         if (viewPagerImages != null) viewPagerImages.setVisibility(View.GONE);
         if (imageIndicator != null) imageIndicator.setVisibility(View.GONE);
@@ -490,8 +486,15 @@ public class RoomDetailsActivity extends AppCompatActivity {
             return;
         }
 
-        ImagePagerAdapter adapter = new ImagePagerAdapter(imageUrls);
+        int page = viewPagerImages.getAdapter() != null ? viewPagerImages.getCurrentItem() : 0;
+        ImagePagerAdapter adapter = new ImagePagerAdapter(pagerImageUrls, thumbnailUrls);
+        // Neighbouring pages load ahead so a swipe lands on a decoded image
+        viewPagerImages.setOffscreenPageLimit(1);
         viewPagerImages.setAdapter(adapter);
+        // Stay on the photo being looked at if it is still there
+        if (page < pagerImageUrls.size()) viewPagerImages.setCurrentItem(page, false);
+        viewPagerImages.setVisibility(View.VISIBLE);
+        if (imageIndicator != null) imageIndicator.setVisibility(View.VISIBLE);
         setupImageIndicator();
 
         if (btnViewImages != null) {
@@ -515,11 +518,13 @@ public class RoomDetailsActivity extends AppCompatActivity {
             imageIndicator.addView(dot);
         }
 
-        if (imageIndicator.getChildCount() > 0) {
-            imageIndicator.getChildAt(0).setBackgroundResource(R.drawable.dot_active);
+        int current = viewPagerImages.getCurrentItem();
+        if (current < imageIndicator.getChildCount()) {
+            imageIndicator.getChildAt(current).setBackgroundResource(R.drawable.dot_active);
         }
 
-        viewPagerImages.registerOnPageChangeCallback(new ViewPager2.OnPageChangeCallback() {
+        if (indicatorCallback != null) return;
+        indicatorCallback = new ViewPager2.OnPageChangeCallback() {
             @Override
             public void onPageSelected(int position) {
                 for (int i = 0; i < imageIndicator.getChildCount(); i++) {
@@ -529,7 +534,8 @@ public class RoomDetailsActivity extends AppCompatActivity {
                     );
                 }
             }
-        });
+        };
+        viewPagerImages.registerOnPageChangeCallback(indicatorCallback);
     }
 
     private void updateMediaButtonsVisibility(Room room) {
@@ -548,8 +554,11 @@ public class RoomDetailsActivity extends AppCompatActivity {
                 videoPreviewSection.setVisibility(hasVideo ? View.VISIBLE : View.GONE);
                 if (hasVideo) {
                     hasAnyMedia = true;
-                    // Load video thumbnail
-                    loadVideoThumbnail(room.getVideoUrl());
+                    // Thumbnail and preload once per video, not on every room update
+                    if (!room.getVideoUrl().equals(shownVideoUrl)) {
+                        shownVideoUrl = room.getVideoUrl();
+                        loadVideoThumbnail(shownVideoUrl);
+                    }
                 }
             }
 
@@ -602,27 +611,25 @@ public class RoomDetailsActivity extends AppCompatActivity {
 
     // ==================== NEW VIDEO THUMBNAIL METHODS ====================
 
+    @OptIn(markerClass = UnstableApi.class)
     private void loadVideoThumbnail(String videoUrl) {
         if (ivVideoThumbnail == null) return;
 
         // Show placeholder first
         ivVideoThumbnail.setImageResource(R.drawable.ic_video_placeholder);
 
-        // Try to extract thumbnail from video URL
+        VideoCache videoCache = VideoCache.getInstance(this);
+        // Warm the start of the tour so pressing play starts without buffering
+        videoCache.preload(videoUrl);
+
+        // Extracted once through the video cache, then read from disk
         executorService.execute(() -> {
-            try {
-                // For remote video URLs, we can use MediaMetadataRetriever
-                // Note: This requires the video to be downloaded partially
-                // For now, we'll just use placeholder
-                // You can implement thumbnail extraction using Glide or other libraries
-
-                runOnUiThread(() -> {
-                    // Keep placeholder or try to load from custom thumbnail
-                    // Glide.with(this).load(videoUrl + "?thumbnail").into(ivVideoThumbnail);
-                });
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to load video thumbnail: " + e.getMessage());
-            }
+            File thumbnail = videoCache.getThumbnail(videoUrl);
+            if (thumbnail == null) return;
+            runOnUiThread(() -> {
+                if (isFinishing() || isDestroyed()) return;
+                Glide.with(this).load(thumbnail).centerCrop().into(ivVideoThumbnail);
+            });
         });
     }
 
@@ -708,74 +715,61 @@ public class RoomDetailsActivity extends AppCompatActivity {
     private void downloadFile(String fileUrl, String fileName, String fileType) {
         Toast.makeText(this, "Downloading " + fileType + "...", Toast.LENGTH_SHORT).show();
 
-        executorService.execute(() -> {
-            try {
-                URL url = new URL(fileUrl);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setConnectTimeout(15000);
-                connection.setReadTimeout(15000);
-                connection.connect();
-
-                if (connection.getResponseCode() == HttpURLConnection.HTTP_OK) {
-                    InputStream inputStream = connection.getInputStream();
-
-                    File downloadDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
-                    if (!downloadDir.exists()) {
-                        downloadDir.mkdirs();
-                    }
+        // Fetched once into the app's download store, then copied out to Downloads
+        DownloadEngine engine = DownloadEngine.getInstance(this);
+        engine.download(fileUrl, new DownloadEngine.Listener() {
+            @Override
+            public void onProgress(long bytesDone, long bytesTotal) {
+                if (bytesTotal > 0) {
+                    Log.d(TAG, fileType + " download " + (bytesDone * 100 / bytesTotal) + "%");
+                }
+            }
 
-                    File outputFile = new File(downloadDir, fileName);
-                    FileOutputStream outputStream = new FileOutputStream(outputFile);
+            @Override
+            public void onComplete(File file) {
+                engine.export(RoomDetailsActivity.this, file, Environment.DIRECTORY_DOWNLOADS, fileName,
+                        getMimeType(fileName), new DownloadEngine.Listener() {
+                    @Override
+                    public void onProgress(long bytesDone, long bytesTotal) {
+                    }
 
-                    byte[] buffer = new byte[4096];
-                    int bytesRead;
-                    long totalBytes = 0;
-                    while ((bytesRead = inputStream.read(buffer)) != -1) {
-                        outputStream.write(buffer, 0, bytesRead);
-                        totalBytes += bytesRead;
+                    @Override
+                    public void onComplete(File exported) {
+                        if (isFinishing() || isDestroyed()) return;
+                        Toast.makeText(RoomDetailsActivity.this, fileType + " downloaded: " + fileName +
+                                " (" + (exported.length() / 1024) + " KB)", Toast.LENGTH_LONG).show();
+                        showDownloadCompleteDialog(fileName, exported);
                     }
 
-                    outputStream.close();
-                    inputStream.close();
-                    connection.disconnect();
+                    @Override
+                    public void onError(Exception e) {
+                        Log.e(TAG, "Could not save " + fileName + ": " + e.getMessage());
+                        Toast.makeText(RoomDetailsActivity.this, "Download error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    }
+                });
+            }
 
-                    final long finalTotalBytes = totalBytes;
-                    runOnUiThread(() -> {
-                        Toast.makeText(this, fileType + " downloaded: " + fileName +
-                                " (" + (finalTotalBytes / 1024) + " KB)", Toast.LENGTH_LONG).show();
-                        showDownloadCompleteDialog(fileName);
-                    });
-                } else {
-                    runOnUiThread(() -> Toast.makeText(this, "Download failed: Server error", Toast.LENGTH_SHORT).show());
-                }
-            } catch (Exception e) {
+            @Override
+            public void onError(Exception e) {
                 Log.e(TAG, "Download error: " + e.getMessage());
-                runOnUiThread(() -> Toast.makeText(this, "Download error: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+                Toast.makeText(RoomDetailsActivity.this, "Download error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
             }
         });
     }
 
-    private void showDownloadCompleteDialog(String fileName) {
+    private void showDownloadCompleteDialog(String fileName, File stored) {
         new MaterialAlertDialogBuilder(this)
                 .setTitle("Download Complete")
                 .setMessage(fileName + " has been downloaded to Downloads folder")
-                .setPositiveButton("Open", (dialog, which) -> openDownloadedFile(fileName))
+                .setPositiveButton("Open", (dialog, which) -> openDownloadedFile(fileName, stored))
                 .setNegativeButton("Close", null)
                 .show();
     }
 
-    private void openDownloadedFile(String fileName) {
-        File downloadDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
-        File file = new File(downloadDir, fileName);
-
+    // Opened from the app's own copy; the public one may only be reachable through MediaStore
+    private void openDownloadedFile(String fileName, File file) {
         if (file.exists()) {
-            Uri fileUri;
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-                fileUri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", file);
-            } else {
-                fileUri = Uri.fromFile(file);
-            }
+            Uri fileUri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", file);
 
             Intent intent = new Intent(Intent.ACTION_VIEW);
             intent.setDataAndType(fileUri, getMimeType(fileName));
@@ -799,30 +793,17 @@ public class RoomDetailsActivity extends AppCompatActivity {
         return "*/*";
     }
 
+    // From API 29 saving goes through MediaStore, which needs no permission
     private boolean checkStoragePermission() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
-            return Environment.isExternalStorageManager();
-        } else {
-            return ContextCompat.checkSelfPermission(this, Manifest.permission.WRITE_EXTERNAL_STORAGE)
-                    == PackageManager.PERMISSION_GRANTED;
-        }
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                || ContextCompat.checkSelfPermission(this, Manifest.permission.WRITE_EXTERNAL_STORAGE)
+                == PackageManager.PERMISSION_GRANTED;
     }
 
     private void requestStoragePermission() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
-            try {
-                Intent intent = new Intent(android.provider.Settings.ACTION_MANAGE_APP_ALL_FILES_ACCESS_PERMISSION);
-                intent.setData(Uri.parse("package:" + getPackageName()));
-                startActivity(intent);
-            } catch (Exception e) {
-                Intent intent = new Intent(android.provider.Settings.ACTION_MANAGE_ALL_FILES_ACCESS_PERMISSION);
-                startActivity(intent);
-            }
-        } else {
-            ActivityCompat.requestPermissions(this,
-                    new String[]{Manifest.permission.WRITE_EXTERNAL_STORAGE},
-                    STORAGE_PERMISSION_REQUEST_CODE);
-        }
+        ActivityCompat.requestPermissions(this,
+                new String[]{Manifest.permission.WRITE_EXTERNAL_STORAGE},
+                STORAGE_PERMISSION_REQUEST_CODE);
     }
 
     // ==================== MAP METHODS ====================
@@ -831,27 +812,32 @@ public class RoomDetailsActivity extends AppCompatActivity {
         if (mapPreview == null) return;
 
         try {
-            mapPreview.setMultiTouchControls(true);
-            mapPreview.getController().setZoom(15.0);
+            boolean firstTime = roomMarker == null;
+            if (firstTime) {
+                mapPreview.setMultiTouchControls(true);
+                mapPreview.getController().setZoom(15.0);
+                roomMarker = new Marker(mapPreview);
+                roomMarker.setAnchor(Marker.ANCHOR_CENTER, Marker.ANCHOR_BOTTOM);
+                mapPreview.getOverlays().add(roomMarker);
+            }
 
             GeoPoint roomPoint;
             if (roomLat != 0 && roomLng != 0) {
                 roomPoint = new GeoPoint(roomLat, roomLng);
             } else {
                 roomPoint = new GeoPoint(-6.7924, 39.2083);
-                if (room.getAddress() != null && !room.getAddress().isEmpty()) {
+                if (firstTime && room.getAddress() != null && !room.getAddress().isEmpty()) {
                     geocodeAddress(room.getAddress());
                 }
             }
 
-            mapPreview.getController().setCenter(roomPoint);
-
-            Marker roomMarker = new Marker(mapPreview);
-            roomMarker.setPosition(roomPoint);
-            roomMarker.setAnchor(Marker.ANCHOR_CENTER, Marker.ANCHOR_BOTTOM);
+            // Later updates only move the marker if the room itself moved
+            if (firstTime || !roomPoint.equals(roomMarker.getPosition())) {
+                mapPreview.getController().setCenter(roomPoint);
+                roomMarker.setPosition(roomPoint);
+            }
             roomMarker.setTitle(getSafeString(room.getTitle()));
             roomMarker.setSnippet("$" + room.getPrice() + "/month");
-            mapPreview.getOverlays().add(roomMarker);
             mapPreview.invalidate();
 
         } catch (Exception e) {
@@ -927,6 +913,16 @@ public class RoomDetailsActivity extends AppCompatActivity {
         String userId = FirebaseUtils.getCurrentUserId();
         if (userId == null || db == null) return;
 
+        // Sent offline and not delivered yet
+        if (WriteOutbox.getInstance(this).hasPendingBooking(userId, roomId)) {
+            alreadyRequested = true;
+            if (btnBookNow != null) {
+                btnBookNow.setEnabled(false);
+                btnBookNow.setText("Already Requested");
+            }
+            return;
+        }
+
         db.collection("users")
                 .document(userId)
                 .collection("bookings")
@@ -950,23 +946,30 @@ public class RoomDetailsActivity extends AppCompatActivity {
         String userId = FirebaseUtils.getCurrentUserId();
         if (userId == null || db == null || btnFavorite == null) return;
 
+        // A toggle still waiting in the outbox is newer than anything Firestore has
+        Boolean pending = WriteOutbox.getInstance(this).getPendingFavorite(userId, roomId);
+        if (pending != null) {
+            showFavorite(pending);
+            return;
+        }
+
         db.collection("users")
                 .document(userId)
                 .collection("favorites")
                 .document(roomId)
                 .get()
-                .addOnSuccessListener(doc -> {
-                    if (btnFavorite != null) {
-                        if (doc.exists()) {
-                            btnFavorite.setImageResource(R.drawable.ic_favorite_filled);
-                        } else {
-                            btnFavorite.setImageResource(R.drawable.ic_favorite_outline);
-                        }
-                    }
-                })
+                .addOnSuccessListener(doc -> showFavorite(doc.exists()))
                 .addOnFailureListener(e -> Log.e(TAG, "Failed to check favorite", e));
     }
 
+    private void showFavorite(boolean favorite) {
+        isFavorite = favorite;
+        if (btnFavorite != null) {
+            btnFavorite.setImageResource(favorite
+                    ? R.drawable.ic_favorite_filled : R.drawable.ic_favorite_outline);
+        }
+    }
+
     private void toggleFavorite() {
         String userId = FirebaseUtils.getCurrentUserId();
         if (userId == null) {
@@ -974,35 +977,15 @@ public class RoomDetailsActivity extends AppCompatActivity {
             return;
         }
 
-        if (db == null || btnFavorite == null) return;
+        if (btnFavorite == null) return;
 
-        db.collection("users")
-                .document(userId)
-                .collection("favorites")
-                .document(roomId)
-                .get()
-                .addOnSuccessListener(doc -> {
-                    if (doc.exists()) {
-                        doc.getReference().delete()
-                                .addOnSuccessListener(aVoid -> {
-                                    btnFavorite.setImageResource(R.drawable.ic_favorite_outline);
-                                    Toast.makeText(this, "Removed from favorites", Toast.LENGTH_SHORT).show();
-                                })
-                                .addOnFailureListener(e -> Toast.makeText(this, "Failed to remove", Toast.LENGTH_SHORT).show());
-                    } else {
-                        Map<String, Object> favorite = new HashMap<>();
-                        favorite.put("roomId", roomId);
-                        favorite.put("timestamp", System.currentTimeMillis());
-                        favorite.put("title", currentRoom != null ? currentRoom.getTitle() : "");
-
-                        doc.getReference().set(favorite)
-                                .addOnSuccessListener(aVoid -> {
-                                    btnFavorite.setImageResource(R.drawable.ic_favorite_filled);
-                                    Toast.makeText(this, "Added to favorites", Toast.LENGTH_SHORT).show();
-                                })
-                                .addOnFailureListener(e -> Toast.makeText(this, "Failed to add", Toast.LENGTH_SHORT).show());
-                    }
-                });
+        // Applied locally now, sent by the outbox when online
+        boolean favorite = !isFavorite;
+        WriteOutbox.getInstance(this).setFavorite(userId, roomId,
+                currentRoom != null ? currentRoom.getTitle() : "", favorite);
+        showFavorite(favorite);
+        Toast.makeText(this, favorite ? "Added to favorites" : "Removed from favorites",
+                Toast.LENGTH_SHORT).show();
     }
 
     private void requestRoomBooking() {
@@ -1028,82 +1011,92 @@ public class RoomDetailsActivity extends AppCompatActivity {
             return;
         }
 
-        if (btnBookNow != null) {
-            btnBookNow.setEnabled(false);
-            btnBookNow.setText("Sending Request...");
-        }
+        showStayPicker(ownerId, currentUserId);
+    }
+
+    // Days taken by approved stays are greyed out, as are past days
+    private void showStayPicker(String ownerId, String currentUserId) {
+        List<CalendarConstraints.DateValidator> validators = new ArrayList<>();
+        validators.add(DateValidatorPointForward.now());
+        validators.add(new BookedDatesValidator(bookedDates));
+
+        CalendarConstraints constraints = new CalendarConstraints.Builder()
+                .setValidator(CompositeDateValidator.allOf(validators))
+                .build();
+
+        MaterialDatePicker<Pair<Long, Long>> picker = MaterialDatePicker.Builder.dateRangePicker()
+                .setTitleText("Choose check-in and check-out")
+                .setCalendarConstraints(constraints)
+                .build();
+
+        picker.addOnPositiveButtonClickListener(selection -> {
+            if (selection == null || selection.first == null || selection.second == null) return;
+
+            long checkIn = selection.first;
+            long checkOut = selection.second;
+            if (checkOut <= checkIn) {
+                Toast.makeText(this, "Check-out must be after check-in", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            // The validator only checks single days, a range can still span a booked stay
+            if (!bookedDates.isFree(checkIn, checkOut)) {
+                Toast.makeText(this, "Some of those dates are already booked", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            submitBookingRequest(ownerId, currentUserId, checkIn, checkOut);
+        });
+        picker.show(getSupportFragmentManager(), "stay_picker");
+    }
 
+    private void submitBookingRequest(String ownerId, String currentUserId, long checkIn, long checkOut) {
         String ownerName = currentRoom.getOwnerName();
         if (ownerName == null || ownerName.isEmpty()) ownerName = "Owner";
 
+        // Optimistic: show the request as sent, undone if the outbox drops it
+        alreadyRequested = true;
+        if (btnBookNow != null) {
+            btnBookNow.setEnabled(false);
+            btnBookNow.setText("Already Requested");
+        }
+
         String finalOwnerName = ownerName;
-        db.collection("users").document(currentUserId).get()
-                .addOnSuccessListener(userDoc -> {
-                    String userName = userDoc.getString("name");
-                    if (userName == null || userName.isEmpty()) {
-                        userName = userDoc.getString("fullName");
-                    }
-                    if (userName == null || userName.isEmpty()) userName = "User";
-
-                    Map<String, Object> bookingData = new HashMap<>();
-                    bookingData.put("userId", currentUserId);
-                    bookingData.put("userName", userName);
-                    bookingData.put("roomId", currentRoom.getId());
-                    bookingData.put("roomTitle", currentRoom.getTitle());
-                    bookingData.put("ownerId", ownerId);
-                    bookingData.put("ownerName", finalOwnerName);
-                    bookingData.put("timestamp", System.currentTimeMillis());
-                    bookingData.put("status", "pending");
-                    bookingData.put("bookingDate", new SimpleDateFormat("dd MMM yyyy", Locale.getDefault())
-                            .format(new Date()));
-
-                    String finalUserName = userName;
-                    FirebaseUtils.getRoomBookingsCollection(currentRoom.getId())
-                            .add(bookingData)
-                            .addOnSuccessListener(docRef -> {
-                                db.collection("users")
-                                        .document(currentUserId)
-                                        .collection("bookings")
-                                        .document(docRef.getId())
-                                        .set(bookingData)
-                                        .addOnSuccessListener(aVoid -> {
-                                            Toast.makeText(this, "Booking request sent", Toast.LENGTH_SHORT).show();
-                                            alreadyRequested = true;
-                                            if (btnBookNow != null) {
-                                                btnBookNow.setEnabled(false);
-                                                btnBookNow.setText("Already Requested");
-                                            }
-
-                                            FirebaseUtils.sendNotificationToUser(
-                                                    ownerId,
-                                                    "New Booking Request",
-                                                    finalUserName + " wants to book " + currentRoom.getTitle(),
-                                                    docRef.getId()
-                                            );
-                                        })
-                                        .addOnFailureListener(e -> {
-                                            Toast.makeText(this, "Failed to save booking", Toast.LENGTH_SHORT).show();
-                                            if (btnBookNow != null) {
-                                                btnBookNow.setEnabled(true);
-                                                btnBookNow.setText("Book Now");
-                                            }
-                                        });
-                            })
-                            .addOnFailureListener(e -> {
-                                Toast.makeText(this, "Failed to send request", Toast.LENGTH_SHORT).show();
-                                if (btnBookNow != null) {
-                                    btnBookNow.setEnabled(true);
-                                    btnBookNow.setText("Book Now");
-                                }
-                            });
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(this, "Failed to get user details", Toast.LENGTH_SHORT).show();
-                    if (btnBookNow != null) {
-                        btnBookNow.setEnabled(true);
-                        btnBookNow.setText("Book Now");
-                    }
-                });
+        // Warmed in onCreate, so this is normally answered from memory
+        UserProfileCache.getInstance().get(currentUserId, profile -> {
+            String userName = UserProfileCache.getName(profile);
+            if (userName == null) userName = "User";
+
+            // Id allocated locally so both copies and the notification share it; a
+            // replayed request finds the booking already there and does nothing
+            String bookingId = FirebaseUtils.getRoomBookingsCollection(currentRoom.getId()).document().getId();
+
+            Map<String, Object> bookingData = new HashMap<>();
+            bookingData.put("userId", currentUserId);
+            bookingData.put("userName", userName);
+            bookingData.put("roomId", currentRoom.getId());
+            bookingData.put("roomTitle", currentRoom.getTitle());
+            bookingData.put("ownerId", ownerId);
+            bookingData.put("ownerName", finalOwnerName);
+            bookingData.put("timestamp", System.currentTimeMillis());
+            bookingData.put("status", "pending");
+            bookingData.put("bookingDate", new SimpleDateFormat("dd MMM yyyy", Locale.getDefault())
+                    .format(new Date()));
+            bookingData.put("checkIn", checkIn);
+            bookingData.put("checkOut", checkOut);
+
+            // Durable: delivered in order once online, even if the app is closed first
+            WriteOutbox outbox = WriteOutbox.getInstance(this);
+            // Rejected or never delivered: the room can be requested again
+            outbox.addDropListener(this, WriteOutbox.bookingTarget(currentUserId, currentRoom.getId(), bookingId),
+                    () -> {
+                        alreadyRequested = false;
+                        if (currentRoom != null) updateBookButtonState(currentRoom);
+                    });
+            outbox.requestBooking(bookingId, bookingData, "New Booking Request",
+                    userName + " wants to book " + currentRoom.getTitle());
+            Toast.makeText(this, outbox.isOnline() ? "Booking request sent"
+                            : "Booking request saved, it will be sent when you're back online",
+                    Toast.LENGTH_SHORT).show();
+        });
     }
 
     // ==================== CONTACT & NAVIGATION METHODS ====================
@@ -1197,9 +1190,14 @@ public class RoomDetailsActivity extends AppCompatActivity {
         }
     }
 
+    @OptIn(markerClass = UnstableApi.class)
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        // Leaving the room, not rotating; the tour won't be played from here
+        if (isFinishing() && shownVideoUrl != null) {
+            VideoCache.getInstance(this).cancelPreload(shownVideoUrl);
+        }
         if (executorService != null && !executorService.isShutdown()) {
             executorService.shutdown();
         }
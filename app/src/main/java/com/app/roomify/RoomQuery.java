@@ -0,0 +1,133 @@
+package com.app.roomify;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable description of a rooms query, the key RoomRepository shares listeners and
+ * caches results under. Two screens asking for equal queries share everything.
+ *
+ * Covers what the screens need: equality filters, one prefix range (geohash cells) and
+ * a limit, over either full rooms or their summaries.
+ */
+public final class RoomQuery {
+
+    private final String collection;
+    private final TreeMap<String, Object> equalTo;
+    @Nullable private final String prefixField;
+    @Nullable private final String prefix;
+    private final int limit;
+
+    private RoomQuery(String collection, TreeMap<String, Object> equalTo,
+                      @Nullable String prefixField, @Nullable String prefix, int limit) {
+        this.collection = collection;
+        this.equalTo = equalTo;
+        this.prefixField = prefixField;
+        this.prefix = prefix;
+        this.limit = limit;
+    }
+
+    /**
+     * Full room documents, for screens that show more than a card.
+     */
+    public static RoomQuery rooms() {
+        return new RoomQuery("rooms", new TreeMap<>(), null, null, 0);
+    }
+
+    /**
+     * Room summaries, for markers and list cards.
+     */
+    public static RoomQuery summaries() {
+        return new RoomQuery(RoomSummaries.COLLECTION, new TreeMap<>(), null, null, 0);
+    }
+
+    public RoomQuery whereEqualTo(String field, Object value) {
+        TreeMap<String, Object> filters = new TreeMap<>(equalTo);
+        filters.put(field, value);
+        return new RoomQuery(collection, filters, prefixField, prefix, limit);
+    }
+
+    /**
+     * Only rooms whose field starts with prefix, e.g. a geohash cell.
+     */
+    public RoomQuery whereStartsWith(String field, String prefix) {
+        return new RoomQuery(collection, equalTo, field, prefix, limit);
+    }
+
+    public RoomQuery limit(int limit) {
+        return new RoomQuery(collection, equalTo, prefixField, prefix, limit);
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    /**
+     * True when results only carry summary fields.
+     */
+    public boolean isSummary() {
+        return RoomSummaries.COLLECTION.equals(collection);
+    }
+
+    public Map<String, Object> getEqualTo() {
+        return Collections.unmodifiableMap(equalTo);
+    }
+
+    @Nullable
+    public String getPrefixField() {
+        return prefixField;
+    }
+
+    @Nullable
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return The limit, or 0 for none
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Stable text form, also used as the disk cache key.
+     */
+    public String key() {
+        StringBuilder key = new StringBuilder(collection).append('?');
+        for (Map.Entry<String, Object> filter : equalTo.entrySet()) {
+            // Quoted so "true" and true stay different queries
+            Object value = filter.getValue();
+            key.append(filter.getKey()).append('=')
+                    .append(value instanceof String ? "\"" + value + "\"" : String.valueOf(value))
+                    .append('&');
+        }
+        if (prefixField != null) {
+            key.append(prefixField).append("^=").append(prefix).append('&');
+        }
+        if (limit > 0) {
+            key.append("limit=").append(limit);
+        }
+        return key.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof RoomQuery && key().equals(((RoomQuery) o).key());
+    }
+
+    @Override
+    public int hashCode() {
+        return key().hashCode();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return key();
+    }
+}
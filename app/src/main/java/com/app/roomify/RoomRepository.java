@@ -0,0 +1,584 @@
+package com.app.roomify;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import okio.ByteString;
+
+/**
+ * Process-wide source of rooms that every screen observes.
+ *
+ * Three layers: a bounded LRU of Room objects by id in memory, the last result of each
+ * query (and each single room) on disk, and one live backend listener per distinct
+ * RoomQuery or room id, ref-counted across observers. A new observer is answered from
+ * memory, else from disk, before the live listener reports, so moving between the map,
+ * a room's details and the dashboards renders without waiting on the network.
+ *
+ * Rooms handed out are shared between screens; treat them as read-only. Main thread only;
+ * disk reads and writes run on a background thread.
+ */
+public class RoomRepository {
+
+    private static final String TAG = "RoomRepository";
+
+    static final int MAX_MEMORY_ROOMS = 300;
+    private static final int MAX_MEMORY_QUERIES = 32;
+
+    /**
+     * Where live rooms come from: Firestore in the app, FakeRoomBackend in tests.
+     */
+    public interface Backend {
+        Registration listenQuery(RoomQuery query, QueryListener listener);
+
+        Registration listenRoom(String roomId, RoomListener listener);
+    }
+
+    public interface Registration {
+        void remove();
+    }
+
+    public interface QueryListener {
+        /**
+         * @param rooms     The whole result; the same list instance when only metadata changed
+         * @param fromCache True until the server has confirmed the result
+         */
+        void onRooms(List<Room> rooms, boolean fromCache);
+
+        void onError(Exception e);
+    }
+
+    public interface RoomListener {
+        /**
+         * @param room Null when the room does not exist (or is not cached yet, if fromCache)
+         */
+        void onRoom(@Nullable Room room, boolean fromCache);
+
+        void onError(Exception e);
+    }
+
+    /**
+     * Last known results, kept across process restarts.
+     */
+    public interface DiskCache {
+        @Nullable
+        List<Room> read(String key);
+
+        void write(String key, List<Room> rooms);
+
+        void remove(String key);
+    }
+
+    public interface Observer {
+        /**
+         * @param rooms     Unmodifiable; the same instance as last time when nothing but
+         *                  fromCache changed, so screens can skip re-rendering
+         * @param fromCache True for memory, disk and locally cached results
+         */
+        void onRooms(@NonNull List<Room> rooms, boolean fromCache);
+
+        default void onError(@NonNull Exception e) {
+            Log.e(TAG, "Room query failed", e);
+        }
+    }
+
+    public interface RoomObserver {
+        /**
+         * A room first seen on a list screen may arrive as its summary, followed by the
+         * full room once loaded.
+         *
+         * @param room Null once the server says the room does not exist
+         */
+        void onRoom(@Nullable Room room, boolean fromCache);
+
+        default void onError(@NonNull Exception e) {
+            Log.e(TAG, "Room listener failed", e);
+        }
+    }
+
+    /**
+     * Handle for one observer; remove() ends it.
+     */
+    public interface Subscription {
+        void remove();
+    }
+
+    private static class CachedRoom {
+        final Room room;
+        // Full room document, not just its summary
+        final boolean complete;
+
+        CachedRoom(Room room, boolean complete) {
+            this.room = room;
+            this.complete = complete;
+        }
+    }
+
+    private static class QueryEntry {
+        final Set<Observer> observers = new LinkedHashSet<>();
+        Registration registration;
+        // Latest result from the live listener, null until it first reports
+        List<Room> latest;
+        // The backend's list behind latest, to spot metadata-only reports
+        List<Room> source;
+        boolean fromCache;
+    }
+
+    private static class RoomEntry {
+        final Set<RoomObserver> observers = new LinkedHashSet<>();
+        Registration registration;
+        boolean live;
+        Room latest;
+        boolean fromCache;
+    }
+
+    private static RoomRepository instance;
+
+    private final Backend backend;
+    private final DiskCache disk;
+    private final Executor ioExecutor;
+    private final Executor mainExecutor;
+
+    private final Map<String, CachedRoom> memory = new LinkedHashMap<String, CachedRoom>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedRoom> eldest) {
+            return size() > maxMemoryRooms;
+        }
+    };
+    // Ids of each query's last result, so a returning screen is answered from memory
+    private final Map<RoomQuery, List<String>> queryResults = new LinkedHashMap<RoomQuery, List<String>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<RoomQuery, List<String>> eldest) {
+            return size() > MAX_MEMORY_QUERIES;
+        }
+    };
+    private final Map<RoomQuery, QueryEntry> liveQueries = new HashMap<>();
+    private final Map<String, RoomEntry> liveRooms = new HashMap<>();
+    private final int maxMemoryRooms;
+
+    public static synchronized RoomRepository getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new RoomRepository(new FirestoreRoomBackend(),
+                    new FileDiskCache(new File(appContext.getCacheDir(), "rooms")),
+                    Executors.newSingleThreadExecutor(), ContextCompat.getMainExecutor(appContext),
+                    MAX_MEMORY_ROOMS);
+        }
+        return instance;
+    }
+
+    RoomRepository(Backend backend, DiskCache disk, Executor ioExecutor, Executor mainExecutor,
+                   int maxMemoryRooms) {
+        this.backend = backend;
+        this.disk = disk;
+        this.ioExecutor = ioExecutor;
+        this.mainExecutor = mainExecutor;
+        this.maxMemoryRooms = maxMemoryRooms;
+    }
+
+    // ==================== QUERIES ====================
+
+    /**
+     * Observe the query until the subscription is removed.
+     */
+    public Subscription observe(RoomQuery query, Observer observer) {
+        QueryEntry entry = liveQueries.get(query);
+        if (entry == null) {
+            entry = new QueryEntry();
+            liveQueries.put(query, entry);
+        }
+        entry.observers.add(observer);
+
+        if (entry.latest != null) {
+            // Already live for another screen
+            observer.onRooms(entry.latest, entry.fromCache);
+        } else {
+            List<Room> remembered = fromMemory(query);
+            if (remembered != null) {
+                observer.onRooms(remembered, true);
+            } else if (entry.registration == null) {
+                readQueryFromDisk(query, entry);
+            }
+        }
+
+        if (entry.registration == null) {
+            attach(query, entry);
+        }
+
+        QueryEntry subscribed = entry;
+        return () -> unobserve(query, subscribed, observer);
+    }
+
+    /**
+     * Observe the query while the owner is started, until it is destroyed.
+     */
+    public Subscription observe(LifecycleOwner owner, RoomQuery query, Observer observer) {
+        return bind(owner, () -> observe(query, observer));
+    }
+
+    private void attach(RoomQuery query, QueryEntry entry) {
+        entry.registration = backend.listenQuery(query, new QueryListener() {
+            @Override
+            public void onRooms(List<Room> rooms, boolean fromCache) {
+                if (liveQueries.get(query) != entry) return;
+
+                boolean changed = rooms != entry.source;
+                boolean confirmed = !fromCache && (entry.latest == null || entry.fromCache || changed);
+                entry.fromCache = fromCache;
+                if (changed) {
+                    entry.source = rooms;
+                    entry.latest = Collections.unmodifiableList(new ArrayList<>(rooms));
+                    List<String> ids = new ArrayList<>(rooms.size());
+                    for (Room room : rooms) {
+                        remember(room, !query.isSummary());
+                        ids.add(room.getId());
+                    }
+                    queryResults.put(query, ids);
+                }
+
+                for (Observer observer : new ArrayList<>(entry.observers)) {
+                    observer.onRooms(entry.latest, fromCache);
+                }
+
+                // Only what the server confirmed is worth keeping across restarts
+                if (confirmed) {
+                    List<Room> snapshot = entry.latest;
+                    ioExecutor.execute(() -> disk.write(query.key(), snapshot));
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (liveQueries.get(query) != entry) return;
+                for (Observer observer : new ArrayList<>(entry.observers)) {
+                    observer.onError(e);
+                }
+            }
+        });
+    }
+
+    private void unobserve(RoomQuery query, QueryEntry entry, Observer observer) {
+        if (!entry.observers.remove(observer) || !entry.observers.isEmpty()) return;
+        if (entry.registration != null) {
+            entry.registration.remove();
+        }
+        if (liveQueries.get(query) == entry) {
+            liveQueries.remove(query);
+        }
+    }
+
+    @Nullable
+    private List<Room> fromMemory(RoomQuery query) {
+        List<String> ids = queryResults.get(query);
+        if (ids == null) return null;
+        List<Room> rooms = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            CachedRoom cached = memory.get(id);
+            // Partly evicted; disk has the whole result
+            if (cached == null) return null;
+            rooms.add(cached.room);
+        }
+        return Collections.unmodifiableList(rooms);
+    }
+
+    private void readQueryFromDisk(RoomQuery query, QueryEntry entry) {
+        ioExecutor.execute(() -> {
+            List<Room> rooms = disk.read(query.key());
+            if (rooms == null) return;
+            mainExecutor.execute(() -> {
+                // The live listener got there first, or everyone left
+                if (entry.latest != null || liveQueries.get(query) != entry) return;
+                for (Room room : rooms) {
+                    remember(room, !query.isSummary());
+                }
+                List<Room> cached = Collections.unmodifiableList(rooms);
+                for (Observer observer : new ArrayList<>(entry.observers)) {
+                    observer.onRooms(cached, true);
+                }
+            });
+        });
+    }
+
+    // ==================== SINGLE ROOMS ====================
+
+    /**
+     * Observe one full room until the subscription is removed.
+     */
+    public Subscription observeRoom(String roomId, RoomObserver observer) {
+        RoomEntry entry = liveRooms.get(roomId);
+        if (entry == null) {
+            entry = new RoomEntry();
+            liveRooms.put(roomId, entry);
+        }
+        entry.observers.add(observer);
+
+        if (entry.live) {
+            observer.onRoom(entry.latest, entry.fromCache);
+        } else {
+            CachedRoom cached = memory.get(roomId);
+            if (cached != null) {
+                observer.onRoom(cached.room, true);
+            } else if (entry.registration == null) {
+                readRoomFromDisk(roomId, entry);
+            }
+        }
+
+        if (entry.registration == null) {
+            attach(roomId, entry);
+        }
+
+        RoomEntry subscribed = entry;
+        return () -> unobserveRoom(roomId, subscribed, observer);
+    }
+
+    /**
+     * Observe one full room while the owner is started, until it is destroyed.
+     */
+    public Subscription observeRoom(LifecycleOwner owner, String roomId, RoomObserver observer) {
+        return bind(owner, () -> observeRoom(roomId, observer));
+    }
+
+    /**
+     * @return The room if it is in memory, full or as a summary
+     */
+    @Nullable
+    public Room peek(String roomId) {
+        CachedRoom cached = memory.get(roomId);
+        return cached != null ? cached.room : null;
+    }
+
+    private void attach(String roomId, RoomEntry entry) {
+        entry.registration = backend.listenRoom(roomId, new RoomListener() {
+            @Override
+            public void onRoom(@Nullable Room room, boolean fromCache) {
+                if (liveRooms.get(roomId) != entry) return;
+                // Not in the local cache says nothing about the server
+                if (room == null && fromCache) return;
+
+                boolean confirmed = !fromCache && (!entry.live || entry.fromCache || room != entry.latest);
+                entry.live = true;
+                entry.latest = room;
+                entry.fromCache = fromCache;
+                if (room != null) {
+                    remember(room, true);
+                } else {
+                    memory.remove(roomId);
+                }
+
+                for (RoomObserver observer : new ArrayList<>(entry.observers)) {
+                    observer.onRoom(room, fromCache);
+                }
+
+                if (confirmed) {
+                    String key = roomKey(roomId);
+                    if (room != null) {
+                        ioExecutor.execute(() -> disk.write(key, Collections.singletonList(room)));
+                    } else {
+                        ioExecutor.execute(() -> disk.remove(key));
+                    }
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (liveRooms.get(roomId) != entry) return;
+                for (RoomObserver observer : new ArrayList<>(entry.observers)) {
+                    observer.onError(e);
+                }
+            }
+        });
+    }
+
+    private void unobserveRoom(String roomId, RoomEntry entry, RoomObserver observer) {
+        if (!entry.observers.remove(observer) || !entry.observers.isEmpty()) return;
+        if (entry.registration != null) {
+            entry.registration.remove();
+        }
+        if (liveRooms.get(roomId) == entry) {
+            liveRooms.remove(roomId);
+        }
+    }
+
+    private void readRoomFromDisk(String roomId, RoomEntry entry) {
+        ioExecutor.execute(() -> {
+            List<Room> rooms = disk.read(roomKey(roomId));
+            if (rooms == null || rooms.isEmpty()) return;
+            mainExecutor.execute(() -> {
+                if (entry.live || liveRooms.get(roomId) != entry) return;
+                Room room = rooms.get(0);
+                remember(room, true);
+                for (RoomObserver observer : new ArrayList<>(entry.observers)) {
+                    observer.onRoom(room, true);
+                }
+            });
+        });
+    }
+
+    private static String roomKey(String roomId) {
+        return "room/" + roomId;
+    }
+
+    // ==================== MEMORY ====================
+
+    // A summary never replaces a full room that is being listened to; that listener keeps
+    // the full copy current. Otherwise the newest copy wins.
+    private void remember(Room room, boolean complete) {
+        if (room.getId() == null) return;
+        if (!complete) {
+            CachedRoom current = memory.get(room.getId());
+            RoomEntry live = liveRooms.get(room.getId());
+            if (current != null && current.complete && live != null && live.live) return;
+        }
+        memory.put(room.getId(), new CachedRoom(room, complete));
+    }
+
+    int getMemoryRoomCount() {
+        return memory.size();
+    }
+
+    // ==================== LIFECYCLE ====================
+
+    private interface Attach {
+        Subscription attach();
+    }
+
+    private Subscription bind(LifecycleOwner owner, Attach attach) {
+        LifecycleBinding binding = new LifecycleBinding(owner, attach);
+        if (owner.getLifecycle().getCurrentState() != Lifecycle.State.DESTROYED) {
+            // Replays onStart right away if the owner is already started
+            owner.getLifecycle().addObserver(binding);
+        }
+        return binding;
+    }
+
+    // Observes between onStart and onStop, like ListenerRegistry subscriptions
+    private static class LifecycleBinding implements DefaultLifecycleObserver, Subscription {
+        private final LifecycleOwner owner;
+        private final Attach attach;
+        @Nullable private Subscription current;
+        private boolean removed;
+
+        LifecycleBinding(LifecycleOwner owner, Attach attach) {
+            this.owner = owner;
+            this.attach = attach;
+        }
+
+        @Override
+        public void onStart(@NonNull LifecycleOwner owner) {
+            if (!removed && current == null) current = attach.attach();
+        }
+
+        @Override
+        public void onStop(@NonNull LifecycleOwner owner) {
+            if (current != null) {
+                current.remove();
+                current = null;
+            }
+        }
+
+        @Override
+        public void onDestroy(@NonNull LifecycleOwner owner) {
+            remove();
+        }
+
+        @Override
+        public void remove() {
+            if (removed) return;
+            removed = true;
+            onStop(owner);
+            owner.getLifecycle().removeObserver(this);
+        }
+    }
+
+    // ==================== DISK ====================
+
+    /**
+     * One file per key, Java-serialized. Keeps the most recently written files only.
+     */
+    static class FileDiskCache implements DiskCache {
+
+        private static final int MAX_FILES = 128;
+
+        private final File dir;
+
+        FileDiskCache(File dir) {
+            this.dir = dir;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Nullable
+        @Override
+        public List<Room> read(String key) {
+            File file = file(key);
+            if (!file.exists()) return null;
+            try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
+                return (List<Room>) in.readObject();
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                // Written by an older Room, or cut short; the live result replaces it
+                file.delete();
+                return null;
+            }
+        }
+
+        @Override
+        public void write(String key, List<Room> rooms) {
+            if (!dir.exists() && !dir.mkdirs()) return;
+            File file = file(key);
+            File temp = new File(dir, file.getName() + ".tmp");
+            try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(temp))) {
+                out.writeObject(new ArrayList<>(rooms));
+            } catch (IOException e) {
+                temp.delete();
+                return;
+            }
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                return;
+            }
+            trim();
+        }
+
+        @Override
+        public void remove(String key) {
+            file(key).delete();
+        }
+
+        private File file(String key) {
+            return new File(dir, ByteString.encodeUtf8(key).sha256().hex());
+        }
+
+        // Oldest first out once over the cap
+        private void trim() {
+            File[] files = dir.listFiles();
+            if (files == null || files.length <= MAX_FILES) return;
+            Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+            for (int i = 0; i < files.length - MAX_FILES; i++) {
+                files[i].delete();
+            }
+        }
+    }
+}
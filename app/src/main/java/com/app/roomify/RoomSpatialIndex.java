@@ -0,0 +1,400 @@
+package com.app.roomify;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * In-memory spatial index over loaded rooms.
+ * Rooms are stored as unit vectors on the sphere in a 3-d k-d tree, so straight-line (chord)
+ * distance orders rooms exactly like great-circle distance and the tree prunes correctly
+ * everywhere, including near the poles and the antimeridian.
+ *
+ * Inserts go straight into the tree and removals are lazy; the tree is rebuilt balanced
+ * once enough churn has accumulated. Not thread safe, meant to be owned by one screen
+ * and fed from its snapshot listener on the main thread.
+ */
+public class RoomSpatialIndex {
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    // Rebuild once this share of the tree is dead or unbalanced inserts
+    private static final double REBUILD_RATIO = 0.5;
+    private static final int MIN_REBUILD_CHURN = 64;
+
+    private static class Node {
+        Room room;
+        final double x, y, z;
+        int axis;
+        Node left, right;
+        boolean removed;
+
+        Node(Room room, double[] point, int axis) {
+            this.room = room;
+            this.x = point[0];
+            this.y = point[1];
+            this.z = point[2];
+            this.axis = axis;
+        }
+
+        double coordinate(int axis) {
+            return axis == 0 ? x : axis == 1 ? y : z;
+        }
+    }
+
+    private static class Candidate {
+        final Node node;
+        final double distance;
+
+        Candidate(Node node, double distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+    }
+
+    private final Map<String, Node> nodesById = new HashMap<>();
+    private Node root;
+    private int treeSize;      // Nodes in the tree, removed ones included
+    private int churn;         // Removals plus inserts since the last rebuild
+
+    // Bounds over live rooms, recomputed lazily after removals
+    private double[] bounds;
+    private boolean boundsDirty = true;
+
+    // ==================== UPDATES ====================
+
+    /**
+     * Add or replace a room. Rooms without coordinates are ignored (and removed if present).
+     */
+    public void put(Room room) {
+        if (room == null || room.getId() == null) return;
+
+        Node existing = nodesById.get(room.getId());
+        if (room.getLatitude() == 0 && room.getLongitude() == 0) {
+            remove(room.getId());
+            return;
+        }
+
+        if (existing != null) {
+            if (existing.room.getLatitude() == room.getLatitude()
+                    && existing.room.getLongitude() == room.getLongitude()) {
+                // Same position: swap the payload without touching the tree shape
+                existing.room = room;
+                return;
+            }
+            remove(room.getId());
+        }
+
+        Node node = insert(room);
+        nodesById.put(room.getId(), node);
+        churn++;
+        if (bounds != null && !boundsDirty) {
+            expandBounds(bounds, room.getLatitude(), room.getLongitude());
+        }
+        maybeRebuild();
+    }
+
+    public void putAll(Collection<Room> rooms) {
+        for (Room room : rooms) {
+            put(room);
+        }
+    }
+
+    public void remove(String roomId) {
+        Node node = nodesById.remove(roomId);
+        if (node == null) return;
+        node.removed = true;
+        churn++;
+        boundsDirty = true;
+        maybeRebuild();
+    }
+
+    public void clear() {
+        nodesById.clear();
+        root = null;
+        treeSize = 0;
+        churn = 0;
+        bounds = null;
+        boundsDirty = true;
+    }
+
+    // ==================== LOOKUPS ====================
+
+    public Room get(String roomId) {
+        Node node = nodesById.get(roomId);
+        return node != null ? node.room : null;
+    }
+
+    public boolean contains(String roomId) {
+        return nodesById.containsKey(roomId);
+    }
+
+    public int size() {
+        return nodesById.size();
+    }
+
+    public boolean isEmpty() {
+        return nodesById.isEmpty();
+    }
+
+    public List<Room> getAll() {
+        List<Room> rooms = new ArrayList<>(nodesById.size());
+        for (Node node : nodesById.values()) {
+            rooms.add(node.room);
+        }
+        return rooms;
+    }
+
+    /**
+     * @return {south, west, north, east} over all rooms, or null when empty
+     */
+    public double[] getBounds() {
+        if (nodesById.isEmpty()) return null;
+        if (boundsDirty || bounds == null) {
+            bounds = null;
+            for (Node node : nodesById.values()) {
+                if (bounds == null) {
+                    bounds = new double[]{node.room.getLatitude(), node.room.getLongitude(),
+                            node.room.getLatitude(), node.room.getLongitude()};
+                } else {
+                    expandBounds(bounds, node.room.getLatitude(), node.room.getLongitude());
+                }
+            }
+            boundsDirty = false;
+        }
+        return bounds.clone();
+    }
+
+    /**
+     * Rooms within the given distance, nearest first.
+     */
+    public List<Room> withinRadius(double latitude, double longitude, double radiusKm) {
+        double maxChord = chordForDistance(radiusKm);
+        double[] target = toPoint(latitude, longitude);
+
+        List<Node> hits = new ArrayList<>();
+        collectWithin(root, target, maxChord * maxChord, hits);
+        Collections.sort(hits, Comparator.comparingDouble(node -> squaredDistance(node, target)));
+
+        List<Room> rooms = new ArrayList<>(hits.size());
+        for (Node node : hits) {
+            rooms.add(node.room);
+        }
+        return rooms;
+    }
+
+    /**
+     * The k rooms closest to the given point, nearest first.
+     */
+    public List<Room> nearest(double latitude, double longitude, int k) {
+        if (k <= 0 || root == null) return new ArrayList<>();
+
+        double[] target = toPoint(latitude, longitude);
+        // Max-heap on distance so the worst of the current best k is on top
+        PriorityQueue<Candidate> best = new PriorityQueue<>(k + 1,
+                (a, b) -> Double.compare(b.distance, a.distance));
+        collectNearest(root, target, k, best);
+
+        List<Room> rooms = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            rooms.add(best.poll().node.room);
+        }
+        Collections.reverse(rooms);
+        return rooms;
+    }
+
+    /**
+     * Rooms inside a lat/lng rectangle. Bounds crossing the antimeridian have west > east.
+     */
+    public List<Room> inBounds(double south, double west, double north, double east) {
+        List<Room> rooms = new ArrayList<>();
+        if (root == null) return rooms;
+
+        // Search the circle around the box centre, then trim to the rectangle
+        double centerLat = (south + north) / 2;
+        double lngSpan = west <= east ? east - west : east + 360 - west;
+        double centerLng = west + lngSpan / 2;
+        if (centerLng > 180) centerLng -= 360;
+
+        double radiusKm = 0;
+        double[][] corners = {{south, west}, {south, east}, {north, west}, {north, east},
+                {south, centerLng}, {north, centerLng}};
+        for (double[] corner : corners) {
+            radiusKm = Math.max(radiusKm, distanceKm(centerLat, centerLng, corner[0], corner[1]));
+        }
+
+        double maxChord = chordForDistance(radiusKm);
+        List<Node> hits = new ArrayList<>();
+        collectWithin(root, toPoint(centerLat, centerLng), maxChord * maxChord, hits);
+
+        for (Node node : hits) {
+            double lat = node.room.getLatitude();
+            double lng = node.room.getLongitude();
+            if (lat < south || lat > north) continue;
+            boolean inLng = west <= east ? lng >= west && lng <= east : lng >= west || lng <= east;
+            if (inLng) rooms.add(node.room);
+        }
+        return rooms;
+    }
+
+    // ==================== DISTANCE HELPERS ====================
+
+    /**
+     * Great-circle distance (haversine) between two points in kilometres.
+     */
+    public static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static double chordForDistance(double distanceKm) {
+        double angle = Math.min(Math.PI, distanceKm / EARTH_RADIUS_KM);
+        return 2 * Math.sin(angle / 2);
+    }
+
+    private static double[] toPoint(double latitude, double longitude) {
+        double lat = Math.toRadians(latitude);
+        double lng = Math.toRadians(longitude);
+        return new double[]{Math.cos(lat) * Math.cos(lng), Math.cos(lat) * Math.sin(lng), Math.sin(lat)};
+    }
+
+    private static double squaredDistance(Node node, double[] target) {
+        double dx = node.x - target[0];
+        double dy = node.y - target[1];
+        double dz = node.z - target[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static void expandBounds(double[] bounds, double lat, double lng) {
+        bounds[0] = Math.min(bounds[0], lat);
+        bounds[1] = Math.min(bounds[1], lng);
+        bounds[2] = Math.max(bounds[2], lat);
+        bounds[3] = Math.max(bounds[3], lng);
+    }
+
+    // ==================== TREE ====================
+
+    private Node insert(Room room) {
+        double[] point = toPoint(room.getLatitude(), room.getLongitude());
+        treeSize++;
+
+        if (root == null) {
+            root = new Node(room, point, 0);
+            return root;
+        }
+
+        Node parent = root;
+        while (true) {
+            boolean goLeft = point[parent.axis] < parent.coordinate(parent.axis);
+            Node child = goLeft ? parent.left : parent.right;
+            if (child == null) {
+                Node node = new Node(room, point, (parent.axis + 1) % 3);
+                if (goLeft) parent.left = node;
+                else parent.right = node;
+                return node;
+            }
+            parent = child;
+        }
+    }
+
+    private void maybeRebuild() {
+        if (churn >= MIN_REBUILD_CHURN && churn > treeSize * REBUILD_RATIO) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        // Removed nodes are not in the map, so they simply fall out of the new tree
+        Node[] items = nodesById.values().toArray(new Node[0]);
+        root = build(items, 0, items.length, 0);
+        treeSize = items.length;
+        churn = 0;
+    }
+
+    private Node build(Node[] items, int from, int to, int axis) {
+        if (from >= to) return null;
+
+        int mid = (from + to) >>> 1;
+        select(items, from, to - 1, mid, axis);
+
+        Node node = items[mid];
+        node.axis = axis;
+
+        int next = (axis + 1) % 3;
+        node.left = build(items, from, mid, next);
+        node.right = build(items, mid + 1, to, next);
+        return node;
+    }
+
+    // Quickselect so items[k] holds the median on the axis, smaller values to its left
+    private static void select(Node[] items, int left, int right, int k, int axis) {
+        while (left < right) {
+            double pivot = items[(left + right) >>> 1].coordinate(axis);
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (items[i].coordinate(axis) < pivot) i++;
+                while (items[j].coordinate(axis) > pivot) j--;
+                if (i <= j) {
+                    Node tmp = items[i];
+                    items[i] = items[j];
+                    items[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) right = j;
+            else if (k >= i) left = i;
+            else return;
+        }
+    }
+
+    private static void collectWithin(Node node, double[] target, double maxSquared, List<Node> out) {
+        while (node != null) {
+            if (!node.removed && squaredDistance(node, target) <= maxSquared) {
+                out.add(node);
+            }
+
+            double diff = target[node.axis] - node.coordinate(node.axis);
+            Node near = diff < 0 ? node.left : node.right;
+            Node far = diff < 0 ? node.right : node.left;
+
+            if (diff * diff <= maxSquared) {
+                collectWithin(far, target, maxSquared, out);
+            }
+            node = near;
+        }
+    }
+
+    private static void collectNearest(Node node, double[] target, int k, PriorityQueue<Candidate> best) {
+        if (node == null) return;
+
+        if (!node.removed) {
+            double distance = squaredDistance(node, target);
+            if (best.size() < k) {
+                best.add(new Candidate(node, distance));
+            } else if (distance < best.peek().distance) {
+                best.poll();
+                best.add(new Candidate(node, distance));
+            }
+        }
+
+        double diff = target[node.axis] - node.coordinate(node.axis);
+        Node near = diff < 0 ? node.left : node.right;
+        Node far = diff < 0 ? node.right : node.left;
+
+        collectNearest(near, target, k, best);
+        if (best.size() < k || diff * diff < best.peek().distance) {
+            collectNearest(far, target, k, best);
+        }
+    }
+}
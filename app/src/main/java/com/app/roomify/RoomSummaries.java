@@ -0,0 +1,195 @@
+package com.app.roomify;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Denormalized room_summaries collection.
+ * Holds only what markers and list cards need (id, position, price, title, status and a
+ * thumbnail) under the same document id as the room. Map and list screens read summaries;
+ * only RoomDetailsActivity loads the full Room. Every write to rooms mirrors its
+ * summary fields here in the same batch.
+ */
+public class RoomSummaries {
+
+    public static final String COLLECTION = "room_summaries";
+
+    private static final String TAG = "RoomSummaries";
+    private static final String PREFS_NAME = "room_summaries";
+    private static final String KEY_BACKFILLED = "backfilled_v1_";
+
+    // Room fields copied verbatim into the summary
+    private static final List<String> SUMMARY_FIELDS = Arrays.asList(
+            "id", "title", "price", "latitude", "longitude", "geohash", "address",
+            "propertyType", "status", "isAvailable", "postedBy", "bookingsCount", "createdAt",
+            "imagesUpdatedAt", RoomAvailability.FIELD_BOOKED_RANGES);
+
+    // Derived from images[0]
+    public static final String FIELD_THUMBNAIL = "thumbnailUrl";
+
+    public static DocumentReference document(String roomId) {
+        return FirebaseFirestore.getInstance().collection(COLLECTION).document(roomId);
+    }
+
+    /**
+     * Pick the summary fields out of a full room write or a partial room update.
+     * Returns an empty map when the update touches nothing the summary holds.
+     */
+    public static Map<String, Object> fromRoomData(Map<String, Object> roomData) {
+        Map<String, Object> summary = new HashMap<>();
+        for (String field : SUMMARY_FIELDS) {
+            if (roomData.containsKey(field)) {
+                summary.put(field, roomData.get(field));
+            }
+        }
+
+        Object images = roomData.get("images");
+        if (images instanceof List && !((List<?>) images).isEmpty()) {
+            summary.put(FIELD_THUMBNAIL, ((List<?>) images).get(0));
+        }
+        return summary;
+    }
+
+    public static Map<String, Object> fromRoom(Room room) {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("id", room.getId());
+        summary.put("title", room.getTitle());
+        summary.put("price", room.getPrice());
+        summary.put("latitude", room.getLatitude());
+        summary.put("longitude", room.getLongitude());
+        summary.put("geohash", room.getGeohash());
+        summary.put("address", room.getAddress());
+        summary.put("propertyType", room.getPropertyType());
+        summary.put("status", room.getStatus());
+        summary.put("isAvailable", room.isAvailable());
+        summary.put("postedBy", room.getPostedBy());
+        summary.put("bookingsCount", room.getBookingsCount());
+        summary.put("createdAt", room.getCreatedAt());
+        summary.put("imagesUpdatedAt", room.getImagesUpdatedAt());
+        summary.put(FIELD_THUMBNAIL, room.getFirstImageUrl());
+        summary.put(RoomAvailability.FIELD_BOOKED_RANGES, room.getBookedRanges());
+        return summary;
+    }
+
+    /**
+     * Mirror a room update into the summary inside an existing batch.
+     * Uses a merge so it also works for rooms whose summary was never written.
+     */
+    public static void mirrorUpdate(WriteBatch batch, String roomId, Map<String, Object> roomUpdates) {
+        Map<String, Object> summary = fromRoomData(roomUpdates);
+        if (!summary.isEmpty()) {
+            batch.set(document(roomId), summary, SetOptions.merge());
+        }
+    }
+
+    /**
+     * Build a lightweight Room from a summary document. Only summary fields are filled;
+     * the thumbnail becomes the single image.
+     */
+    public static Room toRoom(DocumentSnapshot doc) {
+        Room room = new Room();
+        room.setId(doc.getId());
+        room.setTitle(doc.getString("title"));
+        room.setAddress(doc.getString("address"));
+        room.setPropertyType(doc.getString("propertyType"));
+        room.setPostedBy(doc.getString("postedBy"));
+        room.setGeohash(doc.getString("geohash"));
+
+        String status = doc.getString("status");
+        if (status != null) room.setStatus(status);
+
+        Double price = doc.getDouble("price");
+        Double lat = doc.getDouble("latitude");
+        Double lng = doc.getDouble("longitude");
+        Long bookings = doc.getLong("bookingsCount");
+        Long createdAt = doc.getLong("createdAt");
+        Long imagesUpdatedAt = doc.getLong("imagesUpdatedAt");
+        Boolean available = doc.getBoolean("isAvailable");
+
+        room.setPrice(price != null ? price : 0);
+        room.setLatitude(lat != null ? lat : 0);
+        room.setLongitude(lng != null ? lng : 0);
+        room.setBookingsCount(bookings != null ? bookings.intValue() : 0);
+        room.setCreatedAt(createdAt != null ? createdAt : 0);
+        room.setImagesUpdatedAt(imagesUpdatedAt != null ? imagesUpdatedAt : 0);
+        room.setAvailable(available == null || available);
+
+        String thumbnail = doc.getString(FIELD_THUMBNAIL);
+        List<String> images = new ArrayList<>();
+        if (thumbnail != null && !thumbnail.isEmpty()) images.add(thumbnail);
+        room.setImages(images);
+        room.setBookedRanges(bookedRanges(doc));
+        return room;
+    }
+
+    /**
+     * The room's or summary's bookedRanges, or null if it has none.
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public static List<Map<String, Object>> bookedRanges(DocumentSnapshot doc) {
+        Object ranges = doc.get(RoomAvailability.FIELD_BOOKED_RANGES);
+        return ranges instanceof List ? (List<Map<String, Object>>) ranges : null;
+    }
+
+    /**
+     * Summary top-up for an owner's rooms posted before this collection existed, from rooms
+     * the caller already loaded. The migration over the whole collection is
+     * scripts/migrations/backfill-summaries.js. Marked done per owner and install only once
+     * every batch has been written, so a failure is retried next time.
+     */
+    public static void backfill(Context context, String ownerId, List<Room> rooms) {
+        if (ownerId == null || rooms == null || rooms.isEmpty()) return;
+
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (prefs.getBoolean(KEY_BACKFILLED + ownerId, false)) return;
+
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        List<Task<Void>> commits = new ArrayList<>();
+        WriteBatch batch = db.batch();
+        int count = 0;
+
+        for (Room room : rooms) {
+            // Drafts get their summary when they're published
+            if ("draft".equals(room.getStatus())) continue;
+
+            Map<String, Object> summary = fromRoom(room);
+            if (room.getGeohash() == null && (room.getLatitude() != 0 || room.getLongitude() != 0)) {
+                summary.put("geohash", GeoHash.encode(room.getLatitude(), room.getLongitude()));
+            }
+            batch.set(document(room.getId()), summary, SetOptions.merge());
+
+            // Stay under the 500 writes per batch limit
+            if (++count % 400 == 0) {
+                commits.add(batch.commit());
+                batch = db.batch();
+            }
+        }
+        commits.add(batch.commit());
+
+        final int total = count;
+        Tasks.whenAll(commits)
+                .addOnSuccessListener(aVoid -> {
+                    prefs.edit().putBoolean(KEY_BACKFILLED + ownerId, true).apply();
+                    Log.d(TAG, "Backfilled " + total + " room summaries");
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Summary backfill failed: " + e.getMessage()));
+    }
+}
@@ -0,0 +1,92 @@
+package com.app.roomify;
+
+import android.graphics.drawable.Drawable;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.util.ViewPreloadSizeProvider;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Room card thumbnails for lists: one request recipe shared by binding and preloading, so
+ * preloaded images are the exact cache entries the cards ask for.
+ */
+public class RoomThumbnails implements ListPreloader.PreloadModelProvider<Room> {
+
+    // Rows fetched ahead of the visible ones
+    private static final int PRELOAD_ITEMS = 6;
+
+    public interface RoomSource {
+        List<Room> getRooms();
+    }
+
+    private final RequestManager glide;
+    private final RoomSource source;
+    private final ViewPreloadSizeProvider<Room> sizeProvider = new ViewPreloadSizeProvider<>();
+
+    public RoomThumbnails(RequestManager glide, RoomSource source) {
+        this.glide = glide;
+        this.source = source;
+    }
+
+    /**
+     * Bind a card image. The first bound view also sizes the preloads.
+     */
+    public void load(Room room, ImageView target, int placeholder) {
+        sizeProvider.setView(target);
+        RequestBuilder<Drawable> request = request(room);
+        if (request == null) {
+            glide.clear(target);
+            target.setImageResource(placeholder);
+            return;
+        }
+        request.placeholder(placeholder)
+                .error(placeholder)
+                .into(target);
+    }
+
+    public void attachPreloader(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(
+                new RecyclerViewPreloader<>(glide, this, sizeProvider, PRELOAD_ITEMS));
+    }
+
+    @NonNull
+    @Override
+    public List<Room> getPreloadItems(int position) {
+        List<Room> rooms = source.getRooms();
+        if (rooms == null || position >= rooms.size()) return Collections.emptyList();
+        return Collections.singletonList(rooms.get(position));
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull Room room) {
+        return request(room);
+    }
+
+    @Nullable
+    private RequestBuilder<Drawable> request(Room room) {
+        String url = room.getFirstImageUrl();
+        if (url == null || url.isEmpty()) return null;
+
+        RequestBuilder<Drawable> request = glide.load(url)
+                .format(DecodeFormat.PREFER_RGB_565)
+                .centerCrop();
+        // Photos replaced under the same URL must not come back from the cache
+        if (room.getImagesUpdatedAt() > 0) {
+            request = request.signature(new ObjectKey(room.getImagesUpdatedAt()));
+        }
+        return request;
+    }
+}
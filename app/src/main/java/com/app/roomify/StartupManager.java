@@ -0,0 +1,247 @@
+package com.app.roomify;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthInvalidUserException;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides the first screen, starting as the splash opens rather than after its animation.
+ *
+ * The first whenReady() starts the work. The auth reload, the users/{uid} role lookup
+ * and opening the room catalog run in parallel. Role and verification state are kept per user in SharedPreferences, so a
+ * returning user is routed at once while both are re-checked in the background; what the
+ * re-check finds applies from the next launch. Role lookups are shared, so screens asking
+ * for the same user's role don't read it again. Main thread only.
+ */
+public class StartupManager {
+
+    private static final String TAG = "StartupManager";
+    private static final String PREFS_NAME = "startup";
+    private static final String KEY_ROLE = "role_";
+    private static final String KEY_VERIFIED = "verified_";
+
+    public enum Route {
+        LOGIN(LoginActivity.class),
+        MAP(LocationMap.class),
+        OWNER_DASHBOARD(OwnerDashboard.class),
+        // No cached route and the lookup failed
+        OFFLINE(NoInternetActivity.class);
+
+        public final Class<? extends Activity> activity;
+
+        Route(Class<? extends Activity> activity) {
+            this.activity = activity;
+        }
+    }
+
+    public interface RouteCallback {
+        void onRoute(Route route);
+    }
+
+    public interface RoleCallback {
+        /**
+         * @param role Null when the user has no profile or no role yet
+         */
+        void onRole(@Nullable String role);
+
+        void onError(Exception e);
+    }
+
+    private static StartupManager instance;
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final Map<String, Task<DocumentSnapshot>> roleLookups = new HashMap<>();
+    private final List<RouteCallback> waiting = new ArrayList<>();
+
+    // Who the current route was worked out for; "" when signed out
+    @Nullable private String startedFor;
+    @Nullable private Route route;
+    private int generation;
+
+    public static synchronized StartupManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new StartupManager(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private StartupManager(Context context) {
+        this.context = context;
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Start working out the first screen for whoever is signed in now.
+     */
+    public void start() {
+        long begin = System.currentTimeMillis();
+        int started = ++generation;
+        route = null;
+        RoomCatalog.getInstance(context).warmUp();
+
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        startedFor = user != null ? user.getUid() : "";
+        if (user == null) {
+            decide(started, Route.LOGIN);
+            return;
+        }
+        if (user.isAnonymous()) {
+            decide(started, Route.MAP);
+            return;
+        }
+
+        String uid = user.getUid();
+        // Neither waits for the other
+        Task<Void> reload = user.reload();
+        Task<DocumentSnapshot> lookup = lookUpRole(uid);
+
+        Route cached = cachedRoute(uid);
+        if (cached != null) {
+            Log.d(TAG, "Routed from the cached role in " + (System.currentTimeMillis() - begin) + " ms");
+            decide(started, cached);
+        }
+
+        Tasks.whenAllComplete(reload, lookup).addOnCompleteListener(done -> {
+            if (started != generation) return;
+            Route checked = checkedRoute(user, reload, lookup);
+            Log.d(TAG, "Checked route " + checked + " in " + (System.currentTimeMillis() - begin) + " ms");
+            if (route == null) {
+                if (checked == Route.LOGIN) FirebaseAuth.getInstance().signOut();
+                decide(started, checked);
+            } else if (reload.getException() instanceof FirebaseAuthInvalidUserException) {
+                // Disabled or deleted while routed from the cache; the next launch goes to login
+                FirebaseAuth.getInstance().signOut();
+            }
+        });
+    }
+
+    /**
+     * Deliver the first screen once known; straight away when it already is. Starts over
+     * if someone else has signed in or out since, or if the last attempt ended offline.
+     */
+    public void whenReady(RouteCallback callback) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        String uid = user != null ? user.getUid() : "";
+        // NoInternetActivity reopens the splash once back online, which has to look again
+        if (!uid.equals(startedFor) || route == Route.OFFLINE) start();
+
+        if (route != null) {
+            callback.onRoute(route);
+        } else {
+            waiting.add(callback);
+        }
+    }
+
+    public void cancel(RouteCallback callback) {
+        waiting.remove(callback);
+    }
+
+    /**
+     * The user's role, from the local copy when there is one, otherwise from Firestore. The
+     * local copy is re-checked once per process.
+     */
+    public void getRole(String uid, RoleCallback callback) {
+        String cached = prefs.getString(KEY_ROLE + uid, null);
+        Task<DocumentSnapshot> lookup = lookUpRole(uid);
+        if (cached != null) {
+            callback.onRole(cached);
+            return;
+        }
+        lookup.addOnSuccessListener(doc -> callback.onRole(doc.exists() ? doc.getString("role") : null))
+                .addOnFailureListener(callback::onError);
+    }
+
+    private Task<DocumentSnapshot> lookUpRole(String uid) {
+        Task<DocumentSnapshot> lookup = roleLookups.get(uid);
+        if (lookup != null) return lookup;
+
+        lookup = FirebaseFirestore.getInstance()
+                .collection("users")
+                .document(uid)
+                .get()
+                .addOnCompleteListener(task -> {
+                    String role = task.isSuccessful() && task.getResult().exists()
+                            ? task.getResult().getString("role") : null;
+                    if (role != null) {
+                        prefs.edit().putString(KEY_ROLE + uid, role).apply();
+                        return;
+                    }
+                    // Not kept, so a retry or a just-finished registration reads it again
+                    roleLookups.remove(uid);
+                    if (task.isSuccessful()) prefs.edit().remove(KEY_ROLE + uid).apply();
+                });
+        roleLookups.put(uid, lookup);
+        return lookup;
+    }
+
+    @Nullable
+    private Route cachedRoute(String uid) {
+        String role = prefs.getString(KEY_ROLE + uid, null);
+        if (role == null || !prefs.getBoolean(KEY_VERIFIED + uid, false)) return null;
+        return routeFor(role);
+    }
+
+    // The same checks the splash always made, on fresh answers
+    private Route checkedRoute(FirebaseUser user, Task<Void> reload, Task<DocumentSnapshot> lookup) {
+        String uid = user.getUid();
+        if (reload.getException() instanceof FirebaseAuthInvalidUserException) {
+            // The account was disabled or deleted, nothing cached for it applies any more
+            Log.d(TAG, "Account no longer valid: " + reload.getException().getMessage());
+            forget(uid);
+            return Route.LOGIN;
+        }
+        // Offline, the token's last known state stands
+        if (reload.isSuccessful()) {
+            prefs.edit().putBoolean(KEY_VERIFIED + uid, user.isEmailVerified()).apply();
+        } else {
+            Log.d(TAG, "Auth reload failed: " + reload.getException());
+        }
+        if (!user.isEmailVerified()) return Route.LOGIN;
+
+        if (!lookup.isSuccessful()) {
+            // Read again on the next attempt
+            roleLookups.remove(uid);
+            return Route.OFFLINE;
+        }
+        DocumentSnapshot doc = lookup.getResult();
+        // No user data → force login
+        if (!doc.exists()) return Route.LOGIN;
+        return routeFor(doc.getString("role"));
+    }
+
+    private void forget(String uid) {
+        roleLookups.remove(uid);
+        prefs.edit().remove(KEY_ROLE + uid).remove(KEY_VERIFIED + uid).apply();
+    }
+
+    private static Route routeFor(@Nullable String role) {
+        return "owner".equals(role) ? Route.OWNER_DASHBOARD : Route.MAP;
+    }
+
+    private void decide(int started, Route decided) {
+        if (started != generation || route != null) return;
+        route = decided;
+        List<RouteCallback> callbacks = new ArrayList<>(waiting);
+        waiting.clear();
+        for (RouteCallback callback : callbacks) {
+            callback.onRoute(decided);
+        }
+    }
+}
@@ -1,37 +1,46 @@
 package com.app.roomify;
 
+import android.util.Log;
+
+/**
+ * Whether the app currently has a validated network. MyApp pauses it when the default
+ * network goes away and resumes it once ConnectivityManager validates one; WriteOutbox
+ * only sends queued writes while it is not paused.
+ */
 public class TrackingManager {
 
+    private static final String TAG = "TrackingManager";
+
     // Singleton instance
     private static TrackingManager instance;
 
-    private boolean isTrackingPaused = false;
+    // Written from the ConnectivityManager callback thread
+    private volatile boolean isTrackingPaused = false;
 
     // Private constructor
     private TrackingManager() { }
 
     // Get instance
-    public static TrackingManager getInstance() {
+    public static synchronized TrackingManager getInstance() {
         if (instance == null) {
             instance = new TrackingManager();
         }
         return instance;
     }
 
-    // Pause tracking actions
+    // Pause tracking actions; writes stay queued in WriteOutbox
     public void pauseTracking() {
-        isTrackingPaused = true;
-        // Here you can stop network calls or stop posting room updates
-        // Example: stop sending room data to server
-        System.out.println("Tracking paused due to no internet");
+        if (!isTrackingPaused) {
+            isTrackingPaused = true;
+            Log.d(TAG, "Tracking paused, no validated network");
+        }
     }
 
-    // Resume tracking actions
+    // Resume tracking actions; the caller drains WriteOutbox
     public void resumeTracking() {
         if (isTrackingPaused) {
             isTrackingPaused = false;
-            // Resume network calls or continue posting room updates
-            System.out.println("Tracking resumed as internet is back");
+            Log.d(TAG, "Tracking resumed, network validated");
         }
     }
 
@@ -39,4 +48,4 @@ public class TrackingManager {
     public boolean isPaused() {
         return isTrackingPaused;
     }
-}
\ No newline at end of file
+}
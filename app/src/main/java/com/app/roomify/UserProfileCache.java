@@ -0,0 +1,218 @@
+package com.app.roomify;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Source;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Process-wide cache of users/{uid} documents.
+ * Keeps the most recently used profiles in memory, merges requests for the same uid into
+ * one fetch, and batches misses made in the same main-loop turn into whereIn(documentId)
+ * queries. Call from the main thread; callbacks are delivered there too.
+ */
+public class UserProfileCache {
+
+    private static final String TAG = "UserProfileCache";
+
+    private static final int MAX_PROFILES = 200;
+
+    // whereIn limit on document ids per query
+    private static final int MAX_IDS_PER_QUERY = 10;
+
+    public interface ProfileCallback {
+        /**
+         * @param profile The user document, or null if it doesn't exist or couldn't be read
+         */
+        void onProfile(@Nullable DocumentSnapshot profile);
+    }
+
+    private static UserProfileCache instance;
+
+    private final LruCache<String, DocumentSnapshot> profiles = new LruCache<>(MAX_PROFILES);
+
+    // Callbacks waiting on a queued or in-flight fetch, keyed by source and uid
+    private final Map<String, List<ProfileCallback>> waiting = new HashMap<>();
+    private final Map<Source, Set<String>> queued = new EnumMap<>(Source.class);
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private boolean flushScheduled;
+
+    public static synchronized UserProfileCache getInstance() {
+        if (instance == null) {
+            instance = new UserProfileCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Memory first, then Firestore with its default source.
+     */
+    public void get(String uid, ProfileCallback callback) {
+        get(uid, Source.DEFAULT, callback);
+    }
+
+    /**
+     * @param source {@link Source#CACHE} never touches the network,
+     *               {@link Source#SERVER} skips memory and always reads the server,
+     *               {@link Source#DEFAULT} returns a remembered profile if there is one.
+     */
+    public void get(String uid, Source source, ProfileCallback callback) {
+        if (uid == null || uid.isEmpty()) {
+            callback.onProfile(null);
+            return;
+        }
+
+        if (source != Source.SERVER) {
+            DocumentSnapshot cached = profiles.get(uid);
+            if (cached != null) {
+                callback.onProfile(cached);
+                return;
+            }
+        }
+
+        String key = source.name() + ":" + uid;
+        List<ProfileCallback> callbacks = waiting.get(key);
+        if (callbacks != null) {
+            // Already queued or in flight, ride along
+            callbacks.add(callback);
+            return;
+        }
+
+        callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        waiting.put(key, callbacks);
+
+        Set<String> ids = queued.get(source);
+        if (ids == null) {
+            ids = new LinkedHashSet<>();
+            queued.put(source, ids);
+        }
+        ids.add(uid);
+
+        if (!flushScheduled) {
+            flushScheduled = true;
+            handler.post(this::flush);
+        }
+    }
+
+    /**
+     * Stale-while-revalidate: the remembered or locally cached profile straight away, then
+     * the server copy. The callback runs once or twice; a failed refresh is reported as null
+     * only when nothing was delivered before it.
+     */
+    public void getCacheFirst(String uid, ProfileCallback callback) {
+        get(uid, Source.CACHE, cached -> {
+            if (cached != null) callback.onProfile(cached);
+            get(uid, Source.SERVER, fresh -> {
+                if (fresh != null || cached == null) callback.onProfile(fresh);
+            });
+        });
+    }
+
+    /**
+     * Remember a profile read elsewhere, e.g. right after the user edits it.
+     */
+    public void put(DocumentSnapshot profile) {
+        if (profile != null && profile.exists()) {
+            profiles.put(profile.getId(), profile);
+        }
+    }
+
+    public void invalidate(String uid) {
+        if (uid != null) profiles.remove(uid);
+    }
+
+    public void clear() {
+        profiles.evictAll();
+    }
+
+    private void flush() {
+        flushScheduled = false;
+
+        for (Map.Entry<Source, Set<String>> entry : queued.entrySet()) {
+            List<String> ids = new ArrayList<>(entry.getValue());
+            for (int i = 0; i < ids.size(); i += MAX_IDS_PER_QUERY) {
+                fetch(ids.subList(i, Math.min(ids.size(), i + MAX_IDS_PER_QUERY)), entry.getKey());
+            }
+        }
+        queued.clear();
+    }
+
+    private void fetch(List<String> ids, Source source) {
+        List<String> chunk = new ArrayList<>(ids);
+        Log.d(TAG, "Fetching " + chunk.size() + " profiles from " + source);
+
+        FirebaseFirestore.getInstance()
+                .collection("users")
+                .whereIn(FieldPath.documentId(), chunk)
+                .get(source)
+                .addOnSuccessListener(snapshot -> {
+                    Map<String, DocumentSnapshot> found = new HashMap<>();
+                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                        profiles.put(doc.getId(), doc);
+                        found.put(doc.getId(), doc);
+                    }
+                    for (String uid : chunk) {
+                        deliver(source, uid, found.get(uid));
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Profile fetch failed: " + e.getMessage());
+                    for (String uid : chunk) {
+                        deliver(source, uid, null);
+                    }
+                });
+    }
+
+    private void deliver(Source source, String uid, @Nullable DocumentSnapshot profile) {
+        List<ProfileCallback> callbacks = waiting.remove(source.name() + ":" + uid);
+        if (callbacks == null) return;
+        for (ProfileCallback callback : callbacks) {
+            callback.onProfile(profile);
+        }
+    }
+
+    // ==================== FIELD HELPERS ====================
+
+    /**
+     * Display name, falling back from "name" to "fullName".
+     */
+    @Nullable
+    public static String getName(@Nullable DocumentSnapshot profile) {
+        if (profile == null) return null;
+        String name = profile.getString("name");
+        if (name == null || name.isEmpty()) {
+            name = profile.getString("fullName");
+        }
+        return name != null && !name.isEmpty() ? name : null;
+    }
+
+    /**
+     * Phone number, falling back from "phone" to "contactPhone".
+     */
+    @Nullable
+    public static String getPhone(@Nullable DocumentSnapshot profile) {
+        if (profile == null) return null;
+        String phone = profile.getString("phone");
+        if (phone == null || phone.isEmpty()) {
+            phone = profile.getString("contactPhone");
+        }
+        return phone != null && !phone.isEmpty() ? phone : null;
+    }
+}
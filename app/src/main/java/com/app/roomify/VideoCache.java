@@ -0,0 +1,241 @@
+package com.app.roomify;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.media.MediaDataSource;
+import android.media.MediaMetadataRetriever;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.database.StandaloneDatabaseProvider;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.DefaultHttpDataSource;
+import androidx.media3.datasource.cache.CacheDataSource;
+import androidx.media3.datasource.cache.CacheWriter;
+import androidx.media3.datasource.cache.LeastRecentlyUsedCacheEvictor;
+import androidx.media3.datasource.cache.SimpleCache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Disk cache for room video tours, shared by the player, preloading and thumbnails.
+ *
+ * Everything reads through one LRU SimpleCache, so bytes fetched to warm up the details
+ * screen or to grab a thumbnail are reused by playback, and replays cost no network.
+ * First-frame thumbnails are extracted once and kept as JPEG files next to the cache.
+ */
+@UnstableApi
+public class VideoCache {
+
+    private static final String TAG = "VideoCache";
+
+    private static final long MAX_CACHE_BYTES = 200L * 1024 * 1024;
+    // Roughly the first few seconds of a phone-recorded tour
+    static final long PRELOAD_BYTES = 2L * 1024 * 1024;
+    private static final int THUMBNAIL_WIDTH = 640;
+
+    private static VideoCache instance;
+
+    private final SimpleCache cache;
+    private final CacheDataSource.Factory dataSourceFactory;
+    private final File thumbnailDir;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Map<String, Future<?>> preloads = new HashMap<>();
+
+    public static synchronized VideoCache getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new VideoCache(appContext, new File(appContext.getCacheDir(), "video"),
+                    MAX_CACHE_BYTES, new DefaultHttpDataSource.Factory());
+        }
+        return instance;
+    }
+
+    // Separate directory and upstream so tests can point it at a local server
+    VideoCache(Context context, File dir, long maxBytes, DataSource.Factory upstream) {
+        cache = new SimpleCache(dir, new LeastRecentlyUsedCacheEvictor(maxBytes),
+                new StandaloneDatabaseProvider(context));
+        dataSourceFactory = new CacheDataSource.Factory()
+                .setCache(cache)
+                .setUpstreamDataSourceFactory(upstream)
+                .setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR);
+        thumbnailDir = new File(dir.getParentFile(), "video_thumbs");
+    }
+
+    /**
+     * For ExoPlayer's DefaultMediaSourceFactory.
+     */
+    public CacheDataSource.Factory getDataSourceFactory() {
+        return dataSourceFactory;
+    }
+
+    /**
+     * Fetch the start of the video into the cache in the background, so playback can begin
+     * without waiting on the network. No-op if it is already being fetched.
+     */
+    public synchronized void preload(String url) {
+        if (preloads.containsKey(url)) return;
+
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            try {
+                DataSpec spec = new DataSpec.Builder()
+                        .setUri(Uri.parse(url))
+                        .setPosition(0)
+                        .setLength(PRELOAD_BYTES)
+                        .build();
+                new CacheWriter(dataSourceFactory.createDataSource(), spec, null, null).cache();
+                Log.d(TAG, "Preloaded " + getCachedBytes(url) + " bytes of " + url);
+            } catch (IOException e) {
+                Log.e(TAG, "Preload failed for " + url, e);
+            }
+        }, null) {
+            @Override
+            protected void done() {
+                // Only the running ones are kept; a later preload of the same URL is cheap
+                synchronized (VideoCache.this) {
+                    preloads.remove(url, this);
+                }
+            }
+        };
+        preloads.put(url, task);
+        executor.execute(task);
+    }
+
+    /**
+     * Stop fetching the start of a video nobody is about to play. What already arrived stays.
+     */
+    public synchronized void cancelPreload(String url) {
+        Future<?> running = preloads.remove(url);
+        if (running != null) running.cancel(true);
+    }
+
+    /**
+     * @return Bytes of the video held from the start, without gaps
+     */
+    public long getCachedBytes(String url) {
+        String key = dataSourceFactory.getCacheKeyFactory().buildCacheKey(
+                new DataSpec(Uri.parse(url)));
+        return cache.getCachedLength(key, 0, C.LENGTH_UNSET);
+    }
+
+    /**
+     * First frame of the video as a JPEG file, extracted on the first call and reused after.
+     * Blocking, call off the main thread.
+     */
+    @Nullable
+    public File getThumbnail(String url) {
+        File file = new File(thumbnailDir, hash(url) + ".jpg");
+        if (file.exists()) return file;
+
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try (CachedMediaDataSource source = new CachedMediaDataSource(url)) {
+            retriever.setDataSource(source);
+            Bitmap frame = retriever.getFrameAtTime(0, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+            if (frame == null) return null;
+
+            if (frame.getWidth() > THUMBNAIL_WIDTH) {
+                int height = Math.round(frame.getHeight() * (THUMBNAIL_WIDTH / (float) frame.getWidth()));
+                Bitmap scaled = Bitmap.createScaledBitmap(frame, THUMBNAIL_WIDTH, height, true);
+                frame.recycle();
+                frame = scaled;
+            }
+
+            if (!thumbnailDir.isDirectory() && !thumbnailDir.mkdirs()) return null;
+            File partial = new File(file.getPath() + ".part");
+            try (FileOutputStream out = new FileOutputStream(partial)) {
+                frame.compress(Bitmap.CompressFormat.JPEG, 80, out);
+            }
+            frame.recycle();
+            return partial.renameTo(file) ? file : null;
+        } catch (RuntimeException | IOException e) {
+            Log.e(TAG, "Thumbnail extraction failed for " + url, e);
+            return null;
+        } finally {
+            try {
+                retriever.release();
+            } catch (IOException e) {
+                Log.e(TAG, "Could not release retriever", e);
+            }
+        }
+    }
+
+    // Tests only; the app keeps the singleton for the life of the process
+    void release() {
+        executor.shutdownNow();
+        cache.release();
+    }
+
+    private static String hash(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8));
+            return String.format("%040x", new BigInteger(1, digest));
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(url.hashCode());
+        }
+    }
+
+    /**
+     * Lets MediaMetadataRetriever read through the cache, so the bytes it pulls for the
+     * first frame also serve playback. Sequential reads reuse one open source.
+     */
+    private class CachedMediaDataSource extends MediaDataSource {
+        private final Uri uri;
+        private final DataSource source = dataSourceFactory.createDataSource();
+        private boolean open;
+        private long position = -1;
+        private long size = -1;
+
+        CachedMediaDataSource(String url) {
+            this.uri = Uri.parse(url);
+        }
+
+        @Override
+        public int readAt(long offset, byte[] buffer, int bufferOffset, int length) throws IOException {
+            if (length == 0) return 0;
+            if (size >= 0 && offset >= size) return -1;
+
+            if (!open || offset != position) {
+                if (open) source.close();
+                long opened = source.open(new DataSpec.Builder().setUri(uri).setPosition(offset).build());
+                open = true;
+                position = offset;
+                if (size < 0 && opened != C.LENGTH_UNSET) size = offset + opened;
+            }
+
+            int read = source.read(buffer, bufferOffset, length);
+            if (read == C.RESULT_END_OF_INPUT) return -1;
+            position += read;
+            return read;
+        }
+
+        @Override
+        public long getSize() throws IOException {
+            if (size < 0) readAt(0, new byte[1], 0, 1);
+            return size;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (open) {
+                source.close();
+                open = false;
+            }
+        }
+    }
+}
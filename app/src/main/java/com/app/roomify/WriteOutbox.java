@@ -0,0 +1,623 @@
+package com.app.roomify;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Durable queue for the user's writes, in outbox.db, so they survive going offline and
+ * the process being killed.
+ *
+ * Booking requests, favorites, booking status changes and room edits are recorded here
+ * first and replayed to Firestore one at a time, in order, while MyApp reports a validated
+ * network. Every entry carries an idempotency key, so replaying one whose acknowledgement
+ * was lost changes nothing: booking requests skip if the booking already exists, status
+ * changes skip if the booking already carries the key, and the rest are plain overwrites.
+ * Transient failures keep the entry for the next attempt, up to MAX_ATTEMPTS; rejected
+ * ones, and ones that keep failing, are dropped and the user is told. Screens read the
+ * pending entries to show local state meanwhile, and undo it through a DropListener.
+ */
+public class WriteOutbox extends SQLiteOpenHelper {
+
+    private static final String TAG = "WriteOutbox";
+
+    public static final String DB_NAME = "outbox.db";
+    private static final int DB_VERSION = 1;
+
+    private static final String TABLE_OPS = "ops";
+
+    public static final String TYPE_BOOKING_REQUEST = "booking_request";
+    public static final String TYPE_FAVORITE = "favorite";
+    public static final String TYPE_BOOKING_STATUS = "booking_status";
+    public static final String TYPE_ROOM_UPDATE = "room_update";
+
+    // Retry delay after a transient failure while still online, doubling up to the cap
+    private static final long RETRY_BASE_MS = 2_000;
+    private static final long RETRY_MAX_MS = 60_000;
+    // Roughly five minutes of online retries before an entry stops blocking the queue
+    private static final int MAX_ATTEMPTS = 10;
+
+    private static class Op {
+        final long seq;
+        final String key;
+        final String type;
+        // What the write touches, e.g. "favorite/{uid}/{roomId}"; used to coalesce
+        final String target;
+        final JSONObject payload;
+        int attempts;
+
+        Op(long seq, String key, String type, String target, JSONObject payload, int attempts) {
+            this.seq = seq;
+            this.key = key;
+            this.type = type;
+            this.target = target;
+            this.payload = payload;
+            this.attempts = attempts;
+        }
+    }
+
+    public interface DropListener {
+        /**
+         * The queued write was rejected or kept failing and won't be sent. Main thread.
+         */
+        void onDropped();
+    }
+
+    private static WriteOutbox instance;
+
+    private final Context appContext;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Mirror of the table in drain order, guarded by this
+    private final List<Op> pending = new ArrayList<>();
+    @Nullable private Op inFlight;
+    private boolean draining;
+
+    // By target, main thread only
+    private final Map<String, List<DropListener>> dropListeners = new HashMap<>();
+
+    public static synchronized WriteOutbox getInstance(Context context) {
+        if (instance == null) {
+            instance = new WriteOutbox(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private WriteOutbox(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+        appContext = context;
+        // A handful of small rows at most, read once
+        loadPending();
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_OPS + " (" +
+                "seq INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "op_key TEXT NOT NULL UNIQUE, " +
+                "type TEXT NOT NULL, " +
+                "target TEXT NOT NULL, " +
+                "payload TEXT NOT NULL, " +
+                "created_at INTEGER NOT NULL, " +
+                "attempts INTEGER NOT NULL DEFAULT 0)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        for (int version = oldVersion + 1; version <= newVersion; version++) {
+            migrate(db, version);
+        }
+    }
+
+    /**
+     * Bring the schema from version - 1 to version, keeping queued writes.
+     */
+    private void migrate(SQLiteDatabase db, int version) {
+        switch (version) {
+            default:
+                throw new IllegalStateException("No migration to outbox version " + version);
+        }
+    }
+
+    // ==================== ENQUEUE ====================
+
+    /**
+     * Queue a new booking request. Both copies and the owner's notification are written
+     * together under the locally allocated bookingId.
+     *
+     * @param booking Booking fields, including userId, roomId and ownerId
+     */
+    public void requestBooking(String bookingId, Map<String, Object> booking,
+                               String notifyTitle, String notifyMessage) {
+        JSONObject payload = new JSONObject();
+        try {
+            payload.put("bookingId", bookingId);
+            payload.put("booking", new JSONObject(booking));
+            payload.put("notifyTitle", notifyTitle);
+            payload.put("notifyMessage", notifyMessage);
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not queue booking request", e);
+            return;
+        }
+        enqueue(TYPE_BOOKING_REQUEST, bookingTarget(String.valueOf(booking.get("userId")),
+                String.valueOf(booking.get("roomId")), bookingId), payload, false);
+    }
+
+    /**
+     * Queue adding or removing a favorite. Replaces a not yet sent toggle of the same room.
+     */
+    public void setFavorite(String userId, String roomId, @Nullable String title, boolean favorite) {
+        JSONObject payload = new JSONObject();
+        try {
+            payload.put("userId", userId);
+            payload.put("roomId", roomId);
+            payload.put("title", title != null ? title : "");
+            payload.put("favorite", favorite);
+            payload.put("timestamp", System.currentTimeMillis());
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not queue favorite", e);
+            return;
+        }
+        enqueue(TYPE_FAVORITE, "favorite/" + userId + "/" + roomId, payload, true);
+    }
+
+    /**
+     * Queue a booking status change, applied by BookingStatusCommand when drained.
+     *
+     * @param notifyTitle Notification sent to the tenant, or null for none
+     */
+    public void setBookingStatus(BookingRequest request, String status,
+                                 @Nullable String notifyTitle, @Nullable String notifyMessage) {
+        JSONObject payload = new JSONObject();
+        try {
+            payload.put("bookingId", request.getId());
+            payload.put("roomId", request.getRoomId());
+            payload.put("userId", request.getUserId());
+            payload.put("status", status);
+            payload.put("notifyTitle", notifyTitle);
+            payload.put("notifyMessage", notifyMessage);
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not queue booking status", e);
+            return;
+        }
+        enqueue(TYPE_BOOKING_STATUS, bookingStatusTarget(request.getId()), payload, false);
+    }
+
+    /**
+     * Queue an update to some of a room's fields; the summary gets the ones it holds.
+     */
+    public void updateRoom(String roomId, Map<String, Object> fields) {
+        JSONObject payload = new JSONObject();
+        try {
+            payload.put("roomId", roomId);
+            payload.put("fields", new JSONObject(fields));
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not queue room update", e);
+            return;
+        }
+        enqueue(TYPE_ROOM_UPDATE, "room/" + roomId, payload, false);
+    }
+
+    private void enqueue(String type, String target, JSONObject payload, boolean replacesPending) {
+        String key = UUID.randomUUID().toString();
+        synchronized (this) {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                if (replacesPending) {
+                    // The one being sent right now has to finish first
+                    long inFlightSeq = inFlight != null ? inFlight.seq : -1;
+                    db.delete(TABLE_OPS, "target = ? AND seq != ?",
+                            new String[]{target, String.valueOf(inFlightSeq)});
+                    Iterator<Op> it = pending.iterator();
+                    while (it.hasNext()) {
+                        Op op = it.next();
+                        if (op != inFlight && op.target.equals(target)) it.remove();
+                    }
+                }
+
+                ContentValues values = new ContentValues();
+                values.put("op_key", key);
+                values.put("type", type);
+                values.put("target", target);
+                values.put("payload", payload.toString());
+                values.put("created_at", System.currentTimeMillis());
+                long seq = db.insertOrThrow(TABLE_OPS, null, values);
+                db.setTransactionSuccessful();
+                pending.add(new Op(seq, key, type, target, payload, 0));
+            } finally {
+                db.endTransaction();
+            }
+        }
+        Log.d(TAG, "Queued " + type + " " + key + ", pending: " + getPendingCount());
+        drain();
+    }
+
+    // ==================== LOCAL STATE ====================
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * False while MyApp has no validated network; queued writes wait until then.
+     */
+    public boolean isOnline() {
+        return !TrackingManager.getInstance().isPaused();
+    }
+
+    /**
+     * @return The favorite state still waiting to be sent, or null if none is queued
+     */
+    @Nullable
+    public synchronized Boolean getPendingFavorite(String userId, String roomId) {
+        String target = "favorite/" + userId + "/" + roomId;
+        Boolean favorite = null;
+        for (Op op : pending) {
+            if (op.target.equals(target)) favorite = op.payload.optBoolean("favorite");
+        }
+        return favorite;
+    }
+
+    /**
+     * @return True if the user has a booking request for the room that is not sent yet
+     */
+    public synchronized boolean hasPendingBooking(String userId, String roomId) {
+        String prefix = bookingTarget(userId, roomId, "");
+        for (Op op : pending) {
+            if (op.target.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return The latest status queued for the booking, or null if none is queued
+     */
+    @Nullable
+    public synchronized String getPendingStatus(String bookingId) {
+        String target = bookingStatusTarget(bookingId);
+        String status = null;
+        for (Op op : pending) {
+            if (op.target.equals(target)) status = op.payload.optString("status");
+        }
+        return status;
+    }
+
+    /**
+     * @return Room fields queued for the room, later updates winning; empty if none
+     */
+    public synchronized Map<String, Object> getPendingRoomFields(String roomId) {
+        String target = "room/" + roomId;
+        Map<String, Object> fields = new HashMap<>();
+        for (Op op : pending) {
+            if (!op.target.equals(target)) continue;
+            JSONObject update = op.payload.optJSONObject("fields");
+            if (update != null) fields.putAll(toMap(update));
+        }
+        return fields;
+    }
+
+    /**
+     * Target of a queued booking request, for addDropListener.
+     */
+    public static String bookingTarget(String userId, String roomId, String bookingId) {
+        return "booking/" + userId + "/" + roomId + "/" + bookingId;
+    }
+
+    /**
+     * Target of a queued booking status change, for addDropListener.
+     */
+    public static String bookingStatusTarget(String bookingId) {
+        return "booking_status/" + bookingId;
+    }
+
+    /**
+     * Be told when a write queued for the target is dropped, so a screen can undo what it
+     * showed optimistically. Removed when the owner is destroyed. Main thread only.
+     */
+    public void addDropListener(LifecycleOwner owner, String target, DropListener listener) {
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) return;
+        List<DropListener> listeners = dropListeners.get(target);
+        if (listeners == null) {
+            listeners = new ArrayList<>();
+            dropListeners.put(target, listeners);
+        }
+        listeners.add(listener);
+
+        owner.getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onDestroy(@NonNull LifecycleOwner owner) {
+                List<DropListener> registered = dropListeners.get(target);
+                if (registered == null) return;
+                registered.remove(listener);
+                if (registered.isEmpty()) dropListeners.remove(target);
+            }
+        });
+    }
+
+    // ==================== DRAIN ====================
+
+    /**
+     * Send queued writes in order. No-op while offline or already draining.
+     */
+    public void drain() {
+        synchronized (this) {
+            if (draining || pending.isEmpty() || !isOnline()) return;
+            draining = true;
+        }
+        executor.execute(this::drainNext);
+    }
+
+    private void drainNext() {
+        Op op;
+        synchronized (this) {
+            if (pending.isEmpty() || !isOnline()) {
+                draining = false;
+                return;
+            }
+            op = pending.get(0);
+            inFlight = op;
+        }
+
+        Task<Void> task;
+        try {
+            task = send(op);
+        } catch (JSONException e) {
+            task = Tasks.forException(e);
+        }
+
+        task.addOnCompleteListener(executor, result -> {
+            if (result.isSuccessful()) {
+                Log.d(TAG, "Sent " + op.type + " " + op.key);
+                remove(op);
+                drainNext();
+                return;
+            }
+
+            Exception e = result.getException();
+            if (isRetryable(e)) {
+                // Failures after the network went away don't count, MyApp drains again once back
+                int attempts = isOnline() ? recordAttempt(op) : op.attempts;
+                if (attempts < MAX_ATTEMPTS) {
+                    long delay = retryDelay(attempts);
+                    Log.d(TAG, "Will retry " + op.type + " " + op.key + " in " + delay + "ms", e);
+                    synchronized (this) {
+                        inFlight = null;
+                        draining = false;
+                    }
+                    mainHandler.postDelayed(this::drain, delay);
+                    return;
+                }
+                Log.e(TAG, "Giving up on " + op.type + " " + op.key + " after " + attempts + " attempts");
+            }
+
+            Log.e(TAG, "Dropping rejected " + op.type + " " + op.key, e);
+            remove(op);
+            mainHandler.post(() -> {
+                Toast.makeText(appContext, "Couldn't save " + describe(op) + ": " + e.getMessage(),
+                        Toast.LENGTH_LONG).show();
+                notifyDropped(op.target);
+            });
+            drainNext();
+        });
+    }
+
+    private void notifyDropped(String target) {
+        List<DropListener> listeners = dropListeners.get(target);
+        if (listeners == null) return;
+        for (DropListener listener : new ArrayList<>(listeners)) {
+            listener.onDropped();
+        }
+    }
+
+    private Task<Void> send(Op op) throws JSONException {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        JSONObject payload = op.payload;
+
+        switch (op.type) {
+            case TYPE_BOOKING_REQUEST:
+                return sendBookingRequest(db, op);
+
+            case TYPE_FAVORITE: {
+                DocumentReference favorite = db.collection("users")
+                        .document(payload.getString("userId"))
+                        .collection("favorites")
+                        .document(payload.getString("roomId"));
+                if (!payload.getBoolean("favorite")) {
+                    return favorite.delete();
+                }
+                Map<String, Object> data = new HashMap<>();
+                data.put("roomId", payload.getString("roomId"));
+                data.put("timestamp", payload.getLong("timestamp"));
+                data.put("title", payload.getString("title"));
+                return favorite.set(data);
+            }
+
+            case TYPE_BOOKING_STATUS: {
+                BookingRequest request = new BookingRequest();
+                request.setId(payload.getString("bookingId"));
+                request.setRoomId(payload.getString("roomId"));
+                request.setUserId(payload.getString("userId"));
+                return BookingStatusCommand.setStatus(request, payload.getString("status"),
+                        optString(payload, "notifyTitle"), optString(payload, "notifyMessage"), op.key);
+            }
+
+            case TYPE_ROOM_UPDATE: {
+                String roomId = payload.getString("roomId");
+                Map<String, Object> fields = toMap(payload.getJSONObject("fields"));
+                WriteBatch batch = db.batch();
+                batch.update(db.collection("rooms").document(roomId), RoomChanges.stamp(fields));
+                Map<String, Object> summary = RoomSummaries.fromRoomData(fields);
+                if (!summary.isEmpty()) {
+                    batch.set(RoomSummaries.document(roomId), summary, SetOptions.merge());
+                }
+                return batch.commit();
+            }
+
+            default:
+                throw new JSONException("Unknown outbox entry type " + op.type);
+        }
+    }
+
+    // Both copies plus the owner's notification, skipped if a previous attempt already landed
+    private Task<Void> sendBookingRequest(FirebaseFirestore db, Op op) throws JSONException {
+        String bookingId = op.payload.getString("bookingId");
+        Map<String, Object> booking = toMap(op.payload.getJSONObject("booking"));
+        String roomId = String.valueOf(booking.get("roomId"));
+        String userId = String.valueOf(booking.get("userId"));
+        String ownerId = String.valueOf(booking.get("ownerId"));
+        String title = optString(op.payload, "notifyTitle");
+        String message = optString(op.payload, "notifyMessage");
+
+        DocumentReference roomBooking = FirebaseUtils.getRoomBookingsCollection(roomId).document(bookingId);
+        DocumentReference userBooking = db.collection("users").document(userId)
+                .collection("bookings").document(bookingId);
+
+        // The owner's inbox query matches this copy only
+        Map<String, Object> roomCopy = new HashMap<>(booking);
+        roomCopy.put(BookingInbox.FIELD_ROOM_COPY, true);
+
+        return db.runTransaction(transaction -> {
+            if (transaction.get(roomBooking).exists()) return null;
+            transaction.set(roomBooking, roomCopy);
+            transaction.set(userBooking, booking);
+            FirebaseUtils.addNotificationOnce(transaction, ownerId, title, message, bookingId, op.key);
+            return null;
+        });
+    }
+
+    // Only failures Firestore reports as transient; anything else won't go better next time
+    private static boolean isRetryable(@Nullable Exception e) {
+        if (!(e instanceof FirebaseFirestoreException)) return false;
+        switch (((FirebaseFirestoreException) e).getCode()) {
+            case UNAVAILABLE:
+            case DEADLINE_EXCEEDED:
+            case ABORTED:
+            case RESOURCE_EXHAUSTED:
+            case INTERNAL:
+            case UNKNOWN:
+            case CANCELLED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static long retryDelay(int attempts) {
+        return Math.min(RETRY_MAX_MS, RETRY_BASE_MS << Math.min(Math.max(attempts - 1, 0), 10));
+    }
+
+    private static String describe(Op op) {
+        switch (op.type) {
+            case TYPE_BOOKING_REQUEST:
+                return "booking request";
+            case TYPE_FAVORITE:
+                return "favorite";
+            case TYPE_BOOKING_STATUS:
+                return "booking update";
+            default:
+                return "room changes";
+        }
+    }
+
+    // ==================== STORAGE ====================
+
+    private synchronized void loadPending() {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_OPS, null, null, null,
+                null, null, "seq ASC")) {
+            while (cursor.moveToNext()) {
+                String key = cursor.getString(cursor.getColumnIndexOrThrow("op_key"));
+                try {
+                    pending.add(new Op(
+                            cursor.getLong(cursor.getColumnIndexOrThrow("seq")),
+                            key,
+                            cursor.getString(cursor.getColumnIndexOrThrow("type")),
+                            cursor.getString(cursor.getColumnIndexOrThrow("target")),
+                            new JSONObject(cursor.getString(cursor.getColumnIndexOrThrow("payload"))),
+                            cursor.getInt(cursor.getColumnIndexOrThrow("attempts"))));
+                } catch (JSONException e) {
+                    Log.e(TAG, "Skipping unreadable outbox entry " + key, e);
+                }
+            }
+        }
+        Log.d(TAG, "Loaded " + pending.size() + " pending writes");
+    }
+
+    private synchronized void remove(Op op) {
+        getWritableDatabase().delete(TABLE_OPS, "seq = ?", new String[]{String.valueOf(op.seq)});
+        pending.remove(op);
+        if (inFlight == op) inFlight = null;
+    }
+
+    private synchronized int recordAttempt(Op op) {
+        op.attempts++;
+        ContentValues values = new ContentValues();
+        values.put("attempts", op.attempts);
+        getWritableDatabase().update(TABLE_OPS, values, "seq = ?", new String[]{String.valueOf(op.seq)});
+        return op.attempts;
+    }
+
+    @Nullable
+    private static String optString(JSONObject json, String name) {
+        return json.isNull(name) ? null : json.optString(name);
+    }
+
+    private static Map<String, Object> toMap(JSONObject json) {
+        Map<String, Object> map = new HashMap<>();
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            map.put(key, fromJson(json.opt(key)));
+        }
+        return map;
+    }
+
+    @Nullable
+    private static Object fromJson(@Nullable Object value) {
+        if (value == null || value == JSONObject.NULL) return null;
+        if (value instanceof JSONObject) return toMap((JSONObject) value);
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            List<Object> list = new ArrayList<>();
+            for (int i = 0; i < array.length(); i++) {
+                list.add(fromJson(array.opt(i)));
+            }
+            return list;
+        }
+        return value;
+    }
+}
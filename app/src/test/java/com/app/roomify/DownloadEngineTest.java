@@ -0,0 +1,242 @@
+package com.app.roomify;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import okio.ByteString;
+import okio.Okio;
+
+import static org.junit.Assert.*;
+
+/**
+ * DownloadEngine against MockWebServer: store layout, caching, request merging, Range resume
+ * and checksum verification.
+ */
+public class DownloadEngineTest {
+
+    private static final int FILE_BYTES = 1024 * 1024;
+    private static final String ETAG = "\"v1\"";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final byte[] content = new byte[FILE_BYTES];
+    private MockWebServer server;
+    private ExecutorService ioExecutor;
+    private DownloadEngine engine;
+    private String url;
+
+    @Before
+    public void setUp() throws IOException {
+        new Random(7).nextBytes(content);
+        server = new MockWebServer();
+        server.start();
+        url = server.url("/rooms/r1/contracts/contract.pdf").toString();
+
+        ioExecutor = Executors.newFixedThreadPool(2);
+        engine = new DownloadEngine(new OkHttpClient(), folder.newFolder("downloads"), ioExecutor, Runnable::run);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        ioExecutor.shutdownNow();
+        server.shutdown();
+    }
+
+    @Test
+    public void storesFileUnderItsContentHash() throws Exception {
+        server.enqueue(fullResponse());
+
+        RecordingListener listener = download();
+
+        assertNull(listener.error);
+        assertEquals(ByteString.of(content).sha256().hex(), listener.file.getName());
+        assertArrayEquals(content, read(listener.file));
+        assertEquals(FILE_BYTES, listener.lastDone);
+        assertEquals(FILE_BYTES, listener.lastTotal);
+    }
+
+    @Test
+    public void reopeningDoesNotDownloadAgain() throws Exception {
+        server.enqueue(fullResponse());
+        File first = download().file;
+
+        RecordingListener second = download();
+
+        assertEquals(first, second.file);
+        assertEquals(first, engine.getCached(url));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void concurrentRequestsShareOneDownload() throws Exception {
+        server.enqueue(fullResponse().throttleBody(128 * 1024, 50, TimeUnit.MILLISECONDS));
+
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+        engine.download(url, first);
+        engine.download(url, second);
+        first.await();
+        second.await();
+
+        assertNotNull(first.file);
+        assertEquals(first.file, second.file);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void resumesInterruptedDownloadWithRange() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (calls.getAndIncrement() == 0) {
+                    return fullResponse().setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+                }
+                return rangeResponse(request.getHeader("Range"));
+            }
+        });
+
+        RecordingListener interrupted = download();
+        assertNotNull(interrupted.error);
+        assertNull(engine.getCached(url));
+
+        RecordingListener resumed = download();
+
+        server.takeRequest();
+        RecordedRequest retry = server.takeRequest();
+        assertTrue(retry.getHeader("Range").startsWith("bytes="));
+        assertEquals(ETAG, retry.getHeader("If-Range"));
+        assertNull(resumed.error);
+        assertArrayEquals(content, read(resumed.file));
+        assertEquals(ByteString.of(content).sha256().hex(), resumed.file.getName());
+    }
+
+    @Test
+    public void restartsWhenServerIgnoresRange() throws Exception {
+        server.enqueue(fullResponse().setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+        server.enqueue(fullResponse());
+
+        assertNotNull(download().error);
+        RecordingListener restarted = download();
+
+        assertNull(restarted.error);
+        assertArrayEquals(content, read(restarted.file));
+    }
+
+    @Test
+    public void verifiesServerMd5() throws Exception {
+        String md5 = ByteString.of(content).md5().base64();
+        server.enqueue(fullResponse().setHeader("x-goog-hash", "crc32c=AAAAAA==,md5=" + md5));
+
+        RecordingListener listener = download();
+
+        assertNull(listener.error);
+        assertArrayEquals(content, read(listener.file));
+    }
+
+    @Test
+    public void rejectsChecksumMismatch() throws Exception {
+        String wrongMd5 = ByteString.encodeUtf8("something else").md5().base64();
+        server.enqueue(fullResponse().setHeader("x-goog-hash", "md5=" + wrongMd5));
+
+        RecordingListener listener = download();
+
+        assertNotNull(listener.error);
+        assertNull(engine.getCached(url));
+    }
+
+    @Test
+    public void sameBytesUnderTwoUrlsShareOneFile() throws Exception {
+        server.enqueue(fullResponse());
+        server.enqueue(fullResponse());
+        File first = download().file;
+
+        RecordingListener other = new RecordingListener();
+        engine.download(server.url("/mirror/contract.pdf").toString(), other);
+        other.await();
+
+        assertEquals(first, other.file);
+    }
+
+    // ==================== HELPERS ====================
+
+    private RecordingListener download() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        engine.download(url, listener);
+        listener.await();
+        return listener;
+    }
+
+    private MockResponse fullResponse() {
+        return new MockResponse()
+                .setHeader("ETag", ETAG)
+                .setHeader("Content-Type", "application/pdf")
+                .setBody(new Buffer().write(content));
+    }
+
+    private MockResponse rangeResponse(String range) {
+        int start = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+        byte[] tail = new byte[FILE_BYTES - start];
+        System.arraycopy(content, start, tail, 0, tail.length);
+        return new MockResponse()
+                .setResponseCode(206)
+                .setHeader("ETag", ETAG)
+                .setHeader("Content-Range", "bytes " + start + "-" + (FILE_BYTES - 1) + "/" + FILE_BYTES)
+                .setBody(new Buffer().write(tail));
+    }
+
+    private static byte[] read(File file) throws IOException {
+        return Okio.buffer(Okio.source(new FileInputStream(file))).readByteArray();
+    }
+
+    private static class RecordingListener implements DownloadEngine.Listener {
+        private final CountDownLatch done = new CountDownLatch(1);
+        volatile long lastDone = -1;
+        volatile long lastTotal = -1;
+        volatile File file;
+        volatile Exception error;
+
+        @Override
+        public void onProgress(long bytesDone, long bytesTotal) {
+            lastDone = bytesDone;
+            lastTotal = bytesTotal;
+        }
+
+        @Override
+        public void onComplete(File file) {
+            this.file = file;
+            done.countDown();
+        }
+
+        @Override
+        public void onError(Exception e) {
+            error = e;
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue("Download timed out", done.await(10, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.app.roomify;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory RoomRepository.Backend. Tests push results with emit(); listeners are counted
+ * so sharing and detaching can be asserted.
+ */
+class FakeRoomBackend implements RoomRepository.Backend {
+
+    private final Map<RoomQuery, List<RoomRepository.QueryListener>> queryListeners = new HashMap<>();
+    private final Map<String, List<RoomRepository.RoomListener>> roomListeners = new HashMap<>();
+    int queryListensStarted;
+    int roomListensStarted;
+
+    @Override
+    public RoomRepository.Registration listenQuery(RoomQuery query, RoomRepository.QueryListener listener) {
+        queryListensStarted++;
+        listenersFor(query).add(listener);
+        return () -> listenersFor(query).remove(listener);
+    }
+
+    @Override
+    public RoomRepository.Registration listenRoom(String roomId, RoomRepository.RoomListener listener) {
+        roomListensStarted++;
+        roomListenersFor(roomId).add(listener);
+        return () -> roomListenersFor(roomId).remove(listener);
+    }
+
+    void emit(RoomQuery query, List<Room> rooms, boolean fromCache) {
+        for (RoomRepository.QueryListener listener : new ArrayList<>(listenersFor(query))) {
+            listener.onRooms(rooms, fromCache);
+        }
+    }
+
+    void emitRoom(String roomId, Room room, boolean fromCache) {
+        for (RoomRepository.RoomListener listener : new ArrayList<>(roomListenersFor(roomId))) {
+            listener.onRoom(room, fromCache);
+        }
+    }
+
+    void fail(RoomQuery query, Exception e) {
+        for (RoomRepository.QueryListener listener : new ArrayList<>(listenersFor(query))) {
+            listener.onError(e);
+        }
+    }
+
+    int liveQueryListeners(RoomQuery query) {
+        return listenersFor(query).size();
+    }
+
+    int liveRoomListeners(String roomId) {
+        return roomListenersFor(roomId).size();
+    }
+
+    private List<RoomRepository.QueryListener> listenersFor(RoomQuery query) {
+        List<RoomRepository.QueryListener> listeners = queryListeners.get(query);
+        if (listeners == null) {
+            listeners = new ArrayList<>();
+            queryListeners.put(query, listeners);
+        }
+        return listeners;
+    }
+
+    private List<RoomRepository.RoomListener> roomListenersFor(String roomId) {
+        List<RoomRepository.RoomListener> listeners = roomListeners.get(roomId);
+        if (listeners == null) {
+            listeners = new ArrayList<>();
+            roomListeners.put(roomId, listeners);
+        }
+        return listeners;
+    }
+}
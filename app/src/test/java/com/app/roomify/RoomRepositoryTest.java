@@ -0,0 +1,276 @@
+package com.app.roomify;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * RoomRepository against FakeRoomBackend: listener sharing, memory and disk answers,
+ * and the memory bound. Executors run inline, so everything is synchronous.
+ */
+public class RoomRepositoryTest {
+
+    private static final RoomQuery OWNER_ROOMS = RoomQuery.rooms().whereEqualTo("postedBy", "owner1");
+    private static final RoomQuery CELL = RoomQuery.summaries()
+            .whereEqualTo("isAvailable", true)
+            .whereStartsWith("geohash", "kz6");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File diskDir;
+    private FakeRoomBackend backend;
+    private RoomRepository repository;
+
+    @Before
+    public void setUp() throws IOException {
+        diskDir = folder.newFolder("rooms");
+        backend = new FakeRoomBackend();
+        repository = newRepository(backend, RoomRepository.MAX_MEMORY_ROOMS);
+    }
+
+    @Test
+    public void equalQueriesShareOneBackendListener() {
+        RecordingObserver first = new RecordingObserver();
+        RecordingObserver second = new RecordingObserver();
+        RoomRepository.Subscription a = repository.observe(OWNER_ROOMS, first);
+        RoomRepository.Subscription b = repository.observe(
+                RoomQuery.rooms().whereEqualTo("postedBy", "owner1"), second);
+
+        backend.emit(OWNER_ROOMS, rooms("r1", "r2"), false);
+
+        assertEquals(1, backend.queryListensStarted);
+        assertEquals(Arrays.asList("r1", "r2"), first.lastIds());
+        assertEquals(Arrays.asList("r1", "r2"), second.lastIds());
+
+        a.remove();
+        assertEquals(1, backend.liveQueryListeners(OWNER_ROOMS));
+        b.remove();
+        assertEquals(0, backend.liveQueryListeners(OWNER_ROOMS));
+    }
+
+    @Test
+    public void lateObserverGetsTheLiveResultWithoutAnotherListener() {
+        repository.observe(OWNER_ROOMS, new RecordingObserver());
+        backend.emit(OWNER_ROOMS, rooms("r1"), false);
+
+        RecordingObserver late = new RecordingObserver();
+        repository.observe(OWNER_ROOMS, late);
+
+        assertEquals(1, backend.queryListensStarted);
+        assertEquals(Arrays.asList("r1"), late.lastIds());
+        assertFalse(late.lastFromCache);
+    }
+
+    @Test
+    public void returningObserverIsAnsweredFromMemory() {
+        RoomRepository.Subscription subscription = repository.observe(CELL, new RecordingObserver());
+        backend.emit(CELL, rooms("r1", "r2"), false);
+        subscription.remove();
+
+        RecordingObserver returning = new RecordingObserver();
+        repository.observe(CELL, returning);
+
+        // Answered before the re-attached listener has said anything
+        assertEquals(1, returning.calls);
+        assertEquals(Arrays.asList("r1", "r2"), returning.lastIds());
+        assertTrue(returning.lastFromCache);
+        assertEquals(1, backend.liveQueryListeners(CELL));
+    }
+
+    @Test
+    public void roomSeenOnAListIsAnsweredFromMemory() {
+        List<Room> cell = rooms("r1", "r2");
+        repository.observe(CELL, new RecordingObserver());
+        backend.emit(CELL, cell, false);
+
+        RecordingRoomObserver details = new RecordingRoomObserver();
+        repository.observeRoom("r1", details);
+
+        assertEquals(1, details.calls);
+        assertSame(cell.get(0), details.last);
+        assertTrue(details.lastFromCache);
+    }
+
+    @Test
+    public void summaryDoesNotReplaceAListenedFullRoom() {
+        repository.observeRoom("r1", new RecordingRoomObserver());
+        Room full = room("r1");
+        full.setDescription("Full description");
+        backend.emitRoom("r1", full, false);
+
+        repository.observe(CELL, new RecordingObserver());
+        backend.emit(CELL, rooms("r1"), false);
+
+        assertSame(full, repository.peek("r1"));
+    }
+
+    @Test
+    public void cacheMissForARoomIsIgnored() {
+        RecordingRoomObserver details = new RecordingRoomObserver();
+        repository.observeRoom("gone", details);
+
+        backend.emitRoom("gone", null, true);
+        assertEquals(0, details.calls);
+
+        backend.emitRoom("gone", null, false);
+        assertEquals(1, details.calls);
+        assertNull(details.last);
+    }
+
+    @Test
+    public void metadataOnlyReportKeepsTheSameList() {
+        RecordingObserver observer = new RecordingObserver();
+        repository.observe(OWNER_ROOMS, observer);
+        List<Room> result = rooms("r1");
+
+        backend.emit(OWNER_ROOMS, result, true);
+        List<Room> cached = observer.last;
+        backend.emit(OWNER_ROOMS, result, false);
+
+        assertEquals(2, observer.calls);
+        assertSame(cached, observer.last);
+        assertFalse(observer.lastFromCache);
+    }
+
+    @Test
+    public void memoryIsBounded() {
+        RoomRepository small = newRepository(backend, 2);
+        small.observe(OWNER_ROOMS, new RecordingObserver());
+
+        backend.emit(OWNER_ROOMS, rooms("r1", "r2", "r3"), false);
+
+        assertEquals(2, small.getMemoryRoomCount());
+        assertNull(small.peek("r1"));
+        assertNotNull(small.peek("r3"));
+    }
+
+    @Test
+    public void evictedResultFallsBackToDisk() {
+        RoomRepository small = newRepository(backend, 2);
+        RoomRepository.Subscription subscription = small.observe(OWNER_ROOMS, new RecordingObserver());
+        backend.emit(OWNER_ROOMS, rooms("r1", "r2", "r3"), false);
+        subscription.remove();
+
+        RecordingObserver returning = new RecordingObserver();
+        small.observe(OWNER_ROOMS, returning);
+
+        assertEquals(Arrays.asList("r1", "r2", "r3"), returning.lastIds());
+        assertTrue(returning.lastFromCache);
+    }
+
+    @Test
+    public void newProcessIsAnsweredFromDisk() {
+        repository.observe(CELL, new RecordingObserver());
+        backend.emit(CELL, rooms("r1", "r2"), false);
+        repository.observeRoom("r1", new RecordingRoomObserver());
+        backend.emitRoom("r1", room("r1"), false);
+
+        FakeRoomBackend freshBackend = new FakeRoomBackend();
+        RoomRepository restarted = newRepository(freshBackend, RoomRepository.MAX_MEMORY_ROOMS);
+        RecordingObserver map = new RecordingObserver();
+        RecordingRoomObserver details = new RecordingRoomObserver();
+        restarted.observe(CELL, map);
+        restarted.observeRoom("r1", details);
+
+        assertEquals(Arrays.asList("r1", "r2"), map.lastIds());
+        assertEquals("Room r2", map.last.get(1).getTitle());
+        assertEquals("r1", details.last.getId());
+    }
+
+    @Test
+    public void unconfirmedResultsAreNotWrittenToDisk() {
+        repository.observe(CELL, new RecordingObserver());
+        backend.emit(CELL, rooms("r1"), true);
+
+        RecordingObserver map = new RecordingObserver();
+        newRepository(new FakeRoomBackend(), RoomRepository.MAX_MEMORY_ROOMS).observe(CELL, map);
+
+        assertEquals(0, map.calls);
+    }
+
+    @Test
+    public void errorsReachEveryObserver() {
+        RecordingObserver first = new RecordingObserver();
+        RecordingObserver second = new RecordingObserver();
+        repository.observe(OWNER_ROOMS, first);
+        repository.observe(OWNER_ROOMS, second);
+
+        backend.fail(OWNER_ROOMS, new IllegalStateException("denied"));
+
+        assertNotNull(first.error);
+        assertNotNull(second.error);
+    }
+
+    // ==================== HELPERS ====================
+
+    private RoomRepository newRepository(FakeRoomBackend backend, int maxMemoryRooms) {
+        return new RoomRepository(backend, new RoomRepository.FileDiskCache(diskDir),
+                Runnable::run, Runnable::run, maxMemoryRooms);
+    }
+
+    private static Room room(String id) {
+        Room room = new Room();
+        room.setId(id);
+        room.setTitle("Room " + id);
+        room.setPrice(100);
+        return room;
+    }
+
+    private static List<Room> rooms(String... ids) {
+        List<Room> rooms = new ArrayList<>();
+        for (String id : ids) {
+            rooms.add(room(id));
+        }
+        return rooms;
+    }
+
+    private static class RecordingObserver implements RoomRepository.Observer {
+        int calls;
+        List<Room> last;
+        boolean lastFromCache;
+        Exception error;
+
+        @Override
+        public void onRooms(List<Room> rooms, boolean fromCache) {
+            calls++;
+            last = rooms;
+            lastFromCache = fromCache;
+        }
+
+        @Override
+        public void onError(Exception e) {
+            error = e;
+        }
+
+        List<String> lastIds() {
+            List<String> ids = new ArrayList<>();
+            for (Room room : last) {
+                ids.add(room.getId());
+            }
+            return ids;
+        }
+    }
+
+    private static class RecordingRoomObserver implements RoomRepository.RoomObserver {
+        int calls;
+        Room last;
+        boolean lastFromCache;
+
+        @Override
+        public void onRoom(Room room, boolean fromCache) {
+            calls++;
+            last = room;
+            lastFromCache = fromCache;
+        }
+    }
+}
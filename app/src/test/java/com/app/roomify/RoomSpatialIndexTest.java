@@ -0,0 +1,233 @@
+package com.app.roomify;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Correctness checks for RoomSpatialIndex against the linear scans the map screens used,
+ * plus a rough timing comparison at 1k / 10k / 100k rooms (printed, not asserted). The
+ * comparison only runs when asked for, with ./gradlew test -Pbenchmark.
+ */
+public class RoomSpatialIndexTest {
+
+    // Roughly Dar es Salaam and surroundings
+    private static final double CENTER_LAT = -6.7924;
+    private static final double CENTER_LNG = 39.2083;
+    private static final int QUERIES = 200;
+
+    private static List<Room> randomRooms(int count, long seed) {
+        Random random = new Random(seed);
+        List<Room> rooms = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Room room = new Room();
+            room.setId("room_" + i);
+            room.setLatitude(CENTER_LAT + (random.nextDouble() - 0.5) * 2);
+            room.setLongitude(CENTER_LNG + (random.nextDouble() - 0.5) * 2);
+            room.setPrice(100 + random.nextInt(900));
+            rooms.add(room);
+        }
+        return rooms;
+    }
+
+    // ==================== LINEAR BASELINES ====================
+
+    private static Room linearFind(List<Room> rooms, String id) {
+        for (Room r : rooms) {
+            if (r.getId().equals(id)) return r;
+        }
+        return null;
+    }
+
+    private static Set<String> linearWithin(List<Room> rooms, double lat, double lng, double km) {
+        Set<String> ids = new HashSet<>();
+        for (Room r : rooms) {
+            if (RoomSpatialIndex.distanceKm(lat, lng, r.getLatitude(), r.getLongitude()) <= km) {
+                ids.add(r.getId());
+            }
+        }
+        return ids;
+    }
+
+    private static List<String> linearNearest(List<Room> rooms, double lat, double lng, int k) {
+        List<Room> sorted = new ArrayList<>(rooms);
+        Collections.sort(sorted, Comparator.comparingDouble(
+                r -> RoomSpatialIndex.distanceKm(lat, lng, r.getLatitude(), r.getLongitude())));
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < Math.min(k, sorted.size()); i++) {
+            ids.add(sorted.get(i).getId());
+        }
+        return ids;
+    }
+
+    private static Set<String> linearInBounds(List<Room> rooms, double s, double w, double n, double e) {
+        Set<String> ids = new HashSet<>();
+        for (Room r : rooms) {
+            if (r.getLatitude() >= s && r.getLatitude() <= n
+                    && r.getLongitude() >= w && r.getLongitude() <= e) {
+                ids.add(r.getId());
+            }
+        }
+        return ids;
+    }
+
+    private static Set<String> ids(List<Room> rooms) {
+        Set<String> ids = new HashSet<>();
+        for (Room r : rooms) ids.add(r.getId());
+        return ids;
+    }
+
+    // ==================== CORRECTNESS ====================
+
+    @Test
+    public void queries_matchLinearScan() {
+        List<Room> rooms = randomRooms(5000, 42);
+        RoomSpatialIndex index = new RoomSpatialIndex();
+        index.putAll(rooms);
+        Random random = new Random(7);
+
+        for (int i = 0; i < 50; i++) {
+            double lat = CENTER_LAT + (random.nextDouble() - 0.5) * 2;
+            double lng = CENTER_LNG + (random.nextDouble() - 0.5) * 2;
+
+            assertEquals(linearWithin(rooms, lat, lng, 5), ids(index.withinRadius(lat, lng, 5)));
+            assertEquals(linearInBounds(rooms, lat - 0.1, lng - 0.2, lat + 0.1, lng + 0.2),
+                    ids(index.inBounds(lat - 0.1, lng - 0.2, lat + 0.1, lng + 0.2)));
+
+            List<String> expected = linearNearest(rooms, lat, lng, 10);
+            List<String> actual = new ArrayList<>();
+            for (Room r : index.nearest(lat, lng, 10)) actual.add(r.getId());
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void updates_moveAndRemoveRooms() {
+        List<Room> rooms = randomRooms(1000, 1);
+        RoomSpatialIndex index = new RoomSpatialIndex();
+        index.putAll(rooms);
+
+        // Remove every other room and move the rest, simulating snapshot churn
+        List<Room> remaining = new ArrayList<>();
+        for (int i = 0; i < rooms.size(); i++) {
+            Room room = rooms.get(i);
+            if (i % 2 == 0) {
+                index.remove(room.getId());
+            } else {
+                Room moved = new Room();
+                moved.setId(room.getId());
+                moved.setLatitude(room.getLatitude() + 0.01);
+                moved.setLongitude(room.getLongitude() - 0.01);
+                index.put(moved);
+                remaining.add(moved);
+            }
+        }
+
+        assertEquals(remaining.size(), index.size());
+        assertNull(index.get(rooms.get(0).getId()));
+        assertSame(remaining.get(0), index.get(remaining.get(0).getId()));
+        assertEquals(linearWithin(remaining, CENTER_LAT, CENTER_LNG, 20),
+                ids(index.withinRadius(CENTER_LAT, CENTER_LNG, 20)));
+
+        double[] bounds = index.getBounds();
+        Set<String> all = linearInBounds(remaining, bounds[0], bounds[1], bounds[2], bounds[3]);
+        assertEquals(remaining.size(), all.size());
+    }
+
+    @Test
+    public void inBounds_handlesAntimeridian() {
+        RoomSpatialIndex index = new RoomSpatialIndex();
+        Room east = new Room();
+        east.setId("east");
+        east.setLatitude(-17);
+        east.setLongitude(179.5);
+        Room west = new Room();
+        west.setId("west");
+        west.setLatitude(-17);
+        west.setLongitude(-179.5);
+        Room far = new Room();
+        far.setId("far");
+        far.setLatitude(-17);
+        far.setLongitude(170);
+        index.put(east);
+        index.put(west);
+        index.put(far);
+
+        assertEquals(new HashSet<>(java.util.Arrays.asList("east", "west")),
+                ids(index.inBounds(-18, 179, -16, -179)));
+    }
+
+    // ==================== BENCHMARK ====================
+
+    @Test
+    public void benchmark_againstLinearScans() {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+        for (int size : new int[]{1_000, 10_000, 100_000}) {
+            List<Room> rooms = randomRooms(size, size);
+            RoomSpatialIndex index = new RoomSpatialIndex();
+
+            long start = System.nanoTime();
+            index.putAll(rooms);
+            long buildNs = System.nanoTime() - start;
+
+            Random random = new Random(3);
+            double[][] points = new double[QUERIES][2];
+            String[] lookups = new String[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                points[i][0] = CENTER_LAT + (random.nextDouble() - 0.5) * 2;
+                points[i][1] = CENTER_LNG + (random.nextDouble() - 0.5) * 2;
+                lookups[i] = "room_" + random.nextInt(size);
+            }
+
+            long linearLookup = time(() -> { for (String id : lookups) linearFind(rooms, id); });
+            long indexLookup = time(() -> { for (String id : lookups) index.get(id); });
+
+            long linearRadius = time(() -> { for (double[] p : points) linearWithin(rooms, p[0], p[1], 2); });
+            long indexRadius = time(() -> { for (double[] p : points) index.withinRadius(p[0], p[1], 2); });
+
+            long linearBox = time(() -> {
+                for (double[] p : points) linearInBounds(rooms, p[0] - 0.02, p[1] - 0.03, p[0] + 0.02, p[1] + 0.03);
+            });
+            long indexBox = time(() -> {
+                for (double[] p : points) index.inBounds(p[0] - 0.02, p[1] - 0.03, p[0] + 0.02, p[1] + 0.03);
+            });
+
+            // Sorting the whole list is what a naive "closest rooms" list screen would do
+            int nearestQueries = size >= 100_000 ? 5 : 20;
+            long linearNearest = time(() -> {
+                for (int i = 0; i < nearestQueries; i++) linearNearest(rooms, points[i][0], points[i][1], 10);
+            });
+            long indexNearest = time(() -> {
+                for (int i = 0; i < nearestQueries; i++) index.nearest(points[i][0], points[i][1], 10);
+            });
+
+            System.out.printf("%,d rooms: build %.1f ms%n", size, buildNs / 1e6);
+            System.out.printf("  id lookup  linear %8.3f ms  index %8.3f ms (%d queries)%n",
+                    linearLookup / 1e6, indexLookup / 1e6, QUERIES);
+            System.out.printf("  radius 2km linear %8.3f ms  index %8.3f ms (%d queries)%n",
+                    linearRadius / 1e6, indexRadius / 1e6, QUERIES);
+            System.out.printf("  bounds     linear %8.3f ms  index %8.3f ms (%d queries)%n",
+                    linearBox / 1e6, indexBox / 1e6, QUERIES);
+            System.out.printf("  10-nearest linear %8.3f ms  index %8.3f ms (%d queries)%n",
+                    linearNearest / 1e6, indexNearest / 1e6, nearestQueries);
+
+            assertEquals(size, index.size());
+        }
+    }
+
+    private static long time(Runnable work) {
+        work.run(); // warm-up
+        long start = System.nanoTime();
+        work.run();
+        return System.nanoTime() - start;
+    }
+}
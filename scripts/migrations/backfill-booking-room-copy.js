@@ -0,0 +1,57 @@
+/*
+ * One-off migration: mark the rooms/{roomId}/bookings copy of every booking made before
+ * roomCopy existed. The owner's inbox and new-booking listener query only documents
+ * with roomCopy == true, so older bookings are missing from them until this has run.
+ *
+ * The users/{userId}/bookings copies are left alone. Bookings that already carry the
+ * field are skipped; safe to re-run.
+ *
+ *   cd scripts/migrations && npm install
+ *   GOOGLE_APPLICATION_CREDENTIALS=service-account.json node backfill-booking-room-copy.js [--dry-run]
+ */
+const admin = require('firebase-admin');
+
+const PAGE_SIZE = 300;
+
+// As BookingInbox.FIELD_ROOM_COPY
+const FIELD_ROOM_COPY = 'roomCopy';
+
+async function main() {
+  const dryRun = process.argv.includes('--dry-run');
+  admin.initializeApp();
+  const db = admin.firestore();
+
+  let rooms = 0;
+  let written = 0;
+  let last = null;
+  for (;;) {
+    let query = db.collection('rooms').orderBy(admin.firestore.FieldPath.documentId()).limit(PAGE_SIZE);
+    if (last) query = query.startAfter(last);
+    const page = await query.get();
+    if (page.empty) break;
+
+    for (const room of page.docs) {
+      rooms++;
+      const bookings = await room.ref.collection('bookings').get();
+      const unmarked = bookings.docs.filter((booking) => booking.get(FIELD_ROOM_COPY) !== true);
+      // A batch holds at most 500 writes
+      for (let i = 0; i < unmarked.length; i += 500) {
+        const batch = db.batch();
+        const chunk = unmarked.slice(i, i + 500);
+        for (const booking of chunk) {
+          batch.update(booking.ref, { [FIELD_ROOM_COPY]: true });
+        }
+        if (!dryRun) await batch.commit();
+        written += chunk.length;
+      }
+    }
+    last = page.docs[page.docs.length - 1];
+  }
+
+  console.log(`${dryRun ? 'Would mark' : 'Marked'} ${written} bookings in ${rooms} rooms`);
+}
+
+main().catch((e) => {
+  console.error(e);
+  process.exit(1);
+});
@@ -0,0 +1,107 @@
+/*
+ * One-off migration: write a geohash to every room posted before the field existed.
+ * The map screens only query geohash prefix ranges, so rooms without one never show up.
+ * Existing room_summaries copies get it too (missing ones are backfill-summaries.js's job);
+ * the room gets an updatedAt stamp so catalogs pick it up on their next sync.
+ *
+ * Safe to re-run: rooms that already carry the right geohash are skipped.
+ *
+ *   cd scripts/migrations && npm install
+ *   GOOGLE_APPLICATION_CREDENTIALS=service-account.json node backfill-geohash.js [--dry-run]
+ */
+const admin = require('firebase-admin');
+
+// Same as GeoHash.java
+const BASE32 = '0123456789bcdefghjkmnpqrstuvwxyz';
+const STORED_PRECISION = 9;
+const PAGE_SIZE = 300;
+
+function encode(latitude, longitude, precision = STORED_PRECISION) {
+  let minLat = -90, maxLat = 90;
+  let minLng = -180, maxLng = 180;
+  let hash = '';
+  let evenBit = true;
+  let bit = 0;
+  let ch = 0;
+
+  while (hash.length < precision) {
+    if (evenBit) {
+      const mid = (minLng + maxLng) / 2;
+      if (longitude >= mid) {
+        ch = (ch << 1) | 1;
+        minLng = mid;
+      } else {
+        ch = ch << 1;
+        maxLng = mid;
+      }
+    } else {
+      const mid = (minLat + maxLat) / 2;
+      if (latitude >= mid) {
+        ch = (ch << 1) | 1;
+        minLat = mid;
+      } else {
+        ch = ch << 1;
+        maxLat = mid;
+      }
+    }
+    evenBit = !evenBit;
+
+    if (++bit === 5) {
+      hash += BASE32.charAt(ch);
+      bit = 0;
+      ch = 0;
+    }
+  }
+  return hash;
+}
+
+async function main() {
+  const dryRun = process.argv.includes('--dry-run');
+  admin.initializeApp();
+  const db = admin.firestore();
+
+  let scanned = 0;
+  let written = 0;
+  let last = null;
+  for (;;) {
+    let query = db.collection('rooms').orderBy(admin.firestore.FieldPath.documentId()).limit(PAGE_SIZE);
+    if (last) query = query.startAfter(last);
+    const page = await query.get();
+    if (page.empty) break;
+
+    const summaries = await db.getAll(...page.docs.map((doc) => db.collection('room_summaries').doc(doc.id)));
+    const hasSummary = new Set(summaries.filter((summary) => summary.exists).map((summary) => summary.id));
+
+    // At most two writes per room, well under the 500 per batch limit
+    const batch = db.batch();
+    let pending = 0;
+    for (const doc of page.docs) {
+      scanned++;
+      const { latitude, longitude, geohash } = doc.data();
+      if (typeof latitude !== 'number' || typeof longitude !== 'number') continue;
+      if (latitude === 0 && longitude === 0) continue;
+
+      const expected = encode(latitude, longitude);
+      if (expected === geohash) continue;
+
+      batch.update(doc.ref, {
+        geohash: expected,
+        updatedAt: admin.firestore.FieldValue.serverTimestamp(),
+      });
+      if (hasSummary.has(doc.id)) {
+        batch.update(db.collection('room_summaries').doc(doc.id), { geohash: expected });
+      }
+      pending++;
+    }
+    if (pending > 0 && !dryRun) await batch.commit();
+    written += pending;
+    last = page.docs[page.docs.length - 1];
+  }
+
+  console.log(`${dryRun ? 'Would write' : 'Wrote'} geohash for ${written} of ${scanned} rooms`);
+}
+
+main().catch((e) => {
+  console.error(e);
+  process.exit(1);
+});
@@ -0,0 +1,72 @@
+/*
+ * One-off migration: write the room_summaries copy of every published room posted before
+ * that collection existed. Maps, dashboard recommendations and My Properties read only
+ * summaries, so rooms without one are missing from all of them.
+ *
+ * Fields match RoomSummaries.fromRoom. Run backfill-geohash.js first so the copied
+ * geohash is there. Rooms that already have a summary are left alone; safe to re-run.
+ *
+ *   cd scripts/migrations && npm install
+ *   GOOGLE_APPLICATION_CREDENTIALS=service-account.json node backfill-summaries.js [--dry-run]
+ */
+const admin = require('firebase-admin');
+
+const PAGE_SIZE = 300;
+
+// Room fields copied verbatim, as in RoomSummaries.SUMMARY_FIELDS
+const SUMMARY_FIELDS = [
+  'id', 'title', 'price', 'latitude', 'longitude', 'geohash', 'address',
+  'propertyType', 'status', 'isAvailable', 'postedBy', 'bookingsCount', 'createdAt',
+  'imagesUpdatedAt', 'bookedRanges',
+];
+
+function toSummary(id, room) {
+  const summary = { id };
+  for (const field of SUMMARY_FIELDS) {
+    if (room[field] !== undefined) summary[field] = room[field];
+  }
+  const renditions = Array.isArray(room.imageRenditions) ? room.imageRenditions : [];
+  const images = Array.isArray(room.images) ? room.images : [];
+  summary.thumbnailUrl = (renditions[0] && renditions[0].thumb) || images[0] || null;
+  return summary;
+}
+
+async function main() {
+  const dryRun = process.argv.includes('--dry-run');
+  admin.initializeApp();
+  const db = admin.firestore();
+
+  let scanned = 0;
+  let written = 0;
+  let last = null;
+  for (;;) {
+    let query = db.collection('rooms').orderBy(admin.firestore.FieldPath.documentId()).limit(PAGE_SIZE);
+    if (last) query = query.startAfter(last);
+    const page = await query.get();
+    if (page.empty) break;
+
+    const summaries = await db.getAll(...page.docs.map((doc) => db.collection('room_summaries').doc(doc.id)));
+    const hasSummary = new Set(summaries.filter((summary) => summary.exists).map((summary) => summary.id));
+
+    const batch = db.batch();
+    let pending = 0;
+    for (const doc of page.docs) {
+      scanned++;
+      const room = doc.data();
+      // Drafts get their summary when they're published
+      if (room.status === 'draft' || hasSummary.has(doc.id)) continue;
+      batch.set(db.collection('room_summaries').doc(doc.id), toSummary(doc.id, room));
+      pending++;
+    }
+    if (pending > 0 && !dryRun) await batch.commit();
+    written += pending;
+    last = page.docs[page.docs.length - 1];
+  }
+
+  console.log(`${dryRun ? 'Would write' : 'Wrote'} ${written} summaries for ${scanned} rooms`);
+}
+
+main().catch((e) => {
+  console.error(e);
+  process.exit(1);
+});